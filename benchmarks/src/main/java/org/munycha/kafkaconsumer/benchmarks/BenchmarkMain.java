@@ -0,0 +1,28 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar.
+ * <p>
+ * Takes the usual JMH command line (benchmark regex, -f, -wi, -i, -p, ...) and
+ * always adds the GC profiler, so every result comes with its allocation
+ * rate ({@code gc.alloc.rate.norm} = bytes allocated per operation).
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cli);
+        if (cli.getProfilers().stream().noneMatch(p -> p.getKlass().equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.munycha.kafkaconsumer.benchmarks.support.SyntheticRecords;
+import org.munycha.kafkaconsumer.codec.RecordDecoder;
+import org.munycha.kafkaconsumer.model.LogEvent;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON decoding of record values: the streaming {@link RecordDecoder} used by
+ * TopicConsumer, next to the plain {@code new String(...)} + ObjectMapper path
+ * it replaced as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int PAYLOADS = 1024;
+
+    private final RecordDecoder decoder = new RecordDecoder();
+    private byte[][] logEvents;
+    private byte[][] snapshots;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SyntheticRecords records = new SyntheticRecords(42, 0.05);
+        Instant now = Instant.now();
+
+        logEvents = new byte[PAYLOADS][];
+        snapshots = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) {
+            logEvents[i] = records.logEvent(now.plusMillis(i));
+            snapshots[i] = records.snapshot(now.plusSeconds(i));
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (PAYLOADS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public LogEvent decodeLogEvent() throws IOException {
+        return decoder.decodeLogEvent(logEvents[nextIndex()]);
+    }
+
+    @Benchmark
+    public LogEvent decodeLogEventObjectMapper() throws IOException {
+        LogEvent event = MAPPER.readValue(new String(logEvents[nextIndex()], StandardCharsets.UTF_8), LogEvent.class);
+        // RecordDecoder parses the event time too
+        event.setInstant(Instant.parse(event.getTimestamp()));
+        return event;
+    }
+
+    @Benchmark
+    public ServerStorageSnapshot decodeSnapshot() throws IOException {
+        return decoder.decodeSnapshot(snapshots[nextIndex()]);
+    }
+
+    @Benchmark
+    public ServerStorageSnapshot decodeSnapshotObjectMapper() throws IOException {
+        return MAPPER.readValue(new String(snapshots[nextIndex()], StandardCharsets.UTF_8),
+                ServerStorageSnapshot.class);
+    }
+}
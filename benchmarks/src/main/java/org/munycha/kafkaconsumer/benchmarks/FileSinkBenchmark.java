@@ -0,0 +1,111 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import org.munycha.kafkaconsumer.config.Durability;
+import org.munycha.kafkaconsumer.config.SinkConfig;
+import org.munycha.kafkaconsumer.sink.FileChannelSink;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Output file writes for one poll batch: {@value #LINES} formatted lines
+ * appended to the sink, then commitBatch(). The FileWriter variant opens,
+ * writes and closes the file per line, as the consumer originally did.
+ * Results are per line; durability only applies to the FileChannelSink.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileSinkBenchmark {
+
+    private static final int LINES = 500;
+
+    @Param({"NONE", "BATCH"})
+    public Durability durability;
+
+    private Path dir;
+    private Path file;
+    private FileWatcher watcher;
+    private ScheduledExecutorService scheduler;
+    private FileChannelSink sink;
+    private String[] lines;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("sink-bench");
+        file = Files.createFile(dir.resolve("out.log"));
+
+        SinkConfig config = new SinkConfig();
+        config.setDurability(durability);
+
+        watcher = new FileWatcher();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        sink = new FileChannelSink(watcher.watch(file), config, scheduler);
+
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = "2024-05-14 10:22:31 [app-0" + (i % 5) + "] /var/log/app/server.log: "
+                    + "GET /api/v1/orders/" + (7_731_000 + i) + " 200 in " + (i % 300) + " ms\n";
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws IOException {
+        // Keep the file small so page-cache growth does not skew later iterations
+        Files.write(file, new byte[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void fileChannelSink() throws IOException {
+        for (String line : lines) {
+            sink.append(line);
+        }
+        sink.commitBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void fileWriterPerLine() throws IOException {
+        for (String line : lines) {
+            try (FileWriter writer = new FileWriter(file.toFile(), true)) {
+                writer.write(line);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sink.close();
+        scheduler.shutdownNow();
+        watcher.close();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
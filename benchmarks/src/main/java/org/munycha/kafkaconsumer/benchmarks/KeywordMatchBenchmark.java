@@ -0,0 +1,64 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.benchmarks.support.SyntheticRecords;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword matching as done in handleLogRecord, for a message without any
+ * keyword (the common case) and one with a keyword near the end. The
+ * lower-case-and-contains loop is the pre-automaton implementation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordMatchBenchmark {
+
+    @Param({"MISS", "HIT"})
+    public String message;
+
+    private final KeywordMatcher matcher = new KeywordMatcher(SyntheticRecords.KEYWORDS, null);
+    private String text;
+
+    @Setup
+    public void setup() {
+        String prefix = "2024-05-14 10:22:31,118 [http-nio-8080-exec-17] INFO  c.e.orders.OrderController - "
+                + "GET /api/v1/orders/7731943 completed for user 88213 in 187 ms, items=14, cache=warm";
+        text = "HIT".equals(message) ? prefix + ", downstream call Failed with status 502" : prefix;
+    }
+
+    @Benchmark
+    public List<String> automaton() {
+        return matcher.match(text);
+    }
+
+    @Benchmark
+    public List<String> lowerCaseContains() {
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<String> matched = new ArrayList<>();
+        for (String keyword : SyntheticRecords.KEYWORDS) {
+            if (lower.contains(keyword)) {
+                matched.add(keyword);
+            }
+        }
+        return matched;
+    }
+}
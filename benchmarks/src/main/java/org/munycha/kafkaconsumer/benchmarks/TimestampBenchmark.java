@@ -0,0 +1,72 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import org.munycha.kafkaconsumer.codec.TimestampFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event-time handling per log record: parsing the ISO timestamp and
+ * formatting it for the output file. Events arrive in bursts, so the
+ * formatter sees 8 events per second of event time here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampBenchmark {
+
+    private static final int EVENTS = 1024;
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final TimestampFormatter formatter = new TimestampFormatter();
+    private String[] texts;
+    private Instant[] instants;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Instant start = Instant.parse("2024-05-14T10:22:31.118Z");
+        texts = new String[EVENTS];
+        instants = new Instant[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            instants[i] = start.plusMillis(125L * i);
+            texts[i] = instants[i].toString();
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (EVENTS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Instant parse() {
+        return Instant.parse(texts[nextIndex()]);
+    }
+
+    @Benchmark
+    public String formatCached() {
+        return formatter.format(instants[nextIndex()]);
+    }
+
+    @Benchmark
+    public String formatUncached() {
+        return FORMAT.format(instants[nextIndex()]);
+    }
+}
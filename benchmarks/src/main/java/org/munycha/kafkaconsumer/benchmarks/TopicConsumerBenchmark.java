@@ -0,0 +1,124 @@
+package org.munycha.kafkaconsumer.benchmarks;
+
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.munycha.kafkaconsumer.benchmarks.support.EmbeddedDatabase;
+import org.munycha.kafkaconsumer.benchmarks.support.Pipeline;
+import org.munycha.kafkaconsumer.benchmarks.support.StubTelegramServer;
+import org.munycha.kafkaconsumer.benchmarks.support.SyntheticRecords;
+import org.munycha.kafkaconsumer.config.CommitStrategy;
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.config.TopicType;
+import org.munycha.kafkaconsumer.consumer.TopicConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end record handling: {@link TopicConsumer#processBatch} on synthetic
+ * poll results of {@value #BATCH} records, through decoding, keyword matching,
+ * alert dedup, the file sink, the H2 write-behind and the stub Telegram API,
+ * including the offset commit. Results are per record.
+ * <p>
+ * With SYNC the batch waits for its DB rows, so DB latency is part of the
+ * number; AUTO shows the CPU cost of the consumer thread alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TopicConsumerBenchmark {
+
+    private static final int BATCH = 500;
+    private static final int BATCHES = 16;
+    private static final String TOPIC = "bench";
+
+    @Param({"LOG", "METRIC"})
+    public TopicType type;
+
+    @Param({"AUTO", "SYNC"})
+    public CommitStrategy commitStrategy;
+
+    @Param({"0.01"})
+    public double alertRatio;
+
+    private Path dir;
+    private EmbeddedDatabase database;
+    private StubTelegramServer telegram;
+    private Pipeline pipeline;
+    private MockConsumer<String, byte[]> consumer;
+    private TopicConsumer topicConsumer;
+    private ConsumerRecords<String, byte[]>[] batches;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("consumer-bench");
+        Path output = Files.createFile(dir.resolve(TOPIC + ".log"));
+
+        database = new EmbeddedDatabase();
+        telegram = new StubTelegramServer();
+
+        DatabaseConfig dbConfig = database.config();
+        dbConfig.setLingerMs(0);
+        pipeline = new Pipeline(dbConfig, telegram.url(), ThreadMode.PLATFORM);
+
+        TopicConfig topicConfig = new TopicConfig(TOPIC, type, output.toString());
+        topicConfig.setCommitStrategy(commitStrategy);
+
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Collections.singletonList(partition));
+        consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+
+        topicConsumer = pipeline.consumer(topicConfig, consumer, 0);
+
+        SyntheticRecords records = new SyntheticRecords(42, alertRatio);
+        batches = new ConsumerRecords[BATCHES];
+        for (int i = 0; i < BATCHES; i++) {
+            batches[i] = records.batch(TOPIC, type, BATCH, (long) i * BATCH);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void processBatch() throws IOException {
+        next = (next + 1) % BATCHES;
+        topicConsumer.processBatch(batches[next]);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        pipeline.close();
+        telegram.close();
+        database.close();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
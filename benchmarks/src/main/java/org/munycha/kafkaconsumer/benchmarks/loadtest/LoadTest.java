@@ -0,0 +1,306 @@
+package org.munycha.kafkaconsumer.benchmarks.loadtest;
+
+import org.munycha.kafkaconsumer.benchmarks.support.EmbeddedDatabase;
+import org.munycha.kafkaconsumer.benchmarks.support.Pipeline;
+import org.munycha.kafkaconsumer.benchmarks.support.StubTelegramServer;
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.SinkConfig;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.config.TopicType;
+import org.munycha.kafkaconsumer.metrics.Histogram;
+import org.munycha.kafkaconsumer.utility.ThreadFactories;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Offline load test: runs TopicConsumers at a configurable event rate and
+ * reports sustained throughput, end-to-end latency and heap usage.
+ * <p>
+ * Kafka is replaced by {@link TrafficSource} (one per partition), MySQL by an
+ * in-memory H2 database and api.telegram.org by a local stub; everything in
+ * between is the production code, wired as in AppMain. Results after the
+ * warm-up are what count:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *      org.munycha.kafkaconsumer.benchmarks.loadtest.LoadTest --rate=50000 --duration=120
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final double MB = 1024 * 1024;
+
+    private final LoadTestOptions options;
+    private final List<TrafficSource> sources = new ArrayList<>();
+
+    // Latency since the last report and since the end of the warm-up
+    private volatile Histogram interval = new Histogram();
+    private volatile Histogram measured = new Histogram();
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(LoadTestOptions.parse(args)).run();
+    }
+
+    private void recordLatency(long nanos) {
+        interval.record(nanos);
+        measured.record(nanos);
+    }
+
+    private void run() throws Exception {
+        System.out.println("Load test: " + options);
+
+        Path dir = Files.createTempDirectory("loadtest");
+        try (EmbeddedDatabase database = new EmbeddedDatabase();
+             StubTelegramServer telegram = new StubTelegramServer()) {
+
+            DatabaseConfig dbConfig = database.config();
+            dbConfig.setPoolSize(options.dbPoolSize);
+            dbConfig.setBatchSize(options.dbBatchSize);
+            dbConfig.setLingerMs(options.dbLingerMs);
+
+            Pipeline pipeline = new Pipeline(dbConfig, telegram.url(), options.threadMode);
+            ExecutorService consumers = ThreadFactories.executor("consumer",
+                    ThreadFactories.effective(options.threadMode), 2 * options.concurrency);
+
+            if (options.logShare > 0) {
+                startTopic(pipeline, consumers, dir, "logs", TopicType.LOG, options.rate * options.logShare);
+            }
+            if (options.logShare < 1) {
+                startTopic(pipeline, consumers, dir, "metrics", TopicType.METRIC,
+                        options.rate * (1 - options.logShare));
+            }
+
+            Result result = measure();
+
+            for (TrafficSource source : sources) {
+                source.stop();
+                source.wakeup();
+            }
+            consumers.shutdown();
+            consumers.awaitTermination(30, TimeUnit.SECONDS);
+
+            System.gc();
+            double liveHeapMb = heapUsed() / MB;
+
+            // Drains the DB and Telegram queues
+            pipeline.close();
+
+            printSummary(result, liveHeapMb, database, telegram, pipeline);
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private void startTopic(Pipeline pipeline,
+                            ExecutorService consumers,
+                            Path dir,
+                            String topic,
+                            TopicType type,
+                            double rate) throws Exception {
+        Path output = Files.createFile(dir.resolve(topic + ".log"));
+
+        TopicConfig topicConfig = new TopicConfig(topic, type, output.toString());
+        topicConfig.setMaxPollRecords(options.maxPollRecords);
+        topicConfig.setPollTimeoutMs(options.pollTimeoutMs);
+        topicConfig.setCommitStrategy(options.commit);
+        topicConfig.setConcurrency(options.concurrency);
+        topicConfig.getPipeline().setLanes(options.lanes);
+        SinkConfig sinkConfig = new SinkConfig();
+        sinkConfig.setType(options.sink);
+        topicConfig.setSink(sinkConfig);
+
+        for (int instance = 0; instance < options.concurrency; instance++) {
+            TrafficSource source = new TrafficSource(topic, instance, type, 31L * sources.size() + 7,
+                    options.alertRatio, rate / options.concurrency, options.maxBacklog,
+                    options.maxPollRecords, this::recordLatency);
+            sources.add(source);
+
+            consumers.submit(pipeline.consumer(topicConfig, source, instance));
+            source.start();
+        }
+    }
+
+    private Result measure() throws InterruptedException {
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        long reportEvery = TimeUnit.SECONDS.toNanos(Math.max(1, options.reportSeconds));
+
+        long lastReport = start;
+        long lastCompleted = 0;
+        boolean warm = options.warmupSeconds == 0;
+        Result result = new Result();
+        result.startPerSource = new long[sources.size()];
+        result.startNanos = start;
+        result.gcCount = gcCount();
+        result.gcMillis = gcMillis();
+
+        while (System.nanoTime() < end) {
+            long nextReport = Math.min(lastReport + reportEvery, warm ? end : warmupEnd);
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, nextReport - System.nanoTime()));
+
+            long now = System.nanoTime();
+            long completed = completed();
+            Histogram window = interval;
+            interval = new Histogram();
+
+            double seconds = (now - lastReport) / 1e9;
+            System.out.printf("[%4ds]%s %,9.0f ev/s  p50 %7.2f ms  p99 %8.2f ms  backlog %,7d  heap %,6.0f MB%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start),
+                    warm ? "         " : " (warmup)",
+                    (completed - lastCompleted) / seconds,
+                    window.quantile(0.50) / 1e6,
+                    window.quantile(0.99) / 1e6,
+                    backlog(),
+                    heapUsed() / MB);
+
+            lastReport = now;
+            lastCompleted = completed;
+
+            if (!warm && now >= warmupEnd) {
+                warm = true;
+                measured = new Histogram();
+                result.startCompleted = completed;
+                result.startNanos = now;
+                result.startPerSource = completedPerSource();
+                result.gcCount = gcCount();
+                result.gcMillis = gcMillis();
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+
+        result.events = completed() - result.startCompleted;
+        result.perSource = completedPerSource();
+        result.seconds = (System.nanoTime() - result.startNanos) / 1e9;
+        result.latency = measured;
+        result.peakHeap = peakHeap();
+        result.gcCount = gcCount() - result.gcCount;
+        result.gcMillis = gcMillis() - result.gcMillis;
+        result.backlog = backlog();
+        return result;
+    }
+
+    private void printSummary(Result result,
+                              double liveHeapMb,
+                              EmbeddedDatabase database,
+                              StubTelegramServer telegram,
+                              Pipeline pipeline) throws Exception {
+        double throughput = result.events / result.seconds;
+        Histogram latency = result.latency;
+
+        System.out.println();
+        System.out.println("==== Result (" + String.format("%.0f", result.seconds) + " s after warm-up) ====");
+        System.out.printf("Throughput      %,.0f events/s (%,d events)%n", throughput, result.events);
+        if (options.rate > 0 && throughput < options.rate * 0.95) {
+            System.out.printf("                below the offered %,.0f events/s; backlog at end %,d%n",
+                    options.rate, result.backlog);
+        }
+        for (int i = 0; i < sources.size(); i++) {
+            System.out.printf("  %-13s %,.0f events/s%n", sources.get(i).name(),
+                    (result.perSource[i] - result.startPerSource[i]) / result.seconds);
+        }
+        System.out.printf("Latency         p50 %.2f ms  p90 %.2f ms  p99 %.2f ms  p99.9 %.2f ms  max %.2f ms%n",
+                latency.quantile(0.50) / 1e6, latency.quantile(0.90) / 1e6, latency.quantile(0.99) / 1e6,
+                latency.quantile(0.999) / 1e6, latency.maxNanos() / 1e6);
+        System.out.printf("Heap            peak %,.0f MB  live after GC %,.0f MB  max %,.0f MB%n",
+                result.peakHeap / MB, liveHeapMb, Runtime.getRuntime().maxMemory() / MB);
+        System.out.printf("GC              %d collections, %d ms (%.1f%% of wall time)%n",
+                result.gcCount, result.gcMillis, result.gcMillis / (result.seconds * 10));
+        System.out.printf("Database        %,d alerts, %,d snapshots%n",
+                database.count("alert_logs"), database.count("server_storage_snapshots"));
+        System.out.printf("Telegram stub   %,d requests%n", telegram.requests());
+
+        for (String line : pipeline.registry().scrape().split("\n")) {
+            if (line.startsWith("db_rows_") || line.startsWith("telegram_alerts_")
+                    || line.startsWith("alert_dedup_")) {
+                System.out.println("  " + line);
+            }
+        }
+    }
+
+    private long completed() {
+        long total = 0;
+        for (TrafficSource source : sources) {
+            total += source.completed();
+        }
+        return total;
+    }
+
+    private long[] completedPerSource() {
+        long[] completed = new long[sources.size()];
+        for (int i = 0; i < completed.length; i++) {
+            completed[i] = sources.get(i).completed();
+        }
+        return completed;
+    }
+
+    private long backlog() {
+        long total = 0;
+        for (TrafficSource source : sources) {
+            total += source.backlog();
+        }
+        return total;
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static final class Result {
+        long startCompleted;
+        long[] startPerSource;
+        long[] perSource;
+        long startNanos;
+        long events;
+        double seconds;
+        Histogram latency;
+        long peakHeap;
+        long gcCount;
+        long gcMillis;
+        long backlog;
+    }
+}
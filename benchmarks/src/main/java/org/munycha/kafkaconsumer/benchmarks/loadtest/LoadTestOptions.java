@@ -0,0 +1,93 @@
+package org.munycha.kafkaconsumer.benchmarks.loadtest;
+
+import org.munycha.kafkaconsumer.config.CommitStrategy;
+import org.munycha.kafkaconsumer.config.SinkType;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+
+/**
+ * Load test settings, given as {@code --name=value} arguments.
+ */
+class LoadTestOptions {
+
+    // Total offered events/sec over all topics; 0 = as fast as the consumers go
+    double rate = 0;
+    // Share of the traffic that is LOG records; the rest is METRIC snapshots
+    double logShare = 0.9;
+    // Share of LOG records that contain an alert keyword
+    double alertRatio = 0.01;
+
+    long warmupSeconds = 10;
+    long durationSeconds = 60;
+    long reportSeconds = 5;
+
+    // Consumers (partitions) per topic and per-topic consumer settings
+    int concurrency = 1;
+    int maxPollRecords = 500;
+    int lanes = 0;
+    long pollTimeoutMs = 1000;
+    CommitStrategy commit = CommitStrategy.SYNC;
+    SinkType sink = SinkType.FILE;
+    ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    // Database write-behind
+    int dbPoolSize = 4;
+    int dbBatchSize = 500;
+    long dbLingerMs = 200;
+
+    // Unconsumed records per partition before the generator holds back
+    int maxBacklog = 50_000;
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions o = new LoadTestOptions();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+
+            switch (name) {
+                case "rate": o.rate = Double.parseDouble(value); break;
+                case "logShare": o.logShare = Double.parseDouble(value); break;
+                case "alertRatio": o.alertRatio = Double.parseDouble(value); break;
+                case "warmup": o.warmupSeconds = Long.parseLong(value); break;
+                case "duration": o.durationSeconds = Long.parseLong(value); break;
+                case "report": o.reportSeconds = Long.parseLong(value); break;
+                case "concurrency": o.concurrency = Integer.parseInt(value); break;
+                case "maxPollRecords": o.maxPollRecords = Integer.parseInt(value); break;
+                case "lanes": o.lanes = Integer.parseInt(value); break;
+                case "pollTimeoutMs": o.pollTimeoutMs = Long.parseLong(value); break;
+                case "commit": o.commit = CommitStrategy.valueOf(value.toUpperCase()); break;
+                case "sink": o.sink = SinkType.valueOf(value.toUpperCase()); break;
+                case "threadMode": o.threadMode = ThreadMode.valueOf(value.toUpperCase()); break;
+                case "dbPoolSize": o.dbPoolSize = Integer.parseInt(value); break;
+                case "dbBatchSize": o.dbBatchSize = Integer.parseInt(value); break;
+                case "dbLingerMs": o.dbLingerMs = Long.parseLong(value); break;
+                case "maxBacklog": o.maxBacklog = Integer.parseInt(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+
+        if (o.logShare < 0 || o.logShare > 1) {
+            throw new IllegalArgumentException("--logShare must be between 0 and 1");
+        }
+        return o;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + (rate > 0 ? String.format("%.0f/s", rate) : "max")
+                + " logShare=" + logShare
+                + " alertRatio=" + alertRatio
+                + " concurrency=" + concurrency
+                + " commit=" + commit
+                + " sink=" + sink
+                + " threadMode=" + threadMode
+                + " maxPollRecords=" + maxPollRecords
+                + " lanes=" + lanes
+                + " db(pool=" + dbPoolSize + ", batch=" + dbBatchSize + ", linger=" + dbLingerMs + "ms)"
+                + " warmup=" + warmupSeconds + "s duration=" + durationSeconds + "s";
+    }
+}
@@ -0,0 +1,213 @@
+package org.munycha.kafkaconsumer.benchmarks.loadtest;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.munycha.kafkaconsumer.benchmarks.support.SyntheticRecords;
+import org.munycha.kafkaconsumer.config.TopicType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * A MockConsumer fed by a generator thread at a fixed rate, standing in for
+ * one partition of a broker.
+ * <p>
+ * End-to-end latency is the time from a record being appended to the
+ * partition until the TopicConsumer commits it. With AUTO commits, which
+ * never reach the mock, it runs until the consumer asks for the next batch,
+ * i.e. until the batch containing the record was fully handled. At most
+ * {@code maxBacklog} records wait unconsumed; beyond that the generator
+ * slows down, as a producer would on a full broker.
+ * <p>
+ * Unlike MockConsumer, poll() blocks for up to its timeout while there is
+ * nothing to return, so an idle consumer does not spin.
+ */
+class TrafficSource extends MockConsumer<String, byte[]> {
+
+    private static final int PAYLOADS = 4096;
+
+    private final String topic;
+    private final String name;
+    private final TopicPartition partition;
+    private final byte[][] payloads;
+    private final double ratePerSecond;
+    private final int maxBacklog;
+    private final LongConsumer latencySink;
+
+    // Append time per offset; the backlog bound keeps live offsets within the ring
+    private final long[] producedAt;
+    private final int mask;
+
+    // Guarded by this (MockConsumer's own monitor)
+    private long produced;
+    private long polledUpTo;
+    private boolean wakeupRequested;
+    private boolean commits;
+
+    private volatile long completed;
+    private volatile boolean running = true;
+    private final Thread generator;
+
+    TrafficSource(String topic,
+                  int instance,
+                  TopicType type,
+                  long seed,
+                  double alertRatio,
+                  double ratePerSecond,
+                  int maxBacklog,
+                  int maxPollRecords,
+                  LongConsumer latencySink) {
+        super(OffsetResetStrategy.EARLIEST);
+        this.topic = topic;
+        this.name = topic + "[" + instance + "]";
+        this.partition = new TopicPartition(topic, 0);
+        this.ratePerSecond = ratePerSecond;
+        this.maxBacklog = Math.max(1, maxBacklog);
+        this.latencySink = latencySink;
+
+        int ring = Integer.highestOneBit(this.maxBacklog) << 1;
+        this.producedAt = new long[ring];
+        this.mask = ring - 1;
+
+        SyntheticRecords records = new SyntheticRecords(seed, alertRatio);
+        Instant now = Instant.now();
+        this.payloads = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) {
+            payloads[i] = records.payload(type, now.plusMillis(i));
+        }
+
+        assign(Collections.singletonList(partition));
+        updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+        setMaxPollRecords(maxPollRecords);
+
+        this.generator = new Thread(this::generate, "traffic-" + topic + "-" + instance);
+        this.generator.setDaemon(true);
+    }
+
+    void start() {
+        generator.start();
+    }
+
+    private void generate() {
+        long start = System.nanoTime();
+        long sent = 0;
+
+        while (running) {
+            long due = ratePerSecond > 0
+                    ? (long) ((System.nanoTime() - start) * ratePerSecond / 1e9) - sent
+                    : Long.MAX_VALUE;
+            long room = maxBacklog - (sent - completed);
+            int n = (int) Math.min(Math.min(due, room), 1000);
+
+            if (n <= 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                continue;
+            }
+
+            synchronized (this) {
+                long now = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    long offset = produced++;
+                    producedAt[(int) (offset & mask)] = now;
+                    addRecord(new ConsumerRecord<>(topic, 0, offset, null,
+                            payloads[(int) (offset % PAYLOADS)]));
+                }
+                notifyAll();
+            }
+            sent += n;
+        }
+    }
+
+    @Override
+    public synchronized ConsumerRecords<String, byte[]> poll(Duration timeout) {
+        // The consumer is back for more: everything it polled before is done
+        if (!commits) {
+            completeUpTo(polledUpTo);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!wakeupRequested && (produced == polledUpTo || !paused().isEmpty())) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                break;
+            }
+            try {
+                wait(remainingMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        wakeupRequested = false;
+
+        ConsumerRecords<String, byte[]> records = super.poll(Duration.ZERO);
+        polledUpTo += records.count();
+        return records;
+    }
+
+    @Override
+    public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        super.commitSync(offsets);
+        committed(offsets);
+    }
+
+    @Override
+    public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                         OffsetCommitCallback callback) {
+        super.commitAsync(offsets, callback);
+        committed(offsets);
+    }
+
+    private void committed(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        OffsetAndMetadata offset = offsets.get(partition);
+        if (offset != null) {
+            commits = true;
+            completeUpTo(offset.offset());
+        }
+    }
+
+    private void completeUpTo(long offset) {
+        if (offset <= completed) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (long o = completed; o < offset; o++) {
+            latencySink.accept(now - producedAt[(int) (o & mask)]);
+        }
+        completed = offset;
+    }
+
+    @Override
+    public synchronized void wakeup() {
+        wakeupRequested = true;
+        super.wakeup();
+        notifyAll();
+    }
+
+    String name() {
+        return name;
+    }
+
+    long completed() {
+        return completed;
+    }
+
+    synchronized long backlog() {
+        return produced - polledUpTo;
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        generator.join();
+    }
+}
@@ -0,0 +1,70 @@
+package org.munycha.kafkaconsumer.benchmarks.support;
+
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.TableConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database with the same tables the app writes to in MySQL.
+ * <p>
+ * It stands in for the real database so DB batching is part of what is
+ * measured without network round trips dominating the numbers. The database
+ * lives until {@link #close()}.
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+
+    private static final String USER = "sa";
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final String url;
+    private final Connection keepAlive;
+
+    public EmbeddedDatabase() throws SQLException {
+        // Not MODE=MySQL: its identity handling hands out duplicate ids to concurrent batch inserts
+        this.url = "jdbc:h2:mem:bench" + COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        this.keepAlive = DriverManager.getConnection(url, USER, "");
+
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("CREATE TABLE alert_logs ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, topic VARCHAR(255), server_name VARCHAR(255), "
+                    + "file_path VARCHAR(1024), event_timestamp TIMESTAMP, message CLOB)");
+            stmt.execute("CREATE TABLE server_storage_snapshots ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, system_id VARCHAR(255), system_name VARCHAR(255), "
+                    + "server_ip VARCHAR(64), server_name VARCHAR(255), collected_at TIMESTAMP)");
+            stmt.execute("CREATE TABLE mount_path_storage_usages ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, server_storage_snapshot_id BIGINT, path VARCHAR(1024), "
+                    + "total_bytes BIGINT, used_bytes BIGINT, used_percent DOUBLE)");
+        }
+    }
+
+    public DatabaseConfig config() {
+        TableConfig tables = new TableConfig();
+        tables.setAlertLogTable("alert_logs");
+        tables.setServerStorageSnapshotTable("server_storage_snapshots");
+        tables.setMountPathStorageUsageTable("mount_path_storage_usages");
+        return new DatabaseConfig(url, USER, "", tables);
+    }
+
+    public long count(String table) throws SQLException {
+        try (Statement stmt = keepAlive.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.munycha.kafkaconsumer.benchmarks.support;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.munycha.kafkaconsumer.alert.AlertDeduplicator;
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.alert.StorageAlertEvaluator;
+import org.munycha.kafkaconsumer.config.AlertDedupConfig;
+import org.munycha.kafkaconsumer.config.ConsoleConfig;
+import org.munycha.kafkaconsumer.config.ConsoleMode;
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.DeadLetterConfig;
+import org.munycha.kafkaconsumer.config.DeadLetterTarget;
+import org.munycha.kafkaconsumer.config.OverflowPolicy;
+import org.munycha.kafkaconsumer.config.QueueConfig;
+import org.munycha.kafkaconsumer.config.StorageAlertConfig;
+import org.munycha.kafkaconsumer.config.TelegramConfig;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.consumer.TopicConsumer;
+import org.munycha.kafkaconsumer.db.AlertDB;
+import org.munycha.kafkaconsumer.db.ConnectionPool;
+import org.munycha.kafkaconsumer.db.MountPathStorageUsageDB;
+import org.munycha.kafkaconsumer.db.ServerStorageSnapshotDB;
+import org.munycha.kafkaconsumer.deadletter.DeadLetterQueue;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.sink.OutputSink;
+import org.munycha.kafkaconsumer.sink.OutputSinks;
+import org.munycha.kafkaconsumer.state.StorageStateIndex;
+import org.munycha.kafkaconsumer.telegram.TelegramNotifier;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
+import org.munycha.kafkaconsumer.utility.ThreadFactories;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Everything downstream of the Kafka consumer, wired the same way as
+ * AppMain but against H2 and the stub Telegram server.
+ * <p>
+ * {@link #consumer} creates TopicConsumers on top of a caller-supplied
+ * (mock) consumer; topics share one sink and one TopicMetrics, as in the app.
+ */
+public class Pipeline implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final IoExecutor dbIo;
+    private final AlertDB alertDB;
+    private final ServerStorageSnapshotDB snapshotDB;
+    private final TelegramNotifier notifier;
+    private final AlertDeduplicator deduplicator;
+    private final KeywordMatcher keywordMatcher;
+    private final ConsoleEcho console;
+    private final DeadLetterQueue deadLetters = new DeadLetterQueue(deadLettersOff(), null);
+    private final StorageStateIndex storageState = new StorageStateIndex(true);
+    private final StorageAlertEvaluator storageAlerts = new StorageAlertEvaluator(new StorageAlertConfig());
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final FileWatcher fileWatcher;
+    private final ScheduledExecutorService sinkScheduler;
+    private final ExecutorService sinkArchiver;
+    private final Map<String, OutputSink> outputs = new HashMap<>();
+    private final Map<String, TopicMetrics> topicMetrics = new HashMap<>();
+
+    public Pipeline(DatabaseConfig dbConfig, String telegramUrl, ThreadMode threadMode) throws IOException {
+        this(dbConfig, telegramUrl, threadMode, new AlertDedupConfig(), consoleOff());
+    }
+
+    public Pipeline(DatabaseConfig dbConfig,
+                    String telegramUrl,
+                    ThreadMode threadMode,
+                    AlertDedupConfig dedupConfig,
+                    ConsoleConfig consoleConfig) throws IOException {
+        ThreadMode mode = ThreadFactories.effective(threadMode);
+
+        this.keywordMatcher = new KeywordMatcher(SyntheticRecords.KEYWORDS, null);
+        this.pool = new ConnectionPool(dbConfig);
+        this.dbIo = new IoExecutor("db", dbConfig.getPoolSize(), mode);
+        this.alertDB = new AlertDB(dbConfig, pool, dbIo);
+        this.snapshotDB = new ServerStorageSnapshotDB(dbConfig, pool, dbIo, new MountPathStorageUsageDB(dbConfig));
+
+        TelegramConfig telegramConfig = new TelegramConfig();
+        telegramConfig.setApiUrl(telegramUrl);
+        // The stub has no rate limit; the default 1 msg/s would only measure coalescing
+        telegramConfig.setMessagesPerSecond(1000);
+        telegramConfig.setBurst(100);
+        this.notifier = new TelegramNotifier("bench-token", "1", telegramConfig,
+                new QueueConfig(10_000, OverflowPolicy.DROP_OLDEST), mode);
+
+        this.deduplicator = new AlertDeduplicator(dedupConfig, summary -> {
+            notifier.submit(summary.toAlertMessage());
+            alertDB.saveAlert(summary.getTopic(), summary.getLastEventTime(), summary.getServerName(),
+                    summary.getPath(), summary.toStoredMessage());
+        });
+        this.console = new ConsoleEcho(consoleConfig);
+
+        alertDB.registerMetrics(registry);
+        snapshotDB.registerMetrics(registry);
+        notifier.registerMetrics(registry);
+        deduplicator.registerMetrics(registry);
+        console.registerMetrics(registry);
+        storageState.registerMetrics(registry);
+        storageAlerts.registerMetrics(registry);
+
+        this.fileWatcher = new FileWatcher();
+        this.sinkScheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "sink-flusher"));
+        this.sinkArchiver = Executors.newSingleThreadExecutor(r -> daemon(r, "sink-archiver"));
+    }
+
+    // Synthetic traffic is always decodable
+    private static DeadLetterConfig deadLettersOff() {
+        DeadLetterConfig config = new DeadLetterConfig();
+        config.setTarget(DeadLetterTarget.NONE);
+        return config;
+    }
+
+    private static ConsoleConfig consoleOff() {
+        ConsoleConfig config = new ConsoleConfig();
+        config.setMode(ConsoleMode.OFF);
+        return config;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public TopicConsumer consumer(TopicConfig topicConfig, Consumer<String, byte[]> consumer, int instance) {
+        OutputSink output = outputs.computeIfAbsent(topicConfig.getTopic(),
+                t -> OutputSinks.create(topicConfig, fileWatcher, sinkScheduler, sinkArchiver));
+        TopicMetrics metrics = topicMetrics.computeIfAbsent(topicConfig.getTopic(), t -> {
+            TopicMetrics created = new TopicMetrics(t);
+            created.register(registry);
+            return created;
+        });
+
+        return new TopicConsumer(consumer, topicConfig, instance, output, notifier, keywordMatcher,
+                deduplicator, alertDB, snapshotDB, storageState, storageAlerts, metrics, console, deadLetters);
+    }
+
+    public MetricsRegistry registry() {
+        return registry;
+    }
+
+    public AlertDeduplicator deduplicator() {
+        return deduplicator;
+    }
+
+    @Override
+    public void close() throws Exception {
+        deduplicator.close();
+        notifier.close();
+        alertDB.close();
+        snapshotDB.close();
+        dbIo.close();
+        pool.close();
+
+        for (OutputSink output : outputs.values()) {
+            output.close();
+        }
+        sinkScheduler.shutdownNow();
+        sinkArchiver.shutdownNow();
+        fileWatcher.close();
+        console.close();
+        deadLetters.close();
+    }
+}
@@ -0,0 +1,115 @@
+package org.munycha.kafkaconsumer.benchmarks.support;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.munycha.kafkaconsumer.config.TopicType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates record payloads shaped like the ones the agents publish.
+ * <p>
+ * Output is deterministic for a given seed so runs are comparable. Log
+ * messages vary in length and content; a configurable share of them contains
+ * an alert keyword, the rest deliberately contain near misses ("errors were
+ * zero" does not, "terror" does not either for WORD rules).
+ */
+public final class SyntheticRecords {
+
+    // Same list as the shipped consumer_config.json
+    public static final List<String> KEYWORDS = List.of(
+            "error", "exception", "fail", "failed", "fatal", "panic", "critical", "timeout");
+
+    private static final String[] SERVERS = {"app-01", "app-02", "db-01", "batch-07", "edge-13"};
+    private static final String[] PATHS = {
+            "/var/log/app/server.log", "/var/log/nginx/access.log", "/opt/batch/logs/job.log", "/var/log/syslog"};
+    private static final String[] NORMAL = {
+            "GET /api/v1/orders/%d 200 in %d ms",
+            "User %d logged in from 10.0.%d.17",
+            "Scheduled job completed, processed %d items in %d ms",
+            "Cache refreshed: %d entries, hit ratio 0.%d",
+            "Connection pool stats: active=%d idle=%d",
+    };
+    private static final String[] ALERTS = {
+            "ERROR Payment gateway returned 502 for order %d after %d ms",
+            "java.lang.IllegalStateException: session %d expired (attempt %d)",
+            "Health check FAILED for upstream 10.0.%d.%d",
+            "Request %d aborted: read timeout after %d ms",
+    };
+
+    private final Random random;
+    private final double alertRatio;
+
+    public SyntheticRecords(long seed, double alertRatio) {
+        this.random = new Random(seed);
+        this.alertRatio = alertRatio;
+    }
+
+    public byte[] logEvent(Instant timestamp) {
+        boolean alert = random.nextDouble() < alertRatio;
+        String[] templates = alert ? ALERTS : NORMAL;
+        String message = String.format(templates[random.nextInt(templates.length)],
+                random.nextInt(100_000), random.nextInt(2_000));
+
+        String json = "{\"serverName\":\"" + SERVERS[random.nextInt(SERVERS.length)] + "\","
+                + "\"path\":\"" + PATHS[random.nextInt(PATHS.length)] + "\","
+                + "\"topic\":\"logs\","
+                + "\"timestamp\":\"" + timestamp + "\","
+                + "\"message\":\"" + message + "\"}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] snapshot(Instant timestamp) {
+        StringBuilder json = new StringBuilder(512);
+        String server = SERVERS[random.nextInt(SERVERS.length)];
+
+        json.append("{\"systemId\":\"sys-").append(server).append("\",")
+                .append("\"systemName\":\"Production\",")
+                .append("\"serverName\":\"").append(server).append("\",")
+                .append("\"serverIp\":\"10.0.0.").append(random.nextInt(250) + 1).append("\",")
+                .append("\"timestamp\":\"").append(timestamp).append("\",")
+                .append("\"mountPathStorageUsages\":[");
+
+        String[] mounts = {"/", "/var", "/data", "/opt"};
+        for (int i = 0; i < mounts.length; i++) {
+            long total = 500L * 1024 * 1024 * 1024;
+            long used = (long) (total * (0.2 + random.nextDouble() * 0.75));
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"path\":\"").append(mounts[i]).append("\",")
+                    .append("\"totalBytes\":").append(total).append(',')
+                    .append("\"usedBytes\":").append(used).append(',')
+                    .append("\"usedPercent\":").append(Math.round(used * 10000.0 / total) / 100.0)
+                    .append('}');
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public byte[] payload(TopicType type, Instant timestamp) {
+        return type == TopicType.METRIC ? snapshot(timestamp) : logEvent(timestamp);
+    }
+
+    /**
+     * One poll result of {@code size} records for partition 0 of {@code topic},
+     * starting at {@code firstOffset}. Event times advance 2 ms per record.
+     */
+    public ConsumerRecords<String, byte[]> batch(String topic, TopicType type, int size, long firstOffset) {
+        TopicPartition partition = new TopicPartition(topic, 0);
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>(size);
+        Instant start = Instant.now();
+
+        for (int i = 0; i < size; i++) {
+            records.add(new ConsumerRecord<>(topic, 0, firstOffset + i, null,
+                    payload(type, start.plusMillis(2L * i))));
+        }
+        return new ConsumerRecords<>(Collections.singletonMap(partition, records));
+    }
+}
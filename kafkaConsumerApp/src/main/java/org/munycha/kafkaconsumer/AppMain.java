@@ -1,16 +1,37 @@
 package org.munycha.kafkaconsumer;
 
+import org.munycha.kafkaconsumer.alert.AlertDeduplicator;
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.alert.StorageAlertEvaluator;
 import org.munycha.kafkaconsumer.config.AppConfig;
 import org.munycha.kafkaconsumer.config.ConfigLoader;
-import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.config.ConfigReloader;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+import org.munycha.kafkaconsumer.consumer.ConsumerSupervisor;
 import org.munycha.kafkaconsumer.consumer.TopicConsumer;
 import org.munycha.kafkaconsumer.db.AlertDB;
+import org.munycha.kafkaconsumer.db.ConnectionPool;
 import org.munycha.kafkaconsumer.db.MountPathStorageUsageDB;
 import org.munycha.kafkaconsumer.db.ServerStorageSnapshotDB;
+import org.munycha.kafkaconsumer.db.StorageRetention;
+import org.munycha.kafkaconsumer.db.StorageRollupDB;
+import org.munycha.kafkaconsumer.deadletter.DeadLetterQueue;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.metrics.MetricsServer;
+import org.munycha.kafkaconsumer.sink.OutputSinks;
+import org.munycha.kafkaconsumer.state.StorageStateApi;
+import org.munycha.kafkaconsumer.state.StorageStateIndex;
+import org.munycha.kafkaconsumer.telegram.TelegramNotifier;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
+import org.munycha.kafkaconsumer.utility.ThreadFactories;
 
-import java.nio.file.Path;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class AppMain {
 
@@ -20,38 +41,184 @@ public class AppMain {
         ConfigLoader loader = new ConfigLoader("config/consumer_config.json");
         AppConfig config = loader.load();
 
-        // Initialize alert database
-        AlertDB alertDatabase = new AlertDB(config.getDatabase());
+        // Compile all alert keywords/rules once; the matcher is shared by every consumer and swapped on reload
+        KeywordMatcher keywordMatcher = new KeywordMatcher(config.getAlertKeywords(), config.getAlertRules());
+
+        // Shared connection pool for all database writers
+        ConnectionPool connectionPool = new ConnectionPool(config.getDatabase());
 
-        //Initialize system storage snapshot database
-        ServerStorageSnapshotDB serverStorageUsageDB = new ServerStorageSnapshotDB(config.getDatabase());
+        // Blocking JDBC calls of all writers; never more in flight than the pool has connections
+        ThreadMode threadMode = ThreadFactories.effective(config.getThreadMode());
+        IoExecutor dbIo = new IoExecutor("db", config.getDatabase().getPoolSize(), threadMode);
+
+        // Initialize alert database
+        AlertDB alertDatabase = new AlertDB(config.getDatabase(), connectionPool, dbIo);
 
         //Initialize path storage database
         MountPathStorageUsageDB mountPathStorageUsageDB = new MountPathStorageUsageDB(config.getDatabase());
 
-        // Create a thread pool — one consumer thread per topic
-        ExecutorService executor = Executors.newFixedThreadPool(config.getTopics().size());
-
-        // Start one TopicConsumer per topic defined in config
-        for (TopicConfig t : config.getTopics()) {
-            executor.submit(new TopicConsumer(
-                    config.getBootstrapServers(),
-                    t.getTopic(),
-                    t.getType(),
-                    Path.of(t.getOutput()),
-                    config.getTelegramBotToken(),
-                    config.getTelegramChatId(),
-                    config.getAlertKeywords(),
-                    alertDatabase,
-                    serverStorageUsageDB,
-                    mountPathStorageUsageDB
-            ));
+        //Initialize system storage snapshot database (writes snapshots together with their paths)
+        // Optional 1-minute/1-hour rollups of the snapshots, written as buckets close
+        StorageRollupDB storageRollup = config.getDatabase().getRollup().isEnabled()
+                ? new StorageRollupDB(config.getDatabase(), connectionPool, dbIo)
+                : null;
+        ServerStorageSnapshotDB serverStorageUsageDB = new ServerStorageSnapshotDB(
+                config.getDatabase(), connectionPool, dbIo, mountPathStorageUsageDB, storageRollup);
+
+        // Deletes expired raw and rollup rows in small chunks
+        StorageRetention storageRetention = new StorageRetention(config.getDatabase(), connectionPool);
+
+        // Telegram alerts: queued, rate limited and coalesced; sent asynchronously on one HTTP client
+        TelegramNotifier notifier = new TelegramNotifier(
+                config.getTelegramBotToken(),
+                config.getTelegramChatId(),
+                config.getTelegram(),
+                config.getTelegramQueue(),
+                threadMode);
+
+        // Repeated alerts are suppressed and reported as one "N occurrences since" summary per interval
+        AlertDeduplicator alertDeduplicator = new AlertDeduplicator(config.getAlertDedup(), summary -> {
+            notifier.submit(summary.toAlertMessage());
+            alertDatabase.saveAlert(
+                    summary.getTopic(),
+                    summary.getLastEventTime(),
+                    summary.getServerName(),
+                    summary.getPath(),
+                    summary.toStoredMessage());
+        });
+
+        // Latest usage per mount, answered from memory instead of aggregating the snapshot tables
+        StorageStateIndex storageState = new StorageStateIndex(config.getStorageState().isEnabled());
+        StorageAlertEvaluator storageAlerts = new StorageAlertEvaluator(config.getStorageAlerts());
+
+        // Records that cannot be decoded are parked here in batches instead of stopping their consumer
+        DeadLetterQueue deadLetters = new DeadLetterQueue(config.getDeadLetter(), config.getBootstrapServers());
+
+        // Per-record console output: sampled/rate limited and written off the poll threads
+        ConsoleEcho console = new ConsoleEcho(config.getConsole());
+
+        // Metrics: every component registers its own counters/histograms, read at scrape time
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        alertDatabase.registerMetrics(metricsRegistry);
+        serverStorageUsageDB.registerMetrics(metricsRegistry);
+        if (storageRollup != null) {
+            storageRollup.registerMetrics(metricsRegistry);
+        }
+        storageRetention.registerMetrics(metricsRegistry);
+        notifier.registerMetrics(metricsRegistry);
+        alertDeduplicator.registerMetrics(metricsRegistry);
+        console.registerMetrics(metricsRegistry);
+        storageState.registerMetrics(metricsRegistry);
+        storageAlerts.registerMetrics(metricsRegistry);
+        deadLetters.registerMetrics(metricsRegistry);
+
+        MetricsServer metricsServer = null;
+        if (config.getMetrics().isEnabled()) {
+            try {
+                metricsServer = new MetricsServer(config.getMetrics(), metricsRegistry);
+                if (storageState.isEnabled()) {
+                    new StorageStateApi(storageState, config.getStorageState()).register(metricsServer);
+                }
+            } catch (IOException e) {
+                System.err.println("[Metrics] Cannot start HTTP endpoint on port "
+                        + config.getMetrics().getPort() + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println("Thread mode: " + threadMode);
+
+        // Output sinks: existence of output files is tracked by one watcher, timed flushes by one scheduler
+        FileWatcher fileWatcher = new FileWatcher();
+        ScheduledExecutorService sinkScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sink-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Compression and retention of rolled output segments (single thread: tasks never overlap)
+        ExecutorService sinkArchiver = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "sink-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // One thread per consumer, `concurrency` consumers per topic (virtual threads in VIRTUAL mode),
+        // one output sink per topic shared by all of the topic's consumers
+        ConsumerSupervisor supervisor = new ConsumerSupervisor(
+                (bootstrapServers, t, instance, output, topicMetrics) -> new TopicConsumer(
+                        bootstrapServers,
+                        t,
+                        instance,
+                        output,
+                        notifier,
+                        keywordMatcher,
+                        alertDeduplicator,
+                        alertDatabase,
+                        serverStorageUsageDB,
+                        storageState,
+                        storageAlerts,
+                        topicMetrics,
+                        console,
+                        deadLetters
+                ),
+                t -> OutputSinks.create(t, fileWatcher, sinkScheduler, sinkArchiver),
+                ThreadFactories.named("consumer", threadMode),
+                metricsRegistry);
+
+        // Start the TopicConsumers for every topic defined in config
+        supervisor.apply(config);
+
+        // Hot reload: alert settings are swapped in place, only changed topics are restarted.
+        // Database, Telegram, metrics and thread settings still need a restart.
+        ConfigReloader reloader = null;
+        if (config.getReload().isEnabled() && new File(loader.getFilePath()).exists()) {
+            reloader = new ConfigReloader(loader, config.getReload(), fileWatcher, reloaded -> {
+                // Compiled first: a bad regex rejects the whole reload before anything changed
+                keywordMatcher.update(reloaded.getAlertKeywords(), reloaded.getAlertRules());
+                alertDeduplicator.update(reloaded.getAlertDedup());
+                storageAlerts.update(reloaded.getStorageAlerts());
+                supervisor.apply(reloaded);
+            });
         }
 
 
+        MetricsServer metricsEndpoint = metricsServer;
+        ConfigReloader configReloader = reloader;
+
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down consumers...");
-            executor.shutdownNow();
+            if (configReloader != null) {
+                configReloader.close();
+            }
+
+            // Consumers commit what they finished and leave their groups; this also closes the output sinks
+            supervisor.close();
+
+            // Final summaries first, then give queued alerts a few seconds to go out
+            alertDeduplicator.close();
+            notifier.close();
+
+            deadLetters.close();
+
+            // Flush pending batched rows before the pool goes away
+            alertDatabase.close();
+            serverStorageUsageDB.close();
+            if (storageRollup != null) {
+                storageRollup.close();
+            }
+            storageRetention.close();
+            dbIo.close();
+            connectionPool.close();
+
+            sinkScheduler.shutdown();
+            sinkArchiver.shutdown();
+            fileWatcher.close();
+
+            console.close();
+
+            if (metricsEndpoint != null) {
+                metricsEndpoint.close();
+            }
         }));
     }
 }
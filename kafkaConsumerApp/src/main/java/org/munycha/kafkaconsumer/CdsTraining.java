@@ -0,0 +1,78 @@
+package org.munycha.kafkaconsumer;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.codec.RecordDecoder;
+import org.munycha.kafkaconsumer.codec.TimestampFormatter;
+import org.munycha.kafkaconsumer.config.AppConfig;
+import org.munycha.kafkaconsumer.config.ConfigLoader;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.config.TopicType;
+import org.munycha.kafkaconsumer.consumer.KafkaConsumerFactory;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.model.LogEvent;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+
+/**
+ * Training run for the AppCDS archive ({@code mvn -Pappcds package}).
+ * <p>
+ * Walks the startup path of {@link AppMain} and decodes a few sample records,
+ * so the classes of Jackson, kafka-clients, the MySQL driver and our own code
+ * end up in the archive; then exits. Nothing is written and no broker or
+ * database is needed: the consumer points at a local port and gives up after
+ * a short poll.
+ */
+public class CdsTraining {
+
+    private static final String SAMPLE_LOG = "{\"serverName\":\"web-01\",\"path\":\"/var/log/app.log\","
+            + "\"topic\":\"logs\",\"timestamp\":\"2026-01-01T00:00:00Z\","
+            + "\"message\":\"ERROR connection refused\"}";
+
+    private static final String SAMPLE_SNAPSHOT = "{\"systemId\":\"sys-web-01\",\"systemName\":\"Production\","
+            + "\"serverName\":\"web-01\",\"serverIp\":\"10.0.0.1\",\"timestamp\":\"2026-01-01T00:00:00Z\","
+            + "\"mountPathStorageUsages\":[{\"path\":\"/\",\"totalBytes\":1000,\"usedBytes\":500,"
+            + "\"usedPercent\":50.0}]}";
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+
+        // Same config binding as a real start
+        AppConfig config = new ConfigLoader(args.length > 0 ? args[0] : "config/consumer_config.json").load();
+        KeywordMatcher keywordMatcher = new KeywordMatcher(config.getAlertKeywords(), config.getAlertRules());
+
+        // Hot path: decode, match and format one record of each type
+        RecordDecoder decoder = new RecordDecoder();
+        TimestampFormatter timeFormatter = new TimestampFormatter();
+        LogEvent event = decoder.decodeLogEvent(SAMPLE_LOG.getBytes(StandardCharsets.UTF_8));
+        keywordMatcher.match(event.getMessage());
+        timeFormatter.format(Instant.now());
+        ServerStorageSnapshot snapshot = decoder.decodeSnapshot(SAMPLE_SNAPSHOT.getBytes(StandardCharsets.UTF_8));
+        snapshot.getMountPathStorageUsages().size();
+
+        // Consumer construction, subscribe and one poll load most of kafka-clients
+        TopicConfig topic = new TopicConfig("cds-training", TopicType.LOG, null);
+        try (KafkaConsumer<String, byte[]> consumer =
+                     new KafkaConsumerFactory("127.0.0.1:9092", topic).createConsumer(0)) {
+            consumer.subscribe(Collections.singletonList(topic.getTopic()));
+            consumer.poll(Duration.ofMillis(200));
+        }
+
+        // JDBC driver and Telegram HTTP client; no connection is opened
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        new TopicMetrics(topic.getTopic()).register(metricsRegistry);
+        metricsRegistry.scrape();
+
+        System.out.printf("[CdsTraining] Done in %d ms%n", Duration.ofNanos(System.nanoTime() - start).toMillis());
+        System.exit(0);
+    }
+}
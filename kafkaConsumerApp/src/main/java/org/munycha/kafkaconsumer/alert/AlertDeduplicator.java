@@ -0,0 +1,414 @@
+package org.munycha.kafkaconsumer.alert;
+
+import org.munycha.kafkaconsumer.codec.TimestampFormatter;
+import org.munycha.kafkaconsumer.config.AlertDedupConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.model.LogEvent;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Suppresses repeated alerts so a crash-looping service cannot flood
+ * Telegram and the alert table.
+ * <p>
+ * Alerts are fingerprinted by server name, file path and the message with
+ * UUIDs, hex values and numbers masked, so "pid 4711 died" and "pid 4712 died"
+ * count as the same alert. The first occurrence passes; repeats within
+ * {@code windowSeconds} are counted instead, and every
+ * {@code summaryIntervalSeconds} one "N occurrences since" summary per
+ * fingerprint is handed to the summary listener.
+ * <p>
+ * Fingerprints live in an LRU map capped at {@code maxEntries}; entries idle
+ * for longer than the window are swept. Settings can be changed at runtime
+ * with {@link #update}. Safe to share between consumers.
+ */
+public class AlertDeduplicator implements AutoCloseable {
+
+    private static final Pattern UUID = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern HEX = Pattern.compile("0[xX][0-9a-fA-F]+");
+
+    // Very long messages only need their start to tell them apart
+    private static final int MAX_FINGERPRINT_CHARS = 512;
+
+    private volatile boolean enabled;
+    private volatile long windowMs;
+    private int maxEntries;
+    private long intervalSeconds;
+    private final Consumer<Summary> summaryListener;
+    private final LinkedHashMap<String, Entry> entries;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> summaryTask;
+
+    // Summaries taken while holding the lock, delivered after it is released
+    private final List<Summary> pendingSummaries = new ArrayList<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder summaries = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AlertDeduplicator(AlertDedupConfig config, Consumer<Summary> summaryListener) {
+        this.enabled = config.isEnabled();
+        this.windowMs = TimeUnit.SECONDS.toMillis(Math.max(1, config.getWindowSeconds()));
+        this.summaryListener = summaryListener;
+        this.maxEntries = Math.max(1, config.getMaxEntries());
+
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                evictions.increment();
+                pendingSummaries.add(eldest.getValue().takeSummary());
+                return true;
+            }
+        };
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alert-dedup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.intervalSeconds = Math.max(1, config.getSummaryIntervalSeconds());
+        if (enabled) {
+            summaryTask = scheduler.scheduleWithFixedDelay(this::emitSummaries,
+                    intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Applies new settings without dropping the cached fingerprints. When
+     * dedup is switched off, what was held back is summarized right away.
+     */
+    public void update(AlertDedupConfig config) {
+        boolean nowEnabled = config.isEnabled();
+        long interval = Math.max(1, config.getSummaryIntervalSeconds());
+
+        synchronized (this) {
+            windowMs = TimeUnit.SECONDS.toMillis(Math.max(1, config.getWindowSeconds()));
+            maxEntries = Math.max(1, config.getMaxEntries());
+
+            if (nowEnabled != enabled || interval != intervalSeconds) {
+                if (summaryTask != null) {
+                    summaryTask.cancel(false);
+                    summaryTask = null;
+                }
+                if (nowEnabled) {
+                    summaryTask = scheduler.scheduleWithFixedDelay(this::emitSummaries,
+                            interval, interval, TimeUnit.SECONDS);
+                }
+            }
+            intervalSeconds = interval;
+
+            if (!nowEnabled) {
+                for (Entry entry : entries.values()) {
+                    pendingSummaries.add(entry.takeSummary());
+                }
+                entries.clear();
+            }
+            enabled = nowEnabled;
+
+            // Shrink right away if the cap went down
+            Iterator<Entry> it = entries.values().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                evictions.increment();
+                pendingSummaries.add(it.next().takeSummary());
+                it.remove();
+            }
+        }
+
+        deliverPending();
+    }
+
+    /**
+     * Returns true if the alert should be sent and stored, false if it is a
+     * repeat that was counted for the next summary.
+     */
+    public boolean shouldAlert(LogEvent event) {
+        if (!enabled) {
+            return true;
+        }
+
+        String key = fingerprint(event.getServerName(), event.getPath(), event.getMessage());
+        long now = System.currentTimeMillis();
+        boolean pass;
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                misses.increment();
+                entries.put(key, new Entry(event, now));
+                pass = true;
+            } else {
+                hits.increment();
+
+                if (now - entry.windowStart < windowMs) {
+                    suppressed.increment();
+                    entry.suppress(event, now);
+                    pass = false;
+                } else {
+                    // Window over: report what was held back and start a new one with this alert
+                    pendingSummaries.add(entry.takeSummary());
+                    entry.restart(now);
+                    pass = true;
+                }
+            }
+        }
+
+        deliverPending();
+        return pass;
+    }
+
+    static String fingerprint(String serverName, String path, String message) {
+        String masked = message == null ? "" : message;
+        if (masked.length() > MAX_FINGERPRINT_CHARS) {
+            masked = masked.substring(0, MAX_FINGERPRINT_CHARS);
+        }
+        masked = UUID.matcher(masked).replaceAll("<uuid>");
+        masked = HEX.matcher(masked).replaceAll("<hex>");
+
+        StringBuilder key = new StringBuilder(masked.length() + 64)
+                .append(serverName).append('\u0000')
+                .append(path).append('\u0000');
+
+        // Collapse each run of digits into one '#'
+        boolean inDigits = false;
+        for (int i = 0; i < masked.length(); i++) {
+            char c = masked.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inDigits) {
+                    key.append('#');
+                    inDigits = true;
+                }
+            } else {
+                key.append(c);
+                inDigits = false;
+            }
+        }
+        return key.toString();
+    }
+
+    private void emitSummaries() {
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.suppressedCount > 0) {
+                    pendingSummaries.add(entry.takeSummary());
+                }
+                // Idle longer than the window: the next occurrence would pass anyway
+                if (now - entry.lastSeen >= windowMs) {
+                    it.remove();
+                }
+            }
+        }
+
+        deliverPending();
+    }
+
+    private void deliverPending() {
+        List<Summary> ready;
+        synchronized (this) {
+            if (pendingSummaries.isEmpty()) {
+                return;
+            }
+            ready = new ArrayList<>(pendingSummaries);
+            pendingSummaries.clear();
+        }
+
+        for (Summary summary : ready) {
+            if (summary == null) {
+                continue;
+            }
+            summaries.increment();
+            try {
+                summaryListener.accept(summary);
+            } catch (RuntimeException e) {
+                System.err.println("[AlertDeduplicator] Summary failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.counter("alert_dedup_hits_total", "Alerts whose fingerprint was already cached", hits::sum);
+        registry.counter("alert_dedup_misses_total", "Alerts with a new fingerprint", misses::sum);
+        registry.counter("alert_dedup_suppressed_total", "Repeated alerts held back for a summary", suppressed::sum);
+        registry.counter("alert_dedup_summaries_total", "Occurrence summaries sent", summaries::sum);
+        registry.gauge("alert_dedup_entries", "Fingerprints currently cached", this::size);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long suppressedCount() {
+        return suppressed.sum();
+    }
+
+    public long summaryCount() {
+        return summaries.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        // Don't lose the counts of alerts held back since the last summary
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                pendingSummaries.add(entry.takeSummary());
+            }
+            entries.clear();
+        }
+        deliverPending();
+
+        System.out.printf("[AlertDeduplicator] hits=%d misses=%d suppressed=%d summaries=%d%n",
+                hitCount(), missCount(), suppressedCount(), summaryCount());
+    }
+
+    private static final class Entry {
+        private final String topic;
+        private final String serverName;
+        private final String path;
+
+        private long windowStart;
+        private long lastSeen;
+
+        // Suppressed since the last summary
+        private long suppressedCount;
+        private long suppressedSince;
+        private String lastMessage;
+        private Instant lastEventTime;
+
+        private Entry(LogEvent event, long now) {
+            this.topic = event.getTopic();
+            this.serverName = event.getServerName();
+            this.path = event.getPath();
+            restart(now);
+        }
+
+        private void restart(long now) {
+            windowStart = now;
+            lastSeen = now;
+        }
+
+        private void suppress(LogEvent event, long now) {
+            if (suppressedCount == 0) {
+                suppressedSince = now;
+            }
+            suppressedCount++;
+            lastSeen = now;
+            lastMessage = event.getMessage();
+            lastEventTime = event.getInstant();
+        }
+
+        // Null when nothing was suppressed
+        private Summary takeSummary() {
+            if (suppressedCount == 0) {
+                return null;
+            }
+            Summary summary = new Summary(topic, serverName, path, lastMessage,
+                    suppressedCount, Instant.ofEpochMilli(suppressedSince), lastEventTime);
+            suppressedCount = 0;
+            return summary;
+        }
+    }
+
+    /**
+     * Alerts held back for one fingerprint since the previous summary.
+     */
+    public static final class Summary {
+        private final String topic;
+        private final String serverName;
+        private final String path;
+        private final String lastMessage;
+        private final long count;
+        private final Instant since;
+        private final Instant lastEventTime;
+
+        private Summary(String topic, String serverName, String path, String lastMessage,
+                        long count, Instant since, Instant lastEventTime) {
+            this.topic = topic;
+            this.serverName = serverName;
+            this.path = path;
+            this.lastMessage = lastMessage;
+            this.count = count;
+            this.since = since;
+            this.lastEventTime = lastEventTime;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getLastMessage() {
+            return lastMessage;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Instant getSince() {
+            return since;
+        }
+
+        public Instant getLastEventTime() {
+            return lastEventTime;
+        }
+
+        // Message column of the alert row written for the summary
+        public String toStoredMessage() {
+            return "[" + count + " occurrences since " + since + "] " + lastMessage;
+        }
+
+        public String toAlertMessage() {
+            TimestampFormatter formatter = new TimestampFormatter();
+            return "ALERT (repeated)\n" +
+                    " Occurrences: " + count + " since " + formatter.format(since) + "\n" +
+                    " Host: " + serverName + "\n" +
+                    " File: " + path + "\n" +
+                    " Topic: " + topic + "\n" +
+                    " Last message: " + lastMessage;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.munycha.kafkaconsumer.alert;
+
+import org.munycha.kafkaconsumer.config.AlertMatchMode;
+import org.munycha.kafkaconsumer.config.AlertRule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Pattern;
+
+/**
+ * Matches log messages against all alert keywords in a single pass.
+ * <p>
+ * Plain keywords and WORD rules are compiled into one Aho-Corasick automaton
+ * at startup. ASCII letters are case-folded while scanning, so no lower-cased
+ * copy of the message is made. REGEX rules, if any, are checked afterwards.
+ * The compiled automaton is immutable; {@link #update} builds a new one
+ * and swaps it in, so a config reload changes the keywords of every
+ * consumer sharing the matcher without stopping them. Safe to share between
+ * consumer threads.
+ */
+public class KeywordMatcher {
+
+    private volatile Automaton automaton;
+
+    public KeywordMatcher(List<String> alertKeywords, List<AlertRule> alertRules) {
+        this.automaton = new Automaton(alertKeywords, alertRules);
+    }
+
+    /**
+     * Compiles the new keywords/rules and swaps them in. Records being
+     * matched right now finish against the old set. An invalid regex throws
+     * before anything is swapped.
+     */
+    public void update(List<String> alertKeywords, List<AlertRule> alertRules) {
+        this.automaton = new Automaton(alertKeywords, alertRules);
+    }
+
+    /**
+     * Returns the configured keywords (or regex sources) found in the message,
+     * in order of first occurrence, or an empty list when nothing matches.
+     */
+    public List<String> match(CharSequence text) {
+        return automaton.match(text);
+    }
+
+    public boolean matches(CharSequence text) {
+        return !match(text).isEmpty();
+    }
+
+    public int size() {
+        return automaton.size();
+    }
+
+    private static final class Automaton {
+
+        private static final int ASCII = 128;
+
+        // Pattern text and whether it must match on word boundaries, indexed by pattern id
+        private final String[] keywords;
+        private final int[] keywordLengths;
+        private final boolean[] wholeWord;
+
+        // Full DFA for ASCII input: next state = asciiNext[state * ASCII + c]
+        private final int[] asciiNext;
+
+        // Trie edges for non-ASCII characters, keyed by (state << 32 | char), plus failure links
+        private final Map<Long, Integer> otherNext;
+        private final int[] fail;
+
+        // Pattern ids ending in each state, including those reached through failure links
+        private final int[][] outputs;
+
+        private final List<Pattern> regexes = new ArrayList<>();
+        private final List<String> regexSources = new ArrayList<>();
+
+        private Automaton(List<String> alertKeywords, List<AlertRule> alertRules) {
+
+            // Lower-cased pattern -> whole-word flag; SUBSTRING wins if both are configured
+            Map<String, Boolean> literals = new LinkedHashMap<>();
+
+            if (alertKeywords != null) {
+                for (String keyword : alertKeywords) {
+                    addLiteral(literals, keyword, false);
+                }
+            }
+
+            if (alertRules != null) {
+                for (AlertRule rule : alertRules) {
+                    if (rule.getMode() == AlertMatchMode.REGEX) {
+                        regexes.add(Pattern.compile(rule.getPattern(),
+                                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+                        regexSources.add(rule.getPattern());
+                    } else {
+                        addLiteral(literals, rule.getPattern(), rule.getMode() == AlertMatchMode.WORD);
+                    }
+                }
+            }
+
+            int patternCount = literals.size();
+            this.keywords = new String[patternCount];
+            this.keywordLengths = new int[patternCount];
+            this.wholeWord = new boolean[patternCount];
+
+            // ---- Build the trie ----
+            List<int[]> asciiChildren = new ArrayList<>();
+            List<List<Integer>> ownOutputs = new ArrayList<>();
+            this.otherNext = new HashMap<>();
+
+            asciiChildren.add(newAsciiRow());
+            ownOutputs.add(new ArrayList<>());
+
+            int id = 0;
+            for (Map.Entry<String, Boolean> literal : literals.entrySet()) {
+                String keyword = literal.getKey();
+                keywords[id] = keyword;
+                keywordLengths[id] = keyword.length();
+                wholeWord[id] = literal.getValue();
+
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = keyword.charAt(i);
+                    int next = c < ASCII ? asciiChildren.get(state)[c] : otherNext.getOrDefault(key(state, c), -1);
+
+                    if (next < 0) {
+                        next = asciiChildren.size();
+                        asciiChildren.add(newAsciiRow());
+                        ownOutputs.add(new ArrayList<>());
+
+                        if (c < ASCII) {
+                            asciiChildren.get(state)[c] = next;
+                        } else {
+                            otherNext.put(key(state, c), next);
+                        }
+                    }
+                    state = next;
+                }
+
+                ownOutputs.get(state).add(id);
+                id++;
+            }
+
+            // ---- Failure links and ASCII DFA, breadth-first ----
+            int stateCount = asciiChildren.size();
+            this.asciiNext = new int[stateCount * ASCII];
+            this.fail = new int[stateCount];
+            this.outputs = new int[stateCount][];
+
+            int[] depthOrder = new int[stateCount];
+            int ordered = 0;
+
+            Queue<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+
+            // Non-ASCII children per state, so the BFS can reach them
+            Map<Integer, List<long[]>> otherChildren = new HashMap<>();
+            for (Map.Entry<Long, Integer> edge : otherNext.entrySet()) {
+                int from = (int) (edge.getKey() >>> 32);
+                char c = (char) (edge.getKey() & 0xFFFF);
+                otherChildren.computeIfAbsent(from, k -> new ArrayList<>()).add(new long[]{c, edge.getValue()});
+            }
+
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                depthOrder[ordered++] = state;
+                int[] children = asciiChildren.get(state);
+
+                for (int c = 0; c < ASCII; c++) {
+                    int child = children[c];
+                    if (child >= 0) {
+                        fail[child] = state == 0 ? 0 : asciiNext[fail[state] * ASCII + c];
+                        asciiNext[state * ASCII + c] = child;
+                        queue.add(child);
+                    } else {
+                        asciiNext[state * ASCII + c] = state == 0 ? 0 : asciiNext[fail[state] * ASCII + c];
+                    }
+                }
+
+                for (long[] edge : otherChildren.getOrDefault(state, Collections.emptyList())) {
+                    int child = (int) edge[1];
+                    fail[child] = state == 0 ? 0 : followOther(fail[state], (char) edge[0]);
+                    queue.add(child);
+                }
+            }
+
+            // Merge outputs along failure links (parents are complete before children in BFS order)
+            for (int i = 0; i < ordered; i++) {
+                int state = depthOrder[i];
+                List<Integer> merged = new ArrayList<>(ownOutputs.get(state));
+                if (state != 0) {
+                    for (int inherited : outputs[fail[state]]) {
+                        merged.add(inherited);
+                    }
+                }
+                outputs[state] = merged.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private static void addLiteral(Map<String, Boolean> literals, String pattern, boolean word) {
+            if (pattern == null || pattern.isEmpty()) {
+                return;
+            }
+            String lower = foldCase(pattern);
+            literals.merge(lower, word, (existing, added) -> existing && added);
+        }
+
+        private static String foldCase(String s) {
+            StringBuilder sb = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                sb.append(fold(s.charAt(i)));
+            }
+            return sb.toString();
+        }
+
+        private static char fold(char c) {
+            if (c < ASCII) {
+                return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+            }
+            return Character.toLowerCase(c);
+        }
+
+        private static int[] newAsciiRow() {
+            int[] row = new int[ASCII];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        private static long key(int state, char c) {
+            return ((long) state << 32) | c;
+        }
+
+        private int followOther(int state, char c) {
+            while (true) {
+                Integer next = otherNext.get(key(state, c));
+                if (next != null) {
+                    return next;
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = fail[state];
+            }
+        }
+
+        private List<String> match(CharSequence text) {
+            if (text == null) {
+                return Collections.emptyList();
+            }
+
+            List<String> matched = null;
+            int state = 0;
+            int length = text.length();
+
+            for (int i = 0; i < length; i++) {
+                char c = fold(text.charAt(i));
+                state = c < ASCII ? asciiNext[state * ASCII + c] : followOther(state, c);
+
+                int[] hits = outputs[state];
+                for (int h = 0; h < hits.length; h++) {
+                    int id = hits[h];
+
+                    if (wholeWord[id] && !onWordBoundaries(text, i - keywordLengths[id] + 1, i)) {
+                        continue;
+                    }
+                    if (matched == null) {
+                        matched = new ArrayList<>(2);
+                    }
+                    if (!matched.contains(keywords[id])) {
+                        matched.add(keywords[id]);
+                    }
+                }
+            }
+
+            for (int r = 0; r < regexes.size(); r++) {
+                if (regexes.get(r).matcher(text).find()) {
+                    if (matched == null) {
+                        matched = new ArrayList<>(2);
+                    }
+                    matched.add(regexSources.get(r));
+                }
+            }
+
+            return matched == null ? Collections.emptyList() : matched;
+        }
+
+        private static boolean onWordBoundaries(CharSequence text, int start, int end) {
+            return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                    && (end == text.length() - 1 || !isWordChar(text.charAt(end + 1)));
+        }
+
+        private static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        private int size() {
+            return keywords.length + regexes.size();
+        }
+    }
+}
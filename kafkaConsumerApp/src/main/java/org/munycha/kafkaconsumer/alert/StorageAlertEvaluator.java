@@ -0,0 +1,423 @@
+package org.munycha.kafkaconsumer.alert;
+
+import org.munycha.kafkaconsumer.codec.TimestampFormatter;
+import org.munycha.kafkaconsumer.config.StorageAlertConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Threshold and growth-rate alerts on mount storage usage, computed as the
+ * snapshots stream in.
+ * <p>
+ * Every mount has a level (OK, WARNING, CRITICAL). A level is raised as soon
+ * as usedPercent reaches its threshold and only lowered once usage drops
+ * {@code hysteresisPercent} below it, so a mount hovering around a threshold
+ * alerts once. Returning to OK sends a RECOVERED alert.
+ * <p>
+ * The growth rate is a least-squares fit over the last {@code windowSamples}
+ * samples of the mount, kept as running sums next to a ring buffer so each
+ * sample costs O(1) and no allocation. When the fit projects the mount to be
+ * full within {@code fullWithinHours}, one FILLING_UP alert is sent; it is
+ * re-armed once the projection moves past 1.5x that horizon.
+ * <p>
+ * State is in memory only: after a restart, mounts that are still above a
+ * threshold alert once more. Thresholds and the horizon can be changed at
+ * runtime with {@link #update}; the window size is fixed at construction.
+ * Safe to share between consumers.
+ */
+public class StorageAlertEvaluator {
+
+    private static final byte OK = 0;
+    private static final byte WARNING = 1;
+    private static final byte CRITICAL = 2;
+
+    // Written by update() under the lock; enabled is also read before taking it
+    private volatile boolean enabled;
+    private double warnPercent;
+    private double criticalPercent;
+    private double hysteresisPercent;
+    private final int window;
+    private int minSamples;
+    private double horizonSeconds;
+
+    // Hosts by systemId + NUL + serverName; each maps its paths to slots
+    private final Map<String, Map<String, Integer>> hosts = new HashMap<>();
+
+    // Per-mount state, struct-of-arrays; ring buffers are flattened to slot * window
+    private int mounts = 0;
+    private byte[] level = new byte[64];
+    private boolean[] fillingUp = new boolean[64];
+    private long[] lastSampleAt = new long[64];
+    private int[] head = new int[64];
+    private int[] count = new int[64];
+    private long[] ringTime;
+    private long[] ringUsed;
+
+    // Regression sums over the ring; t in seconds since baseTime, y in bytes above baseUsed
+    private long[] baseTime = new long[64];
+    private long[] baseUsed = new long[64];
+    private double[] sumT = new double[64];
+    private double[] sumY = new double[64];
+    private double[] sumTT = new double[64];
+    private double[] sumTY = new double[64];
+
+    private final LongAdder warnings = new LongAdder();
+    private final LongAdder criticals = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+    private final LongAdder forecasts = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+
+    public StorageAlertEvaluator(StorageAlertConfig config) {
+        this.enabled = config.isEnabled();
+        this.warnPercent = config.getWarnPercent();
+        this.criticalPercent = config.getCriticalPercent();
+        this.hysteresisPercent = Math.max(0, config.getHysteresisPercent());
+        this.window = Math.max(2, config.getWindowSamples());
+        this.minSamples = Math.max(2, Math.min(window, config.getMinSamples()));
+        this.horizonSeconds = config.getFullWithinHours() * 3600.0;
+        this.ringTime = new long[64 * window];
+        this.ringUsed = new long[64 * window];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Applies new thresholds; mounts keep their level and samples. A changed
+     * {@code windowSamples} only takes effect after a restart.
+     */
+    public synchronized void update(StorageAlertConfig config) {
+        if (Math.max(2, config.getWindowSamples()) != window) {
+            System.err.println("[StorageAlerts] windowSamples change from " + window + " to "
+                    + config.getWindowSamples() + " needs a restart");
+        }
+        this.warnPercent = config.getWarnPercent();
+        this.criticalPercent = config.getCriticalPercent();
+        this.hysteresisPercent = Math.max(0, config.getHysteresisPercent());
+        this.minSamples = Math.max(2, Math.min(window, config.getMinSamples()));
+        this.horizonSeconds = config.getFullWithinHours() * 3600.0;
+        this.enabled = config.isEnabled();
+    }
+
+    /**
+     * Feeds one snapshot through the evaluator and returns the alerts it
+     * raised; usually an empty list.
+     */
+    public List<StorageAlert> evaluate(ServerStorageSnapshot snapshot) {
+        if (!enabled || snapshot == null || snapshot.getMountPathStorageUsages() == null) {
+            return Collections.emptyList();
+        }
+
+        long collected = snapshot.getCollectedMillis();
+        String hostKey = snapshot.getSystemId() + '\0' + snapshot.getServerName();
+        List<StorageAlert> alerts = null;
+
+        synchronized (this) {
+            Map<String, Integer> slots = hosts.computeIfAbsent(hostKey, k -> new HashMap<>());
+
+            for (MountPathStorageUsage usage : snapshot.getMountPathStorageUsages()) {
+                Integer known = slots.get(usage.getPath());
+                int slot;
+                if (known == null) {
+                    slot = addMount();
+                    slots.put(usage.getPath(), slot);
+                } else {
+                    slot = known;
+                }
+
+                // Replays and late records would bend the fit backwards
+                if (count[slot] > 0 && collected <= lastSampleAt[slot]) {
+                    continue;
+                }
+                lastSampleAt[slot] = collected;
+                samples.increment();
+                addSample(slot, collected, usage.getUsedBytes());
+
+                StorageAlert.Kind kind = checkLevel(slot, usage.getUsedPercent());
+                if (kind != null) {
+                    alerts = add(alerts, new StorageAlert(kind, snapshot, usage, collected, Double.NaN));
+                }
+
+                double hoursToFull = checkForecast(slot, usage);
+                if (!Double.isNaN(hoursToFull)) {
+                    alerts = add(alerts,
+                            new StorageAlert(StorageAlert.Kind.FILLING_UP, snapshot, usage, collected, hoursToFull));
+                }
+            }
+        }
+
+        return alerts == null ? Collections.emptyList() : alerts;
+    }
+
+    private static List<StorageAlert> add(List<StorageAlert> alerts, StorageAlert alert) {
+        if (alerts == null) {
+            alerts = new ArrayList<>(2);
+        }
+        alerts.add(alert);
+        return alerts;
+    }
+
+    // Returns the alert to send for a level change, or null
+    private StorageAlert.Kind checkLevel(int slot, double percent) {
+        byte current = level[slot];
+        byte target = percent >= criticalPercent ? CRITICAL : percent >= warnPercent ? WARNING : OK;
+
+        if (target > current) {
+            level[slot] = target;
+            if (target == CRITICAL) {
+                criticals.increment();
+                return StorageAlert.Kind.CRITICAL;
+            }
+            warnings.increment();
+            return StorageAlert.Kind.WARNING;
+        }
+
+        if (target < current) {
+            // Step down only past the hysteresis band of each level being left
+            byte lowered = current;
+            while (lowered > target && percent < threshold(lowered) - hysteresisPercent) {
+                lowered--;
+            }
+            level[slot] = lowered;
+            if (lowered == OK) {
+                recoveries.increment();
+                return StorageAlert.Kind.RECOVERED;
+            }
+        }
+        return null;
+    }
+
+    private double threshold(byte level) {
+        return level == CRITICAL ? criticalPercent : warnPercent;
+    }
+
+    // Returns hours until full when a FILLING_UP alert is due, NaN otherwise
+    private double checkForecast(int slot, MountPathStorageUsage usage) {
+        int n = count[slot];
+        if (n < minSamples || horizonSeconds <= 0) {
+            return Double.NaN;
+        }
+
+        double denominator = n * sumTT[slot] - sumT[slot] * sumT[slot];
+        double slope = denominator == 0 ? 0 : (n * sumTY[slot] - sumT[slot] * sumY[slot]) / denominator;
+        double free = usage.getTotalBytes() - usage.getUsedBytes();
+        double secondsToFull = slope > 0 ? Math.max(0, free) / slope : Double.POSITIVE_INFINITY;
+
+        if (!fillingUp[slot] && secondsToFull <= horizonSeconds) {
+            fillingUp[slot] = true;
+            forecasts.increment();
+            return secondsToFull / 3600.0;
+        }
+        if (fillingUp[slot] && secondsToFull > horizonSeconds * 1.5) {
+            fillingUp[slot] = false;
+        }
+        return Double.NaN;
+    }
+
+    private void addSample(int slot, long time, long used) {
+        int base = slot * window;
+        int index = base + head[slot];
+
+        if (count[slot] == 0) {
+            baseTime[slot] = time;
+            baseUsed[slot] = used;
+        }
+
+        if (count[slot] == window) {
+            // Drop the sample being overwritten from the sums
+            double t = (ringTime[index] - baseTime[slot]) / 1000.0;
+            double y = ringUsed[index] - baseUsed[slot];
+            sumT[slot] -= t;
+            sumY[slot] -= y;
+            sumTT[slot] -= t * t;
+            sumTY[slot] -= t * y;
+        } else {
+            count[slot]++;
+        }
+
+        ringTime[index] = time;
+        ringUsed[index] = used;
+        double t = (time - baseTime[slot]) / 1000.0;
+        double y = used - baseUsed[slot];
+        sumT[slot] += t;
+        sumY[slot] += y;
+        sumTT[slot] += t * t;
+        sumTY[slot] += t * y;
+
+        head[slot] = (head[slot] + 1) % window;
+        if (head[slot] == 0) {
+            rebase(slot);
+        }
+    }
+
+    // Once per lap: recompute the sums from the ring around its oldest sample so
+    // rounding errors cannot pile up and t stays small
+    private void rebase(int slot) {
+        int base = slot * window;
+        int n = count[slot];
+        int oldest = n == window ? head[slot] : 0;
+
+        baseTime[slot] = ringTime[base + oldest];
+        baseUsed[slot] = ringUsed[base + oldest];
+        double st = 0, sy = 0, stt = 0, sty = 0;
+        for (int i = 0; i < n; i++) {
+            int index = base + (oldest + i) % window;
+            double t = (ringTime[index] - baseTime[slot]) / 1000.0;
+            double y = ringUsed[index] - baseUsed[slot];
+            st += t;
+            sy += y;
+            stt += t * t;
+            sty += t * y;
+        }
+        sumT[slot] = st;
+        sumY[slot] = sy;
+        sumTT[slot] = stt;
+        sumTY[slot] = sty;
+    }
+
+    private int addMount() {
+        if (mounts == level.length) {
+            int capacity = mounts * 2;
+            level = Arrays.copyOf(level, capacity);
+            fillingUp = Arrays.copyOf(fillingUp, capacity);
+            lastSampleAt = Arrays.copyOf(lastSampleAt, capacity);
+            head = Arrays.copyOf(head, capacity);
+            count = Arrays.copyOf(count, capacity);
+            ringTime = Arrays.copyOf(ringTime, capacity * window);
+            ringUsed = Arrays.copyOf(ringUsed, capacity * window);
+            baseTime = Arrays.copyOf(baseTime, capacity);
+            baseUsed = Arrays.copyOf(baseUsed, capacity);
+            sumT = Arrays.copyOf(sumT, capacity);
+            sumY = Arrays.copyOf(sumY, capacity);
+            sumTT = Arrays.copyOf(sumTT, capacity);
+            sumTY = Arrays.copyOf(sumTY, capacity);
+        }
+        return mounts++;
+    }
+
+    public synchronized int mountCount() {
+        return mounts;
+    }
+
+    public synchronized int alertingCount() {
+        int alerting = 0;
+        for (int slot = 0; slot < mounts; slot++) {
+            if (level[slot] != OK || fillingUp[slot]) {
+                alerting++;
+            }
+        }
+        return alerting;
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        String help = "Storage alerts raised";
+        registry.counter("storage_alerts_total", help, warnings::sum, "kind", "warning");
+        registry.counter("storage_alerts_total", help, criticals::sum, "kind", "critical");
+        registry.counter("storage_alerts_total", help, recoveries::sum, "kind", "recovered");
+        registry.counter("storage_alerts_total", help, forecasts::sum, "kind", "filling_up");
+        registry.counter("storage_alert_samples_total", "Mount samples evaluated", samples::sum);
+        registry.gauge("storage_alert_mounts", "Mounts tracked by the storage alert evaluator", this::mountCount);
+        registry.gauge("storage_alert_active", "Mounts above a threshold or projected to fill up", this::alertingCount);
+    }
+
+    /**
+     * One storage alert for a mount.
+     */
+    public static final class StorageAlert {
+
+        public enum Kind {
+            WARNING,
+            CRITICAL,
+            RECOVERED,
+            FILLING_UP
+        }
+
+        private final Kind kind;
+        private final String systemName;
+        private final String serverName;
+        private final String serverIp;
+        private final String path;
+        private final long totalBytes;
+        private final long usedBytes;
+        private final double usedPercent;
+        private final Instant collectedAt;
+        private final double hoursToFull;
+
+        private StorageAlert(Kind kind, ServerStorageSnapshot snapshot, MountPathStorageUsage usage,
+                             long collectedAt, double hoursToFull) {
+            this.kind = kind;
+            this.systemName = snapshot.getSystemName();
+            this.serverName = snapshot.getServerName();
+            this.serverIp = snapshot.getServerIp();
+            this.path = usage.getPath();
+            this.totalBytes = usage.getTotalBytes();
+            this.usedBytes = usage.getUsedBytes();
+            this.usedPercent = usage.getUsedPercent();
+            this.collectedAt = Instant.ofEpochMilli(collectedAt);
+            this.hoursToFull = hoursToFull;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public double getUsedPercent() {
+            return usedPercent;
+        }
+
+        public Instant getCollectedAt() {
+            return collectedAt;
+        }
+
+        // NaN unless kind is FILLING_UP
+        public double getHoursToFull() {
+            return hoursToFull;
+        }
+
+        // Short form for the alert table
+        public String getSummary() {
+            String text = kind + ": " + path + " at " + String.format("%.1f", usedPercent) + "% used";
+            if (kind == Kind.FILLING_UP) {
+                text += ", full in ~" + String.format("%.1f", hoursToFull) + " h";
+            }
+            return text;
+        }
+
+        public String toAlertMessage() {
+            String title = kind == Kind.RECOVERED ? "STORAGE RECOVERED" : "STORAGE ALERT (" + kind + ")";
+            String message = title + "\n" +
+                    " Time: " + new TimestampFormatter().format(collectedAt) + "\n" +
+                    " System: " + systemName + "\n" +
+                    " Host: " + serverName + " (" + serverIp + ")\n" +
+                    " Path: " + path + "\n" +
+                    " Used: " + String.format("%.1f%% (%s of %s)", usedPercent, gb(usedBytes), gb(totalBytes));
+            if (kind == Kind.FILLING_UP) {
+                message += "\n Full in: ~" + String.format("%.1f", hoursToFull) + " h at the current growth rate";
+            }
+            return message;
+        }
+
+        private static String gb(long bytes) {
+            return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+    }
+}
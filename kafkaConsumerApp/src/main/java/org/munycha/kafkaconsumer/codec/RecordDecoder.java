@@ -0,0 +1,91 @@
+package org.munycha.kafkaconsumer.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.munycha.kafkaconsumer.model.LogEvent;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Decodes raw Kafka record values straight from {@code byte[]}.
+ * <p>
+ * LogEvents go through a hand-rolled streaming parser (no String copy of the
+ * payload, no databind reflection); the timestamp is parsed once here and
+ * kept on the event. Snapshots use a cached ObjectReader; a snapshot without
+ * a valid timestamp is rejected here, so it goes to dead letters instead of
+ * failing the database batch it would otherwise land in. One decoder is
+ * meant to be owned by one consumer thread.
+ */
+public class RecordDecoder {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+    private static final ObjectReader SNAPSHOT_READER = MAPPER.readerFor(ServerStorageSnapshot.class);
+
+    public LogEvent decodeLogEvent(byte[] value) throws IOException {
+
+        LogEvent event = new LogEvent();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(value)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("LogEvent must be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                String text = token == JsonToken.VALUE_NULL ? null : parser.getText();
+
+                switch (field) {
+                    case "serverName":
+                        event.setServerName(text);
+                        break;
+                    case "path":
+                        event.setPath(text);
+                        break;
+                    case "topic":
+                        event.setTopic(text);
+                        break;
+                    case "timestamp":
+                        event.setTimestamp(text);
+                        break;
+                    case "message":
+                        event.setMessage(text);
+                        break;
+                    default:
+                        // Unknown fields are ignored
+                        break;
+                }
+            }
+        }
+
+        if (event.getTimestamp() != null) {
+            event.setInstant(Instant.parse(event.getTimestamp()));
+        }
+
+        return event;
+    }
+
+    public ServerStorageSnapshot decodeSnapshot(byte[] value) throws IOException {
+        ServerStorageSnapshot snapshot = SNAPSHOT_READER.readValue(value);
+
+        if (snapshot.getTimestamp() == null) {
+            throw new IOException("Snapshot has no timestamp");
+        }
+        snapshot.setCollectedMillis(Instant.parse(snapshot.getTimestamp()).toEpochMilli());
+
+        return snapshot;
+    }
+}
@@ -0,0 +1,30 @@
+package org.munycha.kafkaconsumer.codec;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats event times as {@code yyyy-MM-dd HH:mm:ss} in the local zone.
+ * <p>
+ * Log bursts carry many events from the same second, so the last formatted
+ * second is cached. Not thread-safe: keep one instance per consumer thread.
+ */
+public class TimestampFormatter {
+
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedText;
+
+    public String format(Instant instant) {
+        long second = instant.getEpochSecond();
+
+        if (second != cachedSecond) {
+            cachedText = FORMAT.format(instant);
+            cachedSecond = second;
+        }
+        return cachedText;
+    }
+}
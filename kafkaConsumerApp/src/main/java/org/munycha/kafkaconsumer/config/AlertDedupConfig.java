@@ -0,0 +1,49 @@
+package org.munycha.kafkaconsumer.config;
+
+public class AlertDedupConfig {
+    private boolean enabled = true;
+
+    // Repeats of the same alert within this window are suppressed
+    private long windowSeconds = 300;
+
+    // How often "N occurrences since" summaries are sent for suppressed alerts
+    private long summaryIntervalSeconds = 60;
+
+    // Fingerprints remembered at most (least recently seen are evicted first)
+    private int maxEntries = 10_000;
+
+    public AlertDedupConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public long getSummaryIntervalSeconds() {
+        return summaryIntervalSeconds;
+    }
+
+    public void setSummaryIntervalSeconds(long summaryIntervalSeconds) {
+        this.summaryIntervalSeconds = summaryIntervalSeconds;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
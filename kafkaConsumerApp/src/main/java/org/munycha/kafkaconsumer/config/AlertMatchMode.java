@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum AlertMatchMode {
+    // Case-insensitive substring anywhere in the message (same as plain alertKeywords)
+    SUBSTRING,
+    // Case-insensitive, but only as a whole word ("error" does not match "errors")
+    WORD,
+    // Java regular expression, case-insensitive
+    REGEX
+}
@@ -0,0 +1,30 @@
+package org.munycha.kafkaconsumer.config;
+
+public class AlertRule {
+    private String pattern;
+    private AlertMatchMode mode = AlertMatchMode.SUBSTRING;
+
+    public AlertRule() {
+    }
+
+    public AlertRule(String pattern, AlertMatchMode mode) {
+        this.pattern = pattern;
+        this.mode = mode;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public AlertMatchMode getMode() {
+        return mode;
+    }
+
+    public void setMode(AlertMatchMode mode) {
+        this.mode = mode;
+    }
+}
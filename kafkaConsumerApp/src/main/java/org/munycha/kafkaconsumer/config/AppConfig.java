@@ -8,10 +8,29 @@ public class AppConfig {
     private String telegramBotToken;
     private String telegramChatId;
 
+    // Telegram is slow (1 msg/sec), so by default old alerts are shed rather than pausing consumers
+    private QueueConfig telegramQueue = new QueueConfig(1000, OverflowPolicy.DROP_OLDEST);
+    private TelegramConfig telegram = new TelegramConfig();
+
+    // Threads for consumers and blocking DB/Telegram calls; VIRTUAL needs Java 21
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+
     private List<TopicConfig> topics;
     private List<String> alertKeywords;
+    private List<AlertRule> alertRules;
+    private AlertDedupConfig alertDedup = new AlertDedupConfig();
+    private StorageAlertConfig storageAlerts = new StorageAlertConfig();
+    private DeadLetterConfig deadLetter = new DeadLetterConfig();
 
     private DatabaseConfig database;
+    private MetricsConfig metrics = new MetricsConfig();
+
+    // Latest usage per mount, kept in memory and queried over the metrics HTTP port
+    private StorageStateConfig storageState = new StorageStateConfig();
+    private ConsoleConfig console = new ConsoleConfig();
+
+    // Changes to topics and alert settings are applied without a restart
+    private ReloadConfig reload = new ReloadConfig();
 
     public AppConfig() {}
 
@@ -27,6 +46,18 @@ public class AppConfig {
         return telegramChatId;
     }
 
+    public QueueConfig getTelegramQueue() {
+        return telegramQueue;
+    }
+
+    public TelegramConfig getTelegram() {
+        return telegram;
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
     public List<TopicConfig> getTopics() {
         return topics;
     }
@@ -35,7 +66,39 @@ public class AppConfig {
         return alertKeywords;
     }
 
+    public List<AlertRule> getAlertRules() {
+        return alertRules;
+    }
+
+    public AlertDedupConfig getAlertDedup() {
+        return alertDedup;
+    }
+
+    public StorageAlertConfig getStorageAlerts() {
+        return storageAlerts;
+    }
+
+    public DeadLetterConfig getDeadLetter() {
+        return deadLetter;
+    }
+
     public DatabaseConfig getDatabase() {   // <-- NEW GETTER
         return database;
     }
+
+    public MetricsConfig getMetrics() {
+        return metrics;
+    }
+
+    public StorageStateConfig getStorageState() {
+        return storageState;
+    }
+
+    public ConsoleConfig getConsole() {
+        return console;
+    }
+
+    public ReloadConfig getReload() {
+        return reload;
+    }
 }
@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum CommitStrategy {
+    // Commit offsets synchronously once every sink has acknowledged the poll batch
+    SYNC,
+    // Same as SYNC but the commit itself does not block the poll loop
+    ASYNC,
+    // Legacy behaviour: Kafka auto-commit, no waiting on sinks
+    AUTO
+}
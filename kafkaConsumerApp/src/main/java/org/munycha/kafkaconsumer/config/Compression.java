@@ -0,0 +1,6 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum Compression {
+    NONE,
+    GZIP
+}
@@ -12,6 +12,10 @@ public class ConfigLoader {
         this.filePath = filePath;
     }
 
+    public String getFilePath() {
+        return filePath;
+    }
+
     public AppConfig load() throws IOException {
 
         try (InputStream inputStream = loadConfigFile()) {
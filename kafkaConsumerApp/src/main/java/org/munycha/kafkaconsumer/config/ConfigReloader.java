@@ -0,0 +1,124 @@
+package org.munycha.kafkaconsumer.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Re-reads the external config file when it changes and hands the new
+ * {@link AppConfig} to a listener.
+ * <p>
+ * Change events come from the shared {@link FileWatcher} and are debounced;
+ * the file is also re-read every few seconds, since a replaced symlink (e.g.
+ * a mounted ConfigMap) produces no event for the file itself. A file that
+ * parses to the same JSON as last time is ignored. A file that does not parse
+ * is reported and the running config stays in place; so does one the
+ * listener rejects by throwing.
+ */
+public class ConfigReloader implements AutoCloseable {
+
+    private static final long RECHECK_INTERVAL_MS = 5000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path path;
+    private final long debounceMs;
+    private final Consumer<AppConfig> listener;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> pending;
+
+    // Last version of the file seen, applied or not; only touched on the scheduler thread
+    private byte[] lastBytes;
+    private JsonNode current;
+
+    public ConfigReloader(ConfigLoader loader, ReloadConfig config, FileWatcher fileWatcher,
+                          Consumer<AppConfig> listener) throws IOException {
+        this.path = Path.of(loader.getFilePath()).toAbsolutePath().normalize();
+        this.debounceMs = Math.max(0, config.getDebounceMs());
+        this.listener = listener;
+        this.lastBytes = Files.readAllBytes(path);
+        this.current = mapper.readTree(lastBytes);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "config-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        fileWatcher.watch(path).addListener(this::changed);
+        scheduler.scheduleWithFixedDelay(this::check, RECHECK_INTERVAL_MS, RECHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        System.out.println("[ConfigReloader] Watching " + path + " for changes");
+    }
+
+    // Runs on the watcher thread; every new event pushes the reload back
+    private synchronized void changed() {
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = scheduler.schedule(this::check, debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        byte[] bytes;
+        try {
+            if (!Files.exists(path)) {
+                return;
+            }
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            System.err.println("[ConfigReloader] Cannot read " + path + ": " + e.getMessage());
+            return;
+        }
+
+        // Each version of the file is looked at once, so a broken one is reported once
+        if (Arrays.equals(bytes, lastBytes)) {
+            return;
+        }
+        lastBytes = bytes;
+
+        JsonNode tree;
+        try {
+            tree = mapper.readTree(bytes);
+        } catch (IOException e) {
+            System.err.println("[ConfigReloader] Ignoring invalid config, keeping the running one: "
+                    + e.getMessage());
+            return;
+        }
+
+        if (tree == null || tree.equals(current)) {
+            return;
+        }
+        current = tree;
+
+        AppConfig config;
+        try {
+            config = mapper.treeToValue(tree, AppConfig.class);
+        } catch (IOException e) {
+            System.err.println("[ConfigReloader] Ignoring invalid config, keeping the running one: "
+                    + e.getMessage());
+            return;
+        }
+
+        System.out.println("[ConfigReloader] Config changed, applying " + path);
+        try {
+            listener.accept(config);
+        } catch (RuntimeException e) {
+            System.err.println("[ConfigReloader] Config rejected, keeping the running one: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package org.munycha.kafkaconsumer.config;
+
+public class ConsoleConfig {
+    private ConsoleMode mode = ConsoleMode.FULL;
+    private int sampleEvery = 100;
+    private int maxLinesPerSecond = 50;
+
+    // Lines waiting for the console writer; beyond this they are dropped, never waited for
+    private int queueCapacity = 10_000;
+
+    public ConsoleConfig() {
+    }
+
+    public ConsoleMode getMode() {
+        return mode;
+    }
+
+    public void setMode(ConsoleMode mode) {
+        this.mode = mode;
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    public int getMaxLinesPerSecond() {
+        return maxLinesPerSecond;
+    }
+
+    public void setMaxLinesPerSecond(int maxLinesPerSecond) {
+        this.maxLinesPerSecond = maxLinesPerSecond;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,12 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum ConsoleMode {
+    // No per-record console output
+    OFF,
+    // One record in every sampleEvery
+    SAMPLED,
+    // At most maxLinesPerSecond records per second
+    RATE_LIMITED,
+    // Every record (still asynchronous)
+    FULL
+}
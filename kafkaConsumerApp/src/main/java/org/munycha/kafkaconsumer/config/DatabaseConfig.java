@@ -7,6 +7,21 @@ public class DatabaseConfig {
     private String password;
     private TableConfig tables;
 
+    // Connection pool and write-behind batching
+    private int poolSize = 4;
+    private long connectionTimeoutMs = 10_000;
+    private int batchSize = 500;
+    private long lingerMs = 200;
+
+    // Bound on rows waiting per writer, and what happens when it is reached
+    private QueueConfig queue = new QueueConfig();
+
+    // Downsampling of storage metrics and retention of the snapshot tables
+    private StorageRollupConfig rollup = new StorageRollupConfig();
+
+    // Change-only writes of mount path rows
+    private DeltaWriteConfig deltaWrites = new DeltaWriteConfig();
+
     public DatabaseConfig() {
     }
 
@@ -48,4 +63,60 @@ public class DatabaseConfig {
     public void setTables(TableConfig tables) {
         this.tables = tables;
     }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public long getConnectionTimeoutMs() {
+        return connectionTimeoutMs;
+    }
+
+    public void setConnectionTimeoutMs(long connectionTimeoutMs) {
+        this.connectionTimeoutMs = connectionTimeoutMs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    public void setLingerMs(long lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public QueueConfig getQueue() {
+        return queue;
+    }
+
+    public void setQueue(QueueConfig queue) {
+        this.queue = queue;
+    }
+
+    public StorageRollupConfig getRollup() {
+        return rollup;
+    }
+
+    public void setRollup(StorageRollupConfig rollup) {
+        this.rollup = rollup;
+    }
+
+    public DeltaWriteConfig getDeltaWrites() {
+        return deltaWrites;
+    }
+
+    public void setDeltaWrites(DeltaWriteConfig deltaWrites) {
+        this.deltaWrites = deltaWrites;
+    }
 }
@@ -0,0 +1,86 @@
+package org.munycha.kafkaconsumer.config;
+
+public class DeadLetterConfig {
+    // Where records that cannot be decoded or processed go instead of stopping the consumer
+    private DeadLetterTarget target = DeadLetterTarget.FILE;
+    private String file = "dead-letter/dead_letter.jsonl";
+    private String topicSuffix = ".dlq";
+
+    // Dead letters are written in batches: up to batchSize, or after lingerMs
+    private int batchSize = 200;
+    private long lingerMs = 500;
+
+    // A failing batch is retried with a doubling pause (capped at 30s), then given up on and only counted
+    private int maxAttempts = 5;
+    private long retryBackoffMs = 1000;
+
+    // Under a flood of garbage the oldest dead letters are dropped rather than slowing consumption
+    private QueueConfig queue = new QueueConfig(10_000, OverflowPolicy.DROP_OLDEST);
+
+    public DeadLetterConfig() {
+    }
+
+    public DeadLetterTarget getTarget() {
+        return target;
+    }
+
+    public void setTarget(DeadLetterTarget target) {
+        this.target = target;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getTopicSuffix() {
+        return topicSuffix;
+    }
+
+    public void setTopicSuffix(String topicSuffix) {
+        this.topicSuffix = topicSuffix;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    public void setLingerMs(long lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    public QueueConfig getQueue() {
+        return queue;
+    }
+
+    public void setQueue(QueueConfig queue) {
+        this.queue = queue;
+    }
+}
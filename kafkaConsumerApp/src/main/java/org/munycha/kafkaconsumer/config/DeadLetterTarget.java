@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum DeadLetterTarget {
+    // Append JSON lines to a local file
+    FILE,
+    // Produce to <topic><topicSuffix> with the original key, value and headers describing the error
+    TOPIC,
+    // Only count and log undecodable records
+    NONE
+}
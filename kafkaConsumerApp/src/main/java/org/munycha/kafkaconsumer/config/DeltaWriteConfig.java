@@ -0,0 +1,39 @@
+package org.munycha.kafkaconsumer.config;
+
+public class DeltaWriteConfig {
+    // Write a mount row only when the mount changed since its last written row
+    private boolean enabled = false;
+
+    // usedPercent has to move by more than this to count as a change
+    private double epsilonPercent = 0.5;
+
+    // Unchanged mounts are still written this often (in collection time)
+    private long heartbeatSeconds = 3600;
+
+    public DeltaWriteConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getEpsilonPercent() {
+        return epsilonPercent;
+    }
+
+    public void setEpsilonPercent(double epsilonPercent) {
+        this.epsilonPercent = epsilonPercent;
+    }
+
+    public long getHeartbeatSeconds() {
+        return heartbeatSeconds;
+    }
+
+    public void setHeartbeatSeconds(long heartbeatSeconds) {
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+}
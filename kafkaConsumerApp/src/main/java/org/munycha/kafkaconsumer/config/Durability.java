@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum Durability {
+    // Leave it to the OS page cache
+    NONE,
+    // fsync on a fixed interval (forceIntervalMs)
+    INTERVAL,
+    // Write and fsync at the end of every poll batch, before offsets are committed
+    BATCH
+}
@@ -0,0 +1,36 @@
+package org.munycha.kafkaconsumer.config;
+
+public class MetricsConfig {
+    private boolean enabled = true;
+
+    // Local by default; set host to 0.0.0.0 to let a remote Prometheus scrape it
+    private String host = "127.0.0.1";
+    private int port = 9404;
+
+    public MetricsConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+}
@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum OverflowPolicy {
+    // Pause the Kafka consumers (consumer.pause()) until the queue drains; block only as a last resort
+    BLOCK,
+    // Throw away the oldest queued item to make room
+    DROP_OLDEST,
+    // Move overflow to a local spill file and feed it back once the queue drains
+    SPILL
+}
@@ -0,0 +1,28 @@
+package org.munycha.kafkaconsumer.config;
+
+public class PipelineConfig {
+    // Decode/match lanes behind the poll thread (0 = handle records on the poll thread)
+    private int lanes = 0;
+
+    // Ring slots between the poll thread and the lanes; rounded up to a power of two
+    private int ringSize = 8192;
+
+    public PipelineConfig() {
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+}
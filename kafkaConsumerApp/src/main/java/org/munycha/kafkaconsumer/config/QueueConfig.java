@@ -0,0 +1,59 @@
+package org.munycha.kafkaconsumer.config;
+
+public class QueueConfig {
+    private int capacity = 10_000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private String spillDir = "spill";
+
+    // SPILL only: size of one spill segment file, and the cap on all of a queue's segments
+    private int spillSegmentBytes = 16 * 1024 * 1024;
+    private long spillMaxBytes = 1024L * 1024 * 1024;
+
+    public QueueConfig() {
+    }
+
+    public QueueConfig(int capacity, OverflowPolicy overflowPolicy) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public void setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+    }
+
+    public int getSpillSegmentBytes() {
+        return spillSegmentBytes;
+    }
+
+    public void setSpillSegmentBytes(int spillSegmentBytes) {
+        this.spillSegmentBytes = spillSegmentBytes;
+    }
+
+    public long getSpillMaxBytes() {
+        return spillMaxBytes;
+    }
+
+    public void setSpillMaxBytes(long spillMaxBytes) {
+        this.spillMaxBytes = spillMaxBytes;
+    }
+}
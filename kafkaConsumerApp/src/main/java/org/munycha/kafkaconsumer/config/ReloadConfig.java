@@ -0,0 +1,28 @@
+package org.munycha.kafkaconsumer.config;
+
+public class ReloadConfig {
+    // Re-read the external config file when it changes
+    private boolean enabled = true;
+
+    // Editors often write a file in several steps; wait this long after the last change
+    private long debounceMs = 500;
+
+    public ReloadConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getDebounceMs() {
+        return debounceMs;
+    }
+
+    public void setDebounceMs(long debounceMs) {
+        this.debounceMs = debounceMs;
+    }
+}
@@ -0,0 +1,104 @@
+package org.munycha.kafkaconsumer.config;
+
+public class SinkConfig {
+    private SinkType type = SinkType.FILE;
+
+    // Buffered bytes are written out when the buffer is full or flushIntervalMs has passed
+    private int bufferBytes = 64 * 1024;
+    private long flushIntervalMs = 1000;
+
+    private Durability durability = Durability.NONE;
+    private long forceIntervalMs = 1000;
+
+    // ROLLING_FILE only: roll when the file reaches rollMaxBytes or the time window ends (0 = off)
+    private long rollMaxBytes = 256L * 1024 * 1024;
+    private long rollIntervalMinutes = 0;
+    private Compression compression = Compression.GZIP;
+
+    // ROLLING_FILE only: archives kept by count and/or age (0 = unlimited)
+    private int maxArchivedFiles = 30;
+    private long maxArchiveAgeHours = 0;
+
+    public SinkConfig() {
+    }
+
+    public SinkType getType() {
+        return type;
+    }
+
+    public void setType(SinkType type) {
+        this.type = type;
+    }
+
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    public void setBufferBytes(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public void setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    public long getForceIntervalMs() {
+        return forceIntervalMs;
+    }
+
+    public void setForceIntervalMs(long forceIntervalMs) {
+        this.forceIntervalMs = forceIntervalMs;
+    }
+
+    public long getRollMaxBytes() {
+        return rollMaxBytes;
+    }
+
+    public void setRollMaxBytes(long rollMaxBytes) {
+        this.rollMaxBytes = rollMaxBytes;
+    }
+
+    public long getRollIntervalMinutes() {
+        return rollIntervalMinutes;
+    }
+
+    public void setRollIntervalMinutes(long rollIntervalMinutes) {
+        this.rollIntervalMinutes = rollIntervalMinutes;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public int getMaxArchivedFiles() {
+        return maxArchivedFiles;
+    }
+
+    public void setMaxArchivedFiles(int maxArchivedFiles) {
+        this.maxArchivedFiles = maxArchivedFiles;
+    }
+
+    public long getMaxArchiveAgeHours() {
+        return maxArchiveAgeHours;
+    }
+
+    public void setMaxArchiveAgeHours(long maxArchiveAgeHours) {
+        this.maxArchiveAgeHours = maxArchiveAgeHours;
+    }
+}
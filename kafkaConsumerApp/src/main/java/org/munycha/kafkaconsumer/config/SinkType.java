@@ -0,0 +1,10 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum SinkType {
+    // Append to the topic's output file
+    FILE,
+    // Append to the output file, creating it on demand, rolling and archiving it by size/time
+    ROLLING_FILE,
+    // Discard output (e.g. when only the database matters)
+    NONE
+}
@@ -0,0 +1,78 @@
+package org.munycha.kafkaconsumer.config;
+
+public class StorageAlertConfig {
+    private boolean enabled = true;
+
+    // usedPercent thresholds; an alert is sent when a mount crosses one upwards
+    private double warnPercent = 85.0;
+    private double criticalPercent = 95.0;
+
+    // A level is only left once usage drops this far below its threshold
+    private double hysteresisPercent = 3.0;
+
+    // Recent samples per mount used for the growth-rate regression
+    private int windowSamples = 12;
+    private int minSamples = 4;
+
+    // Alert when the mount is projected to be full within this many hours
+    private double fullWithinHours = 24.0;
+
+    public StorageAlertConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getWarnPercent() {
+        return warnPercent;
+    }
+
+    public void setWarnPercent(double warnPercent) {
+        this.warnPercent = warnPercent;
+    }
+
+    public double getCriticalPercent() {
+        return criticalPercent;
+    }
+
+    public void setCriticalPercent(double criticalPercent) {
+        this.criticalPercent = criticalPercent;
+    }
+
+    public double getHysteresisPercent() {
+        return hysteresisPercent;
+    }
+
+    public void setHysteresisPercent(double hysteresisPercent) {
+        this.hysteresisPercent = hysteresisPercent;
+    }
+
+    public int getWindowSamples() {
+        return windowSamples;
+    }
+
+    public void setWindowSamples(int windowSamples) {
+        this.windowSamples = windowSamples;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getFullWithinHours() {
+        return fullWithinHours;
+    }
+
+    public void setFullWithinHours(double fullWithinHours) {
+        this.fullWithinHours = fullWithinHours;
+    }
+}
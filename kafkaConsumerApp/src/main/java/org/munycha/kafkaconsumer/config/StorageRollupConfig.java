@@ -0,0 +1,99 @@
+package org.munycha.kafkaconsumer.config;
+
+public class StorageRollupConfig {
+    // Aggregate mount samples into 1-minute and 1-hour buckets
+    private boolean enabled = false;
+
+    // Keep inserting every raw snapshot into the snapshot tables
+    private boolean rawWrites = true;
+
+    // An open bucket is flushed this long after its end even if no newer sample arrived
+    private long latenessSeconds = 30;
+
+    // A mount without samples for this long and without open buckets is forgotten; 0 keeps mounts forever
+    private long idleMountMinutes = 120;
+
+    // Rows older than this are deleted; 0 keeps them forever
+    private long rawRetentionHours = 0;
+    private long minuteRetentionDays = 30;
+    private long hourRetentionDays = 0;
+
+    // How often retention runs, and how many rows one DELETE removes at most
+    private long retentionCheckMinutes = 10;
+    private int deleteChunkRows = 10_000;
+
+    public StorageRollupConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRawWrites() {
+        return rawWrites;
+    }
+
+    public void setRawWrites(boolean rawWrites) {
+        this.rawWrites = rawWrites;
+    }
+
+    public long getLatenessSeconds() {
+        return latenessSeconds;
+    }
+
+    public void setLatenessSeconds(long latenessSeconds) {
+        this.latenessSeconds = latenessSeconds;
+    }
+
+    public long getIdleMountMinutes() {
+        return idleMountMinutes;
+    }
+
+    public void setIdleMountMinutes(long idleMountMinutes) {
+        this.idleMountMinutes = idleMountMinutes;
+    }
+
+    public long getRawRetentionHours() {
+        return rawRetentionHours;
+    }
+
+    public void setRawRetentionHours(long rawRetentionHours) {
+        this.rawRetentionHours = rawRetentionHours;
+    }
+
+    public long getMinuteRetentionDays() {
+        return minuteRetentionDays;
+    }
+
+    public void setMinuteRetentionDays(long minuteRetentionDays) {
+        this.minuteRetentionDays = minuteRetentionDays;
+    }
+
+    public long getHourRetentionDays() {
+        return hourRetentionDays;
+    }
+
+    public void setHourRetentionDays(long hourRetentionDays) {
+        this.hourRetentionDays = hourRetentionDays;
+    }
+
+    public long getRetentionCheckMinutes() {
+        return retentionCheckMinutes;
+    }
+
+    public void setRetentionCheckMinutes(long retentionCheckMinutes) {
+        this.retentionCheckMinutes = retentionCheckMinutes;
+    }
+
+    public int getDeleteChunkRows() {
+        return deleteChunkRows;
+    }
+
+    public void setDeleteChunkRows(int deleteChunkRows) {
+        this.deleteChunkRows = deleteChunkRows;
+    }
+}
@@ -0,0 +1,60 @@
+package org.munycha.kafkaconsumer.config;
+
+public class StorageStateConfig {
+    private boolean enabled = true;
+
+    // Default threshold for "full" mounts in the query API (usedPercent)
+    private double fullPercent = 90.0;
+
+    // Hosts without a snapshot for this long are reported as stale
+    private long staleAfterSeconds = 300;
+
+    // Default number of mounts returned by /api/storage/fullest
+    private int topLimit = 20;
+
+    // Largest limit a client may ask for; bigger values are cut down to this
+    private int maxLimit = 1000;
+
+    public StorageStateConfig() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getFullPercent() {
+        return fullPercent;
+    }
+
+    public void setFullPercent(double fullPercent) {
+        this.fullPercent = fullPercent;
+    }
+
+    public long getStaleAfterSeconds() {
+        return staleAfterSeconds;
+    }
+
+    public void setStaleAfterSeconds(long staleAfterSeconds) {
+        this.staleAfterSeconds = staleAfterSeconds;
+    }
+
+    public int getTopLimit() {
+        return topLimit;
+    }
+
+    public void setTopLimit(int topLimit) {
+        this.topLimit = topLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
@@ -5,6 +5,10 @@ public class TableConfig {
     private String serverStorageSnapshotTable;
     private String mountPathStorageUsageTable;
 
+    // Rollup tables, only used when database.rollup is enabled
+    private String mountPathUsageMinuteTable = "mount_path_usage_1m";
+    private String mountPathUsageHourTable = "mount_path_usage_1h";
+
     public TableConfig() {
     }
 
@@ -31,4 +35,20 @@ public class TableConfig {
     public void setMountPathStorageUsageTable(String mountPathStorageUsageTable) {
         this.mountPathStorageUsageTable = mountPathStorageUsageTable;
     }
+
+    public String getMountPathUsageMinuteTable() {
+        return mountPathUsageMinuteTable;
+    }
+
+    public void setMountPathUsageMinuteTable(String mountPathUsageMinuteTable) {
+        this.mountPathUsageMinuteTable = mountPathUsageMinuteTable;
+    }
+
+    public String getMountPathUsageHourTable() {
+        return mountPathUsageHourTable;
+    }
+
+    public void setMountPathUsageHourTable(String mountPathUsageHourTable) {
+        this.mountPathUsageHourTable = mountPathUsageHourTable;
+    }
 }
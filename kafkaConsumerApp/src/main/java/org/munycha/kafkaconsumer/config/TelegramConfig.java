@@ -0,0 +1,67 @@
+package org.munycha.kafkaconsumer.config;
+
+public class TelegramConfig {
+    // Point at a local stub server for testing
+    private String apiUrl = "https://api.telegram.org";
+
+    // Token bucket: sustained rate and how many messages may go out back to back
+    private double messagesPerSecond = 1.0;
+    private int burst = 1;
+
+    // Queued alerts are joined into one message up to this many characters (Telegram's limit)
+    private int maxMessageChars = 4096;
+
+    private int maxRetries = 3;
+    private long requestTimeoutMs = 7000;
+
+    public TelegramConfig() {
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(double messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public int getMaxMessageChars() {
+        return maxMessageChars;
+    }
+
+    public void setMaxMessageChars(int maxMessageChars) {
+        this.maxMessageChars = maxMessageChars;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRequestTimeoutMs() {
+        return requestTimeoutMs;
+    }
+
+    public void setRequestTimeoutMs(long requestTimeoutMs) {
+        this.requestTimeoutMs = requestTimeoutMs;
+    }
+}
@@ -0,0 +1,8 @@
+package org.munycha.kafkaconsumer.config;
+
+public enum ThreadMode {
+    // Fixed pools of OS threads (works on Java 17)
+    PLATFORM,
+    // One virtual thread per consumer / I/O task; needs Java 21, falls back to PLATFORM otherwise
+    VIRTUAL
+}
@@ -5,6 +5,18 @@ public class TopicConfig {
     private String topic;
     private TopicType type;
     private String output;
+    private SinkConfig sink = new SinkConfig();
+
+    // Number of consumers in the topic's group, each on its own thread
+    private int concurrency = 1;
+
+    // Poll loop tuning
+    private int maxPollRecords = 500;
+    private long pollTimeoutMs = 500;
+    private CommitStrategy commitStrategy = CommitStrategy.SYNC;
+
+    // Optional hand-off of decoding and matching to lanes behind the poll thread
+    private PipelineConfig pipeline = new PipelineConfig();
 
     public TopicConfig() {}
 
@@ -37,5 +49,52 @@ public class TopicConfig {
     public void setOutput(String output) {
         this.output = output;
     }
-}
 
+    public SinkConfig getSink() {
+        return sink;
+    }
+
+    public void setSink(SinkConfig sink) {
+        this.sink = sink;
+    }
+
+    public int getMaxPollRecords() {
+        return maxPollRecords;
+    }
+
+    public void setMaxPollRecords(int maxPollRecords) {
+        this.maxPollRecords = maxPollRecords;
+    }
+
+    public long getPollTimeoutMs() {
+        return pollTimeoutMs;
+    }
+
+    public void setPollTimeoutMs(long pollTimeoutMs) {
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+
+    public CommitStrategy getCommitStrategy() {
+        return commitStrategy;
+    }
+
+    public void setCommitStrategy(CommitStrategy commitStrategy) {
+        this.commitStrategy = commitStrategy;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public PipelineConfig getPipeline() {
+        return pipeline;
+    }
+
+    public void setPipeline(PipelineConfig pipeline) {
+        this.pipeline = pipeline;
+    }
+}
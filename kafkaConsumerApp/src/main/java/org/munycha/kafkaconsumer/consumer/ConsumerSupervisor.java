@@ -0,0 +1,385 @@
+package org.munycha.kafkaconsumer.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.munycha.kafkaconsumer.config.AppConfig;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.sink.OutputSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs the {@link TopicConsumer}s of every configured topic, one thread per
+ * consumer, and brings them in line with a new config.
+ * <p>
+ * {@link #apply} compares each topic's {@link TopicConfig} with the one its
+ * consumers run with. Unchanged topics are left alone, so their partition
+ * assignments stay put; every topic has its own consumer group. A changed
+ * topic is stopped and started again with a fresh output sink. When only
+ * {@code concurrency} changed, consumers are added or the highest instances
+ * stopped, and the cooperative assignor moves just the partitions involved.
+ * Changing {@code bootstrapServers} restarts every topic.
+ * <p>
+ * A consumer that has not exited {@value #STOP_TIMEOUT_MS} ms after being
+ * stopped is not replaced: its topic (or the extra instances of a resize)
+ * starts once every old consumer thread has exited, and the old output sink
+ * stays open until then. Two generations of a topic never run side by side.
+ */
+public class ConsumerSupervisor implements AutoCloseable {
+
+    private static final long STOP_TIMEOUT_MS = 10_000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Creates consumer {@code instance} of a topic, writing to the topic's shared sink.
+     */
+    @FunctionalInterface
+    public interface ConsumerFactory {
+        TopicConsumer create(String bootstrapServers, TopicConfig topic, int instance,
+                             OutputSink output, TopicMetrics metrics);
+    }
+
+    private final ConsumerFactory consumers;
+    private final Function<TopicConfig, OutputSink> sinks;
+    private final ThreadFactory threads;
+    private final MetricsRegistry metricsRegistry;
+
+    private final Map<String, TopicGroup> groups = new LinkedHashMap<>();
+
+    // Stopped groups whose consumers did not exit in time, and the configs waiting for them
+    private final Map<String, TopicGroup> stuck = new HashMap<>();
+    private final Map<String, TopicConfig> deferred = new LinkedHashMap<>();
+
+    // Picks up deferred starts when a consumer thread exits; never runs on a consumer thread
+    private final ExecutorService reaper = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "consumer-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Kept across restarts of a topic so its counters are registered once and keep counting
+    private final Map<String, TopicMetrics> topicMetrics = new HashMap<>();
+
+    private String bootstrapServers;
+    private boolean closed = false;
+
+    public ConsumerSupervisor(ConsumerFactory consumers,
+                              Function<TopicConfig, OutputSink> sinks,
+                              ThreadFactory threads,
+                              MetricsRegistry metricsRegistry) {
+        this.consumers = consumers;
+        this.sinks = sinks;
+        this.threads = threads;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Starts, stops, resizes or restarts topics so that exactly the topics of
+     * {@code config} run with their configured settings. Returns once the
+     * stopped consumers have left their groups, or have been given up on
+     * for now and their replacements deferred.
+     */
+    public synchronized void apply(AppConfig config) {
+        if (closed) {
+            return;
+        }
+
+        Map<String, TopicConfig> wanted = new LinkedHashMap<>();
+        if (config.getTopics() != null) {
+            for (TopicConfig topic : config.getTopics()) {
+                if (wanted.putIfAbsent(topic.getTopic(), topic) != null) {
+                    System.err.println("[Supervisor] Topic " + topic.getTopic()
+                            + " is configured twice, using the first entry");
+                }
+            }
+        }
+
+        boolean newCluster = !Objects.equals(bootstrapServers, config.getBootstrapServers());
+        bootstrapServers = config.getBootstrapServers();
+
+        // Whatever still waits is decided again from this config
+        deferred.clear();
+
+        List<TopicGroup> stopping = new ArrayList<>();
+        List<TopicConfig> starting = new ArrayList<>();
+
+        Iterator<TopicGroup> it = groups.values().iterator();
+        while (it.hasNext()) {
+            TopicGroup group = it.next();
+            TopicConfig next = wanted.remove(group.name);
+
+            if (next == null || newCluster) {
+                stopping.add(group);
+                it.remove();
+                if (next != null) {
+                    starting.add(next);
+                }
+            } else if (!settings(next, true).equals(group.settings)) {
+                stopping.add(group);
+                starting.add(next);
+                it.remove();
+            } else if (!settings(next, false).equals(settings(group.config, false))) {
+                resize(group, next);
+            }
+        }
+        starting.addAll(wanted.values());
+
+        stop(stopping);
+        for (TopicConfig topic : starting) {
+            start(topic);
+        }
+    }
+
+    // The topic's config as JSON; concurrency can be left out to tell a resize from a restart
+    private static ObjectNode settings(TopicConfig topic, boolean withoutConcurrency) {
+        ObjectNode node = MAPPER.valueToTree(topic);
+        if (withoutConcurrency) {
+            node.remove("concurrency");
+        }
+        return node;
+    }
+
+    private void start(TopicConfig topic) {
+        if (stuck.containsKey(topic.getTopic())) {
+            System.err.println("[Supervisor] Old consumers of " + topic.getTopic()
+                    + " are still running, starting it once they have exited");
+            deferred.put(topic.getTopic(), topic);
+            return;
+        }
+
+        TopicMetrics metrics = topicMetrics.computeIfAbsent(topic.getTopic(), name -> {
+            TopicMetrics created = new TopicMetrics(name);
+            created.register(metricsRegistry);
+            return created;
+        });
+
+        OutputSink output;
+        try {
+            output = sinks.apply(topic);
+        } catch (RuntimeException e) {
+            System.err.println("[Supervisor] Cannot open output of " + topic.getTopic() + ": " + e.getMessage());
+            return;
+        }
+
+        TopicGroup group = new TopicGroup(topic, output, metrics);
+        try {
+            for (int instance = 0; instance < instances(topic); instance++) {
+                group.startInstance(instance);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[Supervisor] Cannot start consumers of " + topic.getTopic() + ": " + e.getMessage());
+            stop(List.of(group));
+            return;
+        }
+        groups.put(topic.getTopic(), group);
+    }
+
+    private void resize(TopicGroup group, TopicConfig next) {
+        int from = group.running.size();
+        int to = instances(next);
+
+        List<Member> removed = new ArrayList<>();
+        while (group.running.size() > to) {
+            removed.add(group.running.remove(group.running.size() - 1));
+        }
+        if (!stopMembers(group.name, removed)) {
+            group.leaving.addAll(removed);
+        }
+
+        group.config = next;
+        startMissing(group);
+        System.out.printf("[Supervisor] %s: %d -> %d consumers%n", group.name, from, group.running.size());
+    }
+
+    // Brings the group up to its configured concurrency, unless removed instances are still running
+    private void startMissing(TopicGroup group) {
+        group.leaving.removeIf(member -> member.exited);
+        if (!group.leaving.isEmpty()) {
+            if (group.running.size() < instances(group.config)) {
+                System.err.println("[Supervisor] Removed consumers of " + group.name
+                        + " are still running, adding consumers once they have exited");
+            }
+            return;
+        }
+
+        try {
+            for (int instance = group.running.size(); instance < instances(group.config); instance++) {
+                group.startInstance(instance);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[Supervisor] Cannot start consumers of " + group.name + ": " + e.getMessage());
+        }
+    }
+
+    private void stop(List<TopicGroup> stopping) {
+        // Ask every consumer first so they leave their groups in parallel
+        for (TopicGroup group : stopping) {
+            group.leaving.addAll(group.running);
+            group.running.clear();
+            for (Member member : group.leaving) {
+                member.consumer.shutdown();
+            }
+        }
+
+        for (TopicGroup group : stopping) {
+            // A consumer still writing would fail on a closed sink; leave it open until it exits
+            if (stopMembers(group.name, group.leaving)) {
+                group.leaving.clear();
+                closeOutput(group);
+            } else {
+                stuck.put(group.name, group);
+            }
+        }
+    }
+
+    // Runs on the reaper once a consumer thread has exited
+    private synchronized void reap() {
+        if (closed) {
+            return;
+        }
+
+        Iterator<TopicGroup> it = stuck.values().iterator();
+        while (it.hasNext()) {
+            TopicGroup group = it.next();
+            group.leaving.removeIf(member -> member.exited);
+            if (!group.leaving.isEmpty()) {
+                continue;
+            }
+
+            it.remove();
+            closeOutput(group);
+            System.out.println("[Supervisor] Old consumers of " + group.name + " have exited");
+            TopicConfig next = deferred.remove(group.name);
+            if (next != null) {
+                start(next);
+            }
+        }
+
+        for (TopicGroup group : groups.values()) {
+            if (!group.leaving.isEmpty()) {
+                startMissing(group);
+            }
+        }
+    }
+
+    private static void closeOutput(TopicGroup group) {
+        try {
+            group.output.close();
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    // Returns false if a consumer did not stop within the timeout
+    private static boolean stopMembers(String topic, List<Member> members) {
+        for (Member member : members) {
+            member.consumer.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MS);
+        boolean stopped = true;
+        for (Member member : members) {
+            try {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                member.thread.join(Math.max(1, remainingMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (member.thread.isAlive()) {
+                System.err.println("[Supervisor] Consumer " + member.thread.getName() + " of " + topic
+                        + " did not stop within " + STOP_TIMEOUT_MS + " ms");
+                stopped = false;
+            }
+        }
+        return stopped;
+    }
+
+    private static int instances(TopicConfig topic) {
+        return Math.max(1, topic.getConcurrency());
+    }
+
+    public synchronized int consumerCount() {
+        int count = 0;
+        for (TopicGroup group : groups.values()) {
+            count += group.running.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stops every consumer: each commits what it finished and leaves its group.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        deferred.clear();
+        stop(new ArrayList<>(groups.values()));
+        groups.clear();
+        reaper.shutdownNow();
+    }
+
+    private final class TopicGroup {
+        private final String name;
+        private final ObjectNode settings;
+        private final OutputSink output;
+        private final TopicMetrics metrics;
+        private final List<Member> running = new ArrayList<>();
+        // Stopped, but their threads had not exited yet when last checked
+        private final List<Member> leaving = new ArrayList<>();
+        private TopicConfig config;
+
+        private TopicGroup(TopicConfig config, OutputSink output, TopicMetrics metrics) {
+            this.name = config.getTopic();
+            this.settings = settings(config, true);
+            this.output = output;
+            this.metrics = metrics;
+            this.config = config;
+        }
+
+        private void startInstance(int instance) {
+            TopicConsumer consumer = consumers.create(bootstrapServers, config, instance, output, metrics);
+            Member member = new Member(consumer);
+            member.thread = threads.newThread(() -> {
+                try {
+                    consumer.run();
+                } finally {
+                    member.exited = true;
+                    try {
+                        reaper.execute(ConsumerSupervisor.this::reap);
+                    } catch (RejectedExecutionException e) {
+                        // Supervisor closed; nothing left to start
+                    }
+                }
+            });
+            running.add(member);
+            member.thread.start();
+        }
+    }
+
+    private static final class Member {
+        private final TopicConsumer consumer;
+        private Thread thread;
+        private volatile boolean exited = false;
+
+        private Member(TopicConsumer consumer) {
+            this.consumer = consumer;
+        }
+    }
+}
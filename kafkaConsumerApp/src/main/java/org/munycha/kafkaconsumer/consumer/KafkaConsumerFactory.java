@@ -1,26 +1,46 @@
 package org.munycha.kafkaconsumer.consumer;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.munycha.kafkaconsumer.config.CommitStrategy;
+import org.munycha.kafkaconsumer.config.TopicConfig;
 
-import java.util.Collections;
 import java.util.Properties;
 
 
 public class KafkaConsumerFactory {
 
     private final Properties consumerProps;
+    private final String topic;
+
+    public KafkaConsumerFactory(String bootstrapServers, TopicConfig topicConfig) {
+        this(bootstrapServers, topicConfig.getTopic());
+
+        // Upper bound on records handed to one batch of the poll loop
+        consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, topicConfig.getMaxPollRecords());
+
+        // Offsets are committed by TopicConsumer after the sinks acknowledge, unless AUTO is chosen
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG,
+                topicConfig.getCommitStrategy() == CommitStrategy.AUTO);
+
+        // Several consumers may share the group; only move the partitions that have to move
+        consumerProps.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG,
+                CooperativeStickyAssignor.class.getName());
+    }
 
     public KafkaConsumerFactory(String bootstrapServers, String topic) {
+        this.topic = topic;
         consumerProps = new Properties();
 
         // Kafka broker address(es)
         consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
 
-        // Deserializers for key and value — both are plain strings
+        // Keys are plain strings; values stay raw bytes and are decoded by RecordDecoder
         consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 
         // Use a unique group ID per topic to isolate consumption
         consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, "file-log-consumer-" + topic);
@@ -30,10 +50,18 @@ public class KafkaConsumerFactory {
     }
 
 
-    public KafkaConsumer<String, String> createConsumer() {
+    public KafkaConsumer<String, byte[]> createConsumer() {
         return new KafkaConsumer<>(consumerProps);
     }
 
+    // Creates one member of the topic's consumer group with a distinguishable client id
+    public KafkaConsumer<String, byte[]> createConsumer(int instance) {
+        Properties props = new Properties();
+        props.putAll(consumerProps);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "file-log-consumer-" + topic + "-" + instance);
+        return new KafkaConsumer<>(props);
+    }
+
 
     public Properties getConsumerProps() {
         return consumerProps;
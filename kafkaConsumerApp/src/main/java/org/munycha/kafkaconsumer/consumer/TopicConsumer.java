@@ -1,270 +1,564 @@
 package org.munycha.kafkaconsumer.consumer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import org.apache.kafka.clients.consumer.*;
-import org.munycha.kafkaconsumer.config.TopicType;
-import org.munycha.kafkaconsumer.db.MountPathStorageUsageDB;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.munycha.kafkaconsumer.alert.AlertDeduplicator;
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.alert.StorageAlertEvaluator;
+import org.munycha.kafkaconsumer.config.CommitStrategy;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.db.BatchWriter;
 import org.munycha.kafkaconsumer.db.ServerStorageSnapshotDB;
-import org.munycha.kafkaconsumer.model.LogEvent;
-import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
-import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+import org.munycha.kafkaconsumer.deadletter.DeadLetterQueue;
+import org.munycha.kafkaconsumer.pipeline.LogRecordStage;
+import org.munycha.kafkaconsumer.pipeline.MetricRecordStage;
+import org.munycha.kafkaconsumer.pipeline.RecordStage;
+import org.munycha.kafkaconsumer.pipeline.StageContext;
+import org.munycha.kafkaconsumer.pipeline.StagedPipeline;
+import org.munycha.kafkaconsumer.sink.OutputSink;
+import org.munycha.kafkaconsumer.state.StorageStateIndex;
 import org.munycha.kafkaconsumer.telegram.TelegramNotifier;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
 import org.munycha.kafkaconsumer.db.AlertDB;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
 
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InterruptedIOException;
 import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+
+/**
+ * Consumes one topic with one Kafka consumer.
+ * <p>
+ * By default every poll batch is handled on the poll thread by the topic's
+ * {@link RecordStage} and committed before the next poll. With
+ * {@code pipeline.lanes} set, the batch is published to a
+ * {@link StagedPipeline} instead and the poll thread goes straight back to
+ * polling; offsets are committed as the lanes finish them.
+ */
 public class TopicConsumer implements Runnable {
 
     private final String topic;
-    private final TopicType type;
-    private final Path outputFile;
-    private final List<String> alertKeywords;
+    private final int instance;
+    private final String outputPath;
+    private final OutputSink output;
+    private final Duration pollTimeout;
+    private final int maxPollRecords;
+    private final CommitStrategy commitStrategy;
     private final AlertDB alertDB;
     private final ServerStorageSnapshotDB serverStorageSnapshotDB;
-    private final MountPathStorageUsageDB mountPathStorageUsageDB;
-    private final KafkaConsumer<String, String> consumer;
+    private final Consumer<String, byte[]> consumer;
     private final TelegramNotifier notifier;
-    private final KafkaConsumerFactory consumerFactory;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final TopicMetrics metrics;
+    private final DeadLetterQueue deadLetters;
+    private final RecordStage stage;
 
-    //Create a single thread executor for Telegram alerts
-    private static final ExecutorService telegramAlertExecutor = Executors.newSingleThreadExecutor();
+    // Poll-thread handling: decode state, output and pending writes of the current batch
+    private final StageContext context = new StageContext();
 
-    // Create a thread pool for database saving
-    private static final ExecutorService dbExecutor = Executors.newFixedThreadPool(3);
+    // Lanes behind the poll thread; null when records are handled on the poll thread
+    private final StagedPipeline pipeline;
 
+    // Offsets handed to commitAsync that may not have landed yet (ASYNC strategy only)
+    private final Map<TopicPartition, OffsetAndMetadata> inFlightOffsets = new HashMap<>();
 
-    // Shutdown thread pool alertExecutor and dbExecutor
-    static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("Shutting down executors...");
+    // Whether our partitions are paused because a downstream queue is saturated
+    private boolean paused = false;
 
-            telegramAlertExecutor.shutdown();
-            dbExecutor.shutdown();
+    // Cleared by shutdown(); the poll loop then leaves the group cleanly
+    private volatile boolean running = true;
 
-            try {
-                if (!telegramAlertExecutor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                    telegramAlertExecutor.shutdownNow();
-                }
-                if (!dbExecutor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                    dbExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                telegramAlertExecutor.shutdownNow();
-                dbExecutor.shutdownNow();
-            }
+    // Undecodable records are reported on stderr at most this often per consumer
+    private static final long DEAD_LETTER_LOG_MS = 10_000;
+    private long lastDeadLetterLog = 0;
+    private long deadLettersSinceLog = 0;
 
-            System.out.println("All executors shut down cleanly.");
-        }));
-    }
+    // A rebalance waits this long for the lanes before committing what they finished
+    private static final long REVOKE_DRAIN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // How often a wait for DB acks checks whether the consumer is stopping
+    private static final long WRITE_WAIT_SLICE_MS = 100;
+
+    // Consumer lag is copied out of consumer.metrics() at most this often
+    private static final long LAG_REFRESH_MS = 5000;
+    private long lastLagRefresh = 0;
 
 
     public TopicConsumer(String bootstrapServers,
-                         String topic,
-                         TopicType type,
-                         Path outputFile,
-                         String botToken,
-                         String chatId,
-                         List<String> alertKeywords,
+                         TopicConfig topicConfig,
+                         int instance,
+                         OutputSink output,
+                         TelegramNotifier notifier,
+                         KeywordMatcher keywordMatcher,
+                         AlertDeduplicator alertDeduplicator,
                          AlertDB alertDB,
                          ServerStorageSnapshotDB serverStorageSnapshotDB,
-                         MountPathStorageUsageDB mountPathStorageUsageDB) {
-        this.topic = topic;
-        this.type = type;
-        this.outputFile = outputFile;
-        this.alertKeywords = alertKeywords;
-        this.alertDB = alertDB;
-        this.serverStorageSnapshotDB = serverStorageSnapshotDB;
-        this.mountPathStorageUsageDB = mountPathStorageUsageDB;
-
-        this.consumerFactory = new KafkaConsumerFactory(bootstrapServers, topic);
-        this.consumer = this.consumerFactory.createConsumer();
-        this.consumer.subscribe(Collections.singletonList(this.topic));
-        this.notifier = new TelegramNotifier(botToken, chatId);
+                         StorageStateIndex storageState,
+                         StorageAlertEvaluator storageAlerts,
+                         TopicMetrics metrics,
+                         ConsoleEcho console,
+                         DeadLetterQueue deadLetters) {
+        this(new KafkaConsumerFactory(bootstrapServers, topicConfig).createConsumer(instance),
+                topicConfig, instance, output, notifier, keywordMatcher, alertDeduplicator,
+                alertDB, serverStorageSnapshotDB, storageState, storageAlerts, metrics, console, deadLetters);
+
+        this.consumer.subscribe(Collections.singletonList(this.topic), new RebalanceListener());
     }
 
-
-    private void ensureOutputFileExists() {
-        if (!Files.exists(outputFile)) {
-            System.err.println(" Output file does NOT exist: " + outputFile);
-            System.err.println("   Please create it manually. Consumer will NOT write.");
+    /**
+     * Uses the given consumer as is, e.g. a MockConsumer in benchmarks and load
+     * tests; the caller subscribes or assigns it.
+     */
+    public TopicConsumer(Consumer<String, byte[]> consumer,
+                         TopicConfig topicConfig,
+                         int instance,
+                         OutputSink output,
+                         TelegramNotifier notifier,
+                         KeywordMatcher keywordMatcher,
+                         AlertDeduplicator alertDeduplicator,
+                         AlertDB alertDB,
+                         ServerStorageSnapshotDB serverStorageSnapshotDB,
+                         StorageStateIndex storageState,
+                         StorageAlertEvaluator storageAlerts,
+                         TopicMetrics metrics,
+                         ConsoleEcho console,
+                         DeadLetterQueue deadLetters) {
+        this.topic = topicConfig.getTopic();
+        this.instance = instance;
+        this.output = output;
+        this.outputPath = topicConfig.getOutput();
+        this.pollTimeout = Duration.ofMillis(topicConfig.getPollTimeoutMs());
+        this.maxPollRecords = topicConfig.getMaxPollRecords();
+        this.commitStrategy = topicConfig.getCommitStrategy();
+        this.alertDB = alertDB;
+        this.serverStorageSnapshotDB = serverStorageSnapshotDB;
+        this.metrics = metrics;
+        this.deadLetters = deadLetters;
+        this.consumer = consumer;
+        this.notifier = notifier;
+
+        switch (topicConfig.getType()) {
+
+            case LOG:
+                this.stage = new LogRecordStage(keywordMatcher, alertDeduplicator, notifier, alertDB,
+                        metrics, console);
+                break;
+
+            case METRIC:
+                this.stage = new MetricRecordStage(topic, storageState, storageAlerts, notifier, alertDB,
+                        serverStorageSnapshotDB, metrics, console);
+                break;
+
+            default:
+                throw new IllegalStateException(
+                        "Unsupported TopicType: " + topicConfig.getType()
+                );
         }
-    }
 
+        this.pipeline = topicConfig.getPipeline().getLanes() > 0
+                ? new StagedPipeline(topic, instance, topicConfig.getPipeline(), maxPollRecords, this::handleLaneBatch)
+                : null;
+    }
 
 
     @Override
     public void run() {
 
-        ensureOutputFileExists();
+        try {
+            System.out.printf("Listening to %s [%d] → writing to %s%n", topic, instance, outputPath);
 
-        try (FileWriter writer = new FileWriter(outputFile.toFile(), true)) {
-            System.out.printf("Listening to %s → writing to %s%n", topic, outputFile);
+            while (running) {
+                applyBackpressure();
 
-            while (true) {
-                ConsumerRecords<String, String> records =
-                        consumer.poll(Duration.ofMillis(500));
+                ConsumerRecords<String, byte[]> records =
+                        consumer.poll(pollTimeout);
 
-                for (ConsumerRecord<String, String> record : records) {
+                refreshLag();
 
-                    switch (type) {
-
-                        case LOG:
-                            handleLogRecord(record, writer);
-                            break;
-
-                        case METRIC:
-                            handleMetricRecord(record, writer);
-                            break;
-
-                        default:
-                            throw new IllegalStateException(
-                                    "Unsupported TopicType: " + type
-                            );
+                if (pipeline != null) {
+                    pipeline.checkFailure();
+                    if (!records.isEmpty()) {
+                        pipeline.publish(records);
                     }
+                    commitCompleted();
+                    continue;
                 }
+
+                if (records.isEmpty()) {
+                    continue;
+                }
+
+                processBatch(records);
             }
 
 
+        } catch (WakeupException e) {
+            // shutdown() while blocked in poll or commit
         } catch (IOException e) {
-            System.err.println("File error: " + e.getMessage());
+            // An abandoned wait for writes after shutdown() is not an error
+            if (running) {
+                System.err.println("File error: " + e.getMessage());
+            }
         } finally {
-            consumer.close();
+            try {
+                if (pipeline != null) {
+                    // Lanes are stopped before close() revokes our partitions, so the revoke never
+                    // waits on lanes stuck on a sick database; what they finished is still committed
+                    pipeline.close();
+                    commitFinished();
+                }
+            } finally {
+                consumer.close();
+            }
+            if (!running) {
+                System.out.printf("Stopped %s [%d]%n", topic, instance);
+            }
         }
     }
 
-    private void handleMetricRecord(
-            ConsumerRecord<String, String> record,
-            FileWriter writer
-    ) throws IOException {
-
-        ServerStorageSnapshot serverStorageSnapshot =
-                mapper.readValue(record.value(), ServerStorageSnapshot.class);
-
-        System.out.println("===== SERVER STORAGE SNAPSHOT RECEIVED =====");
-        System.out.println("Server   : " + serverStorageSnapshot.getServerName());
-        System.out.println("IP       : " + serverStorageSnapshot.getServerIp());
-        System.out.println("Timestamp: " + serverStorageSnapshot.getTimestamp());
-
-        for (MountPathStorageUsage spsu : serverStorageSnapshot.getMountPathStorageUsages()) {
-            System.out.printf(
-                    "Path: %-12s | Used: %6.2f%% | Used: %d / %d bytes%n",
-                    spsu.getPath(),
-                    spsu.getUsedPercent(),
-                    spsu.getUsedBytes(),
-                    spsu.getTotalBytes()
-            );
+    // Shutdown only: commits what the stopped lanes completed, without waiting for anything
+    private void commitFinished() {
+        try {
+            commitCompleted();
+        } catch (WakeupException e) {
+            // The wakeup of shutdown() was still pending; it is used up now
+            commitCompleted();
+        } catch (RuntimeException e) {
+            System.err.printf("[%s][%d] Final offset commit failed: %s%n", topic, instance, e.getMessage());
         }
-        System.out.println("=========================================");
+    }
 
+    /**
+     * Asks the poll loop to stop; run() commits what it finished, leaves the
+     * group and returns shortly after. Safe to call from any thread.
+     */
+    public void shutdown() {
+        running = false;
+        consumer.wakeup();
+    }
 
-        if (Files.exists(outputFile)) {
-            ObjectWriter prettyWriter =
-                    mapper.writerWithDefaultPrettyPrinter();
+    /**
+     * Handles one poll result as a unit: every record is processed, the output
+     * is flushed once and offsets are committed once. Also the entry point for
+     * benchmarks and load tests; with lanes it returns once they are done.
+     */
+    public void processBatch(ConsumerRecords<String, byte[]> records) throws IOException {
+        if (pipeline != null) {
+            pipeline.publish(records);
+            if (!pipeline.drain()) {
+                throw new IOException("Pipeline of " + topic + " [" + instance + "] is closed");
+            }
+            commitCompleted();
+            return;
+        }
+
+        long batchStart = System.nanoTime();
 
-            writer.write(prettyWriter.writeValueAsString(serverStorageSnapshot));
-            writer.write(System.lineSeparator());
-            writer.flush();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            handleRecord(record, context);
         }
 
+        writeBatchOutput(context);
 
-        dbExecutor.submit(() -> {
-            try {
-                long serverStorageUsageId =
-                        serverStorageSnapshotDB.saveSnapshot(serverStorageSnapshot);
+        if (commitStrategy == CommitStrategy.AUTO) {
+            context.clearWrites();
+        } else {
+            commitWhenAcknowledged(records);
+        }
+        metrics.batch().recordSince(batchStart);
+    }
 
-                for (MountPathStorageUsage spsu : serverStorageSnapshot.getMountPathStorageUsages()) {
-                    mountPathStorageUsageDB.savePath(serverStorageUsageId, spsu);
-                }
+    // One lane's share of the published records; the pipeline replays it on a CompletionException
+    private void handleLaneBatch(List<ConsumerRecord<String, byte[]>> records, StageContext laneContext)
+            throws IOException {
+        long batchStart = System.nanoTime();
+
+        for (ConsumerRecord<String, byte[]> record : records) {
+            handleRecord(record, laneContext);
+        }
+
+        writeBatchOutput(laneContext);
+
+        if (commitStrategy == CommitStrategy.AUTO) {
+            laneContext.clearWrites();
+        } else {
+            awaitWrites(laneContext, pipeline::isRunning);
+        }
+        metrics.batch().recordSince(batchStart);
+    }
+
+    private void handleRecord(ConsumerRecord<String, byte[]> record, StageContext stageContext) {
+        metrics.recordConsumed(record.serializedValueSize());
+
+        // One bad record must not take the consumer down with it
+        try {
+            stage.handle(record, stageContext);
+        } catch (IOException | RuntimeException e) {
+            handlePoisonRecord(record, e, stageContext);
+        }
+        stageContext.linkWrites(record);
+    }
 
-            } catch (Exception e) {
-                System.err.println("[METRIC][DB] Failed to save storage metrics");
-                e.printStackTrace();
+    private void handlePoisonRecord(ConsumerRecord<String, byte[]> record, Throwable error, StageContext stageContext) {
+        metrics.recordDeadLetter();
+        stageContext.pendingWrites().add(deadLetters.submit(record, error));
+        stageContext.linkWrites(record);
+
+        // Lanes share the rate limit
+        synchronized (this) {
+            deadLettersSinceLog++;
+            long now = System.currentTimeMillis();
+            if (now - lastDeadLetterLog >= DEAD_LETTER_LOG_MS) {
+                System.err.printf("[%s][%d] %d bad record(s) sent to dead letters, last at partition %d offset %d: %s%n",
+                        topic, instance, deadLettersSinceLog, record.partition(), record.offset(), error.getMessage());
+                lastDeadLetterLog = now;
+                deadLettersSinceLog = 0;
             }
-        });
+        }
     }
 
+    /**
+     * Pauses all assigned partitions while a downstream queue is near capacity and
+     * resumes them once it has drained. poll() keeps running meanwhile, so the
+     * consumer stays in the group instead of blocking past max.poll.interval.ms.
+     * With lanes, a ring that has no room for another poll batch after one poll
+     * timeout counts as saturated too.
+     */
+    private void applyBackpressure() throws IOException {
+        boolean saturated = alertDB.isSaturated()
+                || serverStorageSnapshotDB.isSaturated()
+                || notifier.isSaturated()
+                || deadLetters.isSaturated()
+                || (pipeline != null && !pipeline.awaitRoom(maxPollRecords, pollTimeout.toNanos()));
+
+        if (saturated) {
+            // Re-applied every loop so partitions assigned during a rebalance are paused too
+            consumer.pause(consumer.assignment());
+            if (!paused) {
+                System.err.printf("[%s][%d] Downstream queue full, pausing consumption%n", topic, instance);
+                paused = true;
+            }
+        } else if (paused) {
+            consumer.resume(consumer.paused());
+            System.out.printf("[%s][%d] Downstream queue drained, resuming consumption%n", topic, instance);
+            paused = false;
+        }
+    }
 
+    private void refreshLag() {
+        long now = System.currentTimeMillis();
+        if (now - lastLagRefresh >= LAG_REFRESH_MS) {
+            metrics.updateLag(consumer.metrics());
+            lastLagRefresh = now;
+        }
+    }
 
-    private void handleLogRecord(ConsumerRecord<String, String> record, FileWriter writer) throws IOException {
+    private void writeBatchOutput(StageContext stageContext) throws IOException {
+        StringBuilder batchOutput = stageContext.output();
+        if (batchOutput.length() == 0) {
+            return;
+        }
 
-        LogEvent event = mapper.readValue(record.value(), LogEvent.class);
+        // One append per batch; the sink is shared with the topic's other consumers and lanes
+        long sinkStart = System.nanoTime();
+        output.append(batchOutput);
+        output.commitBatch();
+        batchOutput.setLength(0);
+        metrics.sink().recordSince(sinkStart);
+    }
 
-        String msg = event.getMessage();
-        String lowerMsg = msg.toLowerCase();
+    /**
+     * Throws CompletionException if any write of the batch failed for a reason
+     * that a replay can fix (see {@link BatchWriter#isPermanent}), and
+     * InterruptedIOException if {@code keepWaiting} turns false first, so a
+     * stopping consumer does not hang on a database that never answers.
+     * Records whose rows the database rejected for good go to dead letters
+     * instead, and the wait goes on for those.
+     */
+    private void awaitWrites(StageContext stageContext, BooleanSupplier keepWaiting) throws IOException {
+        List<CompletableFuture<Void>> pendingWrites = stageContext.pendingWrites();
+        try {
+            while (!awaitAll(pendingWrites, keepWaiting)) {
+                Map<ConsumerRecord<String, byte[]>, Throwable> rejected = new LinkedHashMap<>();
+                for (int i = 0; i < pendingWrites.size(); i++) {
+                    Throwable error = pendingWrites.get(i).handle((ignored, t) -> t).join();
+                    if (error == null) {
+                        continue;
+                    }
+                    if (!BatchWriter.isPermanent(error)) {
+                        throw new CompletionException(error);
+                    }
+                    rejected.putIfAbsent(stageContext.writeRecord(i), error);
+                }
 
-        String formattedTime =
-                Instant.parse(event.getTimestamp())
-                        .atZone(ZoneId.systemDefault())
-                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                stageContext.clearWrites();
+                rejected.forEach((record, error) -> handlePoisonRecord(record, error, stageContext));
+            }
+        } finally {
+            stageContext.clearWrites();
+        }
+    }
 
+    // True once all writes succeeded, false once all are done and any failed
+    private static boolean awaitAll(List<CompletableFuture<Void>> writes, BooleanSupplier keepWaiting)
+            throws IOException {
+        CompletableFuture<Void> all = CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+        while (true) {
+            try {
+                all.get(WRITE_WAIT_SLICE_MS, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                if (!keepWaiting.getAsBoolean()) {
+                    throw new InterruptedIOException("Stopped while waiting for writes");
+                }
+            } catch (ExecutionException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for writes");
+            }
+        }
+    }
 
-        System.out.printf(
-                "[%s] (%s) %s%n",
-                formattedTime,
-                event.getTopic(),
-                msg
-        );
+    private void commitWhenAcknowledged(ConsumerRecords<String, byte[]> records) throws IOException {
+        try {
+            awaitWrites(context, () -> running);
+        } catch (CompletionException e) {
+            // Rewind so the whole batch is redelivered on the next poll (at-least-once)
+            System.err.println("[" + topic + "] DB write failed, replaying batch: "
+                    + e.getCause().getMessage());
+            rewind(records);
+            return;
+        }
 
-        if (Files.exists(outputFile)) {
-            writer.write(
-                    formattedTime + " [" + event.getServerName() + "] " +
-                            msg + System.lineSeparator()
-            );
-            writer.flush();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, byte[]>> partitionRecords = records.records(partition);
+            long lastOffset = partitionRecords.get(partitionRecords.size() - 1).offset();
+            offsets.put(partition, new OffsetAndMetadata(lastOffset + 1));
         }
 
-        boolean alert = alertKeywords.stream()
-                .anyMatch(k -> lowerMsg.contains(k));
+        commit(offsets);
+    }
+
+    private void commitCompleted() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = pipeline.takeCompletedOffsets();
+
+        // Lanes may finish records of partitions revoked while they were stuck; those are not ours anymore
+        offsets.keySet().retainAll(consumer.assignment());
+
+        if (!offsets.isEmpty() && commitStrategy != CommitStrategy.AUTO) {
+            commit(offsets);
+        }
+    }
 
-        if (alert) {
-            processAlert(event);
+    private void commit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (commitStrategy == CommitStrategy.ASYNC) {
+            inFlightOffsets.putAll(offsets);
+            consumer.commitAsync(offsets, (committed, e) -> {
+                if (e != null) {
+                    System.err.println("[" + topic + "] Offset commit failed: " + e.getMessage());
+                } else {
+                    committed.forEach(inFlightOffsets::remove);
+                }
+            });
+        } else {
+            consumer.commitSync(offsets);
         }
     }
 
-    private void processAlert(LogEvent event) {
-
-        String formattedTime =
-                Instant.parse(event.getTimestamp())
-                        .atZone(ZoneId.systemDefault())
-                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-
-        String alertMessage =
-                "ALERT\n" +
-                        " Time: " + formattedTime + "\n" +
-                        " Host: " + event.getServerName() + "\n" +
-                        " File: " + event.getPath() + "\n" +
-                        " Topic: " + event.getTopic() + "\n" +
-                        " Message: " + event.getMessage();
-
-        telegramAlertExecutor.submit(() -> notifier.sendMessage(alertMessage));
-
-        dbExecutor.submit(() ->
-                alertDB.saveAlert(
-                        event.getTopic(),
-                        event.getTimestamp(),
-                        event.getServerName(),
-                        event.getPath(),
-                        event.getMessage()
-                )
-        );
+    private void rewind(ConsumerRecords<String, byte[]> records) {
+        for (TopicPartition partition : records.partitions()) {
+            consumer.seek(partition, records.records(partition).get(0).offset());
+        }
+
+        // Give the database a moment before the batch is retried
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
+    /**
+     * Keeps rebalances lossless: work for a poll batch is finished and committed
+     * before the next poll, so the only thing that can still be in flight when
+     * partitions are taken away is an async commit, which is made synchronous here.
+     * With lanes, the lanes are drained first (for up to 10 s, so a stuck lane cannot
+     * hold up the rebalance) and what they finished is committed.
+     */
+    private class RebalanceListener implements ConsumerRebalanceListener {
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+            // Skipped on shutdown: the lanes are already stopped and what they finished is committed
+            if (pipeline != null && pipeline.isRunning()) {
+                try {
+                    if (!pipeline.drain(REVOKE_DRAIN_NANOS)) {
+                        System.err.printf("[%s][%d] Lanes still busy after %d ms, leaving their records uncommitted%n",
+                                topic, instance, TimeUnit.NANOSECONDS.toMillis(REVOKE_DRAIN_NANOS));
+                    }
+                    if (commitStrategy != CommitStrategy.AUTO) {
+                        toCommit.putAll(pipeline.takeCompletedOffsets());
+                    }
+                } catch (IOException e) {
+                    // The poll loop stops on the same failure right after this callback
+                    System.err.printf("[%s][%d] Pipeline failed during rebalance: %s%n", topic, instance, e.getMessage());
+                }
+            }
 
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata offset = inFlightOffsets.remove(partition);
+                if (offset != null) {
+                    toCommit.putIfAbsent(partition, offset);
+                }
+            }
 
-}
\ No newline at end of file
+            if (!toCommit.isEmpty()) {
+                consumer.commitSync(toCommit);
+            }
+
+            metrics.removeLag(partitions);
+
+            if (!partitions.isEmpty()) {
+                System.out.printf("[%s][%d] Partitions revoked: %s%n", topic, instance, partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (!partitions.isEmpty()) {
+                System.out.printf("[%s][%d] Partitions assigned: %s%n", topic, instance, partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            // Another member may already own these; committing would overwrite its progress
+            partitions.forEach(inFlightOffsets::remove);
+            if (pipeline != null && pipeline.isRunning()) {
+                try {
+                    pipeline.discard(partitions, REVOKE_DRAIN_NANOS);
+                } catch (IOException e) {
+                    System.err.printf("[%s][%d] Pipeline failed during rebalance: %s%n", topic, instance, e.getMessage());
+                }
+            }
+            metrics.removeLag(partitions);
+        }
+    }
+}
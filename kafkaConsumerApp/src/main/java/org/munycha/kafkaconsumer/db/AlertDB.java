@@ -1,61 +1,143 @@
 package org.munycha.kafkaconsumer.db;
 
 import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-public class AlertDB {
-    private final String url;
-    private final String user;
-    private final String password;
+public class AlertDB implements AutoCloseable {
     private final String table;
+    private final BatchWriter<AlertRow> writer;
 
-    public AlertDB(DatabaseConfig dbConfig) {
-        this.url = dbConfig.getUrl();
-        this.user = dbConfig.getUser();
-        this.password = dbConfig.getPassword();
+    public AlertDB(DatabaseConfig dbConfig, ConnectionPool pool, IoExecutor dbIo) {
         this.table = dbConfig.getTables().getAlertLogTable();
+        this.writer = new BatchWriter<>("alerts", pool, dbConfig, this::insertBatch, new AlertRowCodec(), dbIo);
     }
 
-    private Connection getConnection() throws Exception {
-        return DriverManager.getConnection(url, user, password);
+    public boolean isSaturated() {
+        return writer.isSaturated();
     }
 
-    public void saveAlert(
+    public void registerMetrics(MetricsRegistry registry) {
+        writer.registerMetrics(registry);
+    }
+
+    public CompletableFuture<Void> saveAlert(
             String topic,
-            String timestamp,
+            Instant timestamp,
             String serverName,
             String filePath,
             String message
     ) {
+        return writer.submit(new AlertRow(topic, timestamp, serverName, filePath, message));
+    }
+
+    private void insertBatch(Connection conn, List<AlertRow> rows) throws SQLException {
         String sql =
                 "INSERT INTO " + table +
                         " (topic, server_name, file_path, event_timestamp, message) " +
                         "VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, topic);
-            stmt.setString(2, serverName);
-            stmt.setString(3, filePath);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (AlertRow row : rows) {
+                stmt.setString(1, row.topic);
+                stmt.setString(2, row.serverName);
+                stmt.setString(3, row.filePath);
+
+                stmt.setTimestamp(
+                        4,
+                        Timestamp.from(row.timestamp)
+                );
 
-            stmt.setTimestamp(
-                    4,
-                    Timestamp.from(Instant.parse(timestamp))
-            );
+                stmt.setString(5, row.message);
+                stmt.addBatch();
+            }
 
-            stmt.setString(5, message);
+            stmt.executeBatch();
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
 
-            stmt.executeUpdate();
+    private static final class AlertRow {
+        private final String topic;
+        private final Instant timestamp;
+        private final String serverName;
+        private final String filePath;
+        private final String message;
 
-        } catch (Exception e) {
-            System.err.println("[DB ERROR] Failed to save alert: " + e.getMessage());
+        private AlertRow(String topic, Instant timestamp, String serverName, String filePath, String message) {
+            this.topic = topic;
+            this.timestamp = timestamp;
+            this.serverName = serverName;
+            this.filePath = filePath;
+            this.message = message;
         }
     }
 
-}
+    private static final class AlertRowCodec implements BoundedQueue.Codec<AlertRow> {
+        @Override
+        public byte[] encode(AlertRow row) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeNullable(out, row.topic);
+                out.writeLong(row.timestamp.getEpochSecond());
+                out.writeInt(row.timestamp.getNano());
+                writeNullable(out, row.serverName);
+                writeNullable(out, row.filePath);
+                // writeUTF is limited to 64 KB; messages can be longer
+                byte[] message = row.message == null ? null : row.message.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(message == null ? -1 : message.length);
+                if (message != null) {
+                    out.write(message);
+                }
+            }
+            return bytes.toByteArray();
+        }
 
+        @Override
+        public AlertRow decode(byte[] bytes) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                String topic = readNullable(in);
+                Instant timestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                String serverName = readNullable(in);
+                String filePath = readNullable(in);
+                int length = in.readInt();
+                String message = null;
+                if (length >= 0) {
+                    byte[] raw = in.readNBytes(length);
+                    message = new String(raw, StandardCharsets.UTF_8);
+                }
+                return new AlertRow(topic, timestamp, serverName, filePath, message);
+            }
+        }
+
+        private static void writeNullable(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package org.munycha.kafkaconsumer.db;
+
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.metrics.Histogram;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
+
+import java.io.IOException;
+
+import java.sql.Connection;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind batcher: rows are queued by {@link #submit(Object)} and a
+ * background thread writes them in multi-row JDBC batches, one transaction
+ * per batch. A batch is flushed when it reaches {@code batchSize} rows or
+ * when its oldest row has waited {@code lingerMs}, whichever comes first.
+ * <p>
+ * Every submitted row gets a future that completes once its batch has been
+ * committed (or fails with the batch), so callers can hold back Kafka offset
+ * commits until the rows are really in the database.
+ * <p>
+ * The queue is bounded by {@code database.queue}. Rows that are dropped or
+ * spilled to disk under its overflow policy are acknowledged right away:
+ * they are out of Kafka's hands either way, and failing them would only make
+ * the consumer replay the batch into the same full queue.
+ * <p>
+ * Under SPILL a failed batch goes to the spill log too, and the queue is
+ * diverted to disk until a later batch succeeds. Consumers then keep going
+ * on a database that is down, instead of replaying the same batch. Retries
+ * back off from one second up to {@value #MAX_BACKOFF_MS} ms. Spilled rows are
+ * replayed in normal batches once the database is back and released from
+ * the log only when committed. Without SPILL a failed batch fails its
+ * futures and the consumer replays it from Kafka.
+ * <p>
+ * None of that applies when the database rejects a row for good (see
+ * {@link #isPermanent(Throwable)}): the batch is retried in halves so the
+ * other rows still commit, and only the rejected rows' futures fail, with
+ * the database's error. They are neither spilled nor worth replaying.
+ * <p>
+ * With an {@link IoExecutor} the JDBC calls run on its threads (virtual in
+ * VIRTUAL mode), so several batches can be in flight, capped by the executor's
+ * semaphore; without one, batches are written one at a time on the collector thread.
+ */
+public class BatchWriter<T> implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchStatement<T> {
+        void write(Connection conn, List<T> batch) throws SQLException;
+    }
+
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final String name;
+    private final ConnectionPool pool;
+    private final BatchStatement<T> statement;
+    private final Consumer<List<T>> onFailure;
+    private final int batchSize;
+    private final long lingerNanos;
+
+    private final IoExecutor io;
+    private final BoundedQueue<Entry<T>> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // No batch is started before this (System.nanoTime) after a failure under SPILL
+    private volatile long retryAt = 0;
+    private long backoffMs = MIN_BACKOFF_MS;
+
+    private final Histogram insertLatency = new Histogram();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsFailed = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+
+    public BatchWriter(String name, ConnectionPool pool, DatabaseConfig dbConfig, BatchStatement<T> statement) {
+        this(name, pool, dbConfig, statement, null, null);
+    }
+
+    // rowCodec is only used by the SPILL overflow policy; without it SPILL falls back to BLOCK
+    public BatchWriter(String name,
+                       ConnectionPool pool,
+                       DatabaseConfig dbConfig,
+                       BatchStatement<T> statement,
+                       BoundedQueue.Codec<T> rowCodec,
+                       IoExecutor io) {
+        this(name, pool, dbConfig, statement, rowCodec, io, null);
+    }
+
+    /**
+     * {@code onFailure} sees the rows of every transaction that was rolled
+     * back, whether they are then spilled, failed or retried in halves.
+     */
+    public BatchWriter(String name,
+                       ConnectionPool pool,
+                       DatabaseConfig dbConfig,
+                       BatchStatement<T> statement,
+                       BoundedQueue.Codec<T> rowCodec,
+                       IoExecutor io,
+                       Consumer<List<T>> onFailure) {
+        this.name = name;
+        this.onFailure = onFailure;
+        this.io = io;
+        this.pool = pool;
+        this.statement = statement;
+        this.batchSize = Math.max(1, dbConfig.getBatchSize());
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, dbConfig.getLingerMs()));
+        this.queue = new BoundedQueue<>(name, dbConfig.getQueue(), entryCodec(rowCodec), entry -> entry.ack.complete(null));
+
+        this.worker = new Thread(this::runLoop, "db-writer-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public CompletableFuture<Void> submit(T row) {
+        if (!running) {
+            System.err.println("[DB ERROR] Writer " + name + " is closed, row dropped");
+            return CompletableFuture.failedFuture(new IllegalStateException("Writer " + name + " is closed"));
+        }
+
+        Entry<T> entry = new Entry<>(row);
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.ack.completeExceptionally(e);
+        }
+        return entry.ack;
+    }
+
+    /**
+     * True while the queue is close to full under the BLOCK policy; consumers
+     * pause their partitions until it drains.
+     */
+    public boolean isSaturated() {
+        return queue.isSaturated();
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge("db_queue_depth", "Rows waiting to be written", queue::size, "writer", name);
+        registry.histogram("db_insert_seconds", "Time to write and commit one batch", insertLatency, "writer", name);
+        registry.counter("db_rows_written_total", "Rows committed", rowsWritten::sum, "writer", name);
+        registry.counter("db_rows_failed_total", "Rows in batches that failed", rowsFailed::sum, "writer", name);
+        registry.counter("db_rows_rejected_total", "Rows the database rejected for good", rowsRejected::sum,
+                "writer", name);
+        registry.counter("db_rows_dropped_total", "Rows dropped by the DROP_OLDEST overflow policy",
+                queue::droppedCount, "writer", name);
+        registry.counter("db_rows_spilled_total", "Rows spilled to disk by the SPILL overflow policy",
+                queue::spilledCount, "writer", name);
+        registry.gauge("db_spill_pending_rows", "Spilled rows not yet read back", queue::spillPendingCount,
+                "writer", name);
+        registry.gauge("db_spill_bytes", "Disk taken by the spill log", queue::spillBytes, "writer", name);
+        registry.gauge("db_diverted", "1 while new rows go straight to the spill log after a failure",
+                () -> queue.isDiverted() ? 1 : 0, "writer", name);
+    }
+
+    private static <T> BoundedQueue.Codec<Entry<T>> entryCodec(BoundedQueue.Codec<T> rowCodec) {
+        if (rowCodec == null) {
+            return null;
+        }
+
+        return new BoundedQueue.Codec<>() {
+            @Override
+            public byte[] encode(Entry<T> entry) throws IOException {
+                return rowCodec.encode(entry.row);
+            }
+
+            @Override
+            public Entry<T> decode(byte[] bytes) throws IOException {
+                // Replayed rows were acknowledged when spilled; nobody waits on this future
+                return new Entry<>(rowCodec.decode(bytes));
+            }
+
+            @Override
+            public Entry<T> decode(byte[] bytes, Runnable done) throws IOException {
+                // Stays in the spill log until committed or spilled again
+                Entry<T> entry = decode(bytes);
+                entry.ack.whenComplete((ignored, e) -> done.run());
+                return entry;
+            }
+        };
+    }
+
+    private void runLoop() {
+        List<Entry<T>> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                // Rows spilled by submit() since the last round are acknowledged once on disk
+                queue.syncSpill();
+
+                long backoff = retryAt - System.nanoTime();
+                if (backoff > 0 && running) {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(backoff, TimeUnit.MILLISECONDS.toNanos(100)));
+                    continue;
+                }
+
+                Entry<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the linger deadline passes
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) {
+                        break;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+
+                    Entry<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                dispatch(batch);
+                batch = new ArrayList<>(batchSize);
+
+            } catch (InterruptedException e) {
+                // close() drains whatever is left
+                running = false;
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+        queue.close();
+    }
+
+    private void dispatch(List<Entry<T>> batch) throws InterruptedException {
+        if (io == null) {
+            flush(batch);
+            return;
+        }
+        io.execute(() -> flush(batch));
+    }
+
+    private void flush(List<Entry<T>> batch) {
+        long start = System.nanoTime();
+        Exception error = write(batch);
+        if (error == null) {
+            insertLatency.recordSince(start);
+            written(batch);
+        } else if (isPermanent(error)) {
+            isolate(batch, error);
+        } else {
+            failed(batch, error);
+        }
+    }
+
+    // One transaction; returns what rolled it back, or null once committed
+    private Exception write(List<Entry<T>> batch) {
+        List<T> rows = new ArrayList<>(batch.size());
+        for (Entry<T> entry : batch) {
+            rows.add(entry.row);
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                statement.write(conn, rows);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+            return null;
+        } catch (Exception e) {
+            if (onFailure != null) {
+                onFailure.accept(rows);
+            }
+            return e;
+        }
+    }
+
+    /**
+     * A permanent error fails the whole JDBC batch for the sake of one row.
+     * The batch is split in halves until the rows the database rejects are
+     * found; only their futures fail, the rest are committed.
+     */
+    private void isolate(List<Entry<T>> batch, Exception error) {
+        if (batch.size() == 1) {
+            rejected(batch.get(0), error);
+            return;
+        }
+
+        int mid = batch.size() / 2;
+        for (List<Entry<T>> half : List.of(batch.subList(0, mid), batch.subList(mid, batch.size()))) {
+            Exception e = write(half);
+            if (e == null) {
+                written(half);
+            } else if (isPermanent(e)) {
+                isolate(half, e);
+            } else {
+                failed(half, e);
+            }
+        }
+    }
+
+    private void written(List<Entry<T>> batch) {
+        rowsWritten.add(batch.size());
+
+        if (queue.isDiverted() && queue.divert(false)) {
+            System.out.println("[DB] Writer " + name + " recovered, replaying "
+                    + queue.spillPendingCount() + " spilled rows");
+        }
+        synchronized (this) {
+            backoffMs = MIN_BACKOFF_MS;
+        }
+
+        for (Entry<T> entry : batch) {
+            entry.ack.complete(null);
+        }
+    }
+
+    private void failed(List<Entry<T>> batch, Exception e) {
+        rowsFailed.add(batch.size());
+        if (queue.canSpill()) {
+            spillFailed(batch, e);
+            return;
+        }
+
+        System.err.println("[DB ERROR] Failed to write " + batch.size()
+                + " rows (" + name + "): " + e.getMessage());
+        for (Entry<T> entry : batch) {
+            entry.ack.completeExceptionally(e);
+        }
+    }
+
+    // Neither replayed nor spilled: it would only fail again
+    private void rejected(Entry<T> entry, Exception e) {
+        rowsRejected.increment();
+        System.err.println("[DB ERROR] Row rejected (" + name + "): " + e.getMessage());
+        entry.ack.completeExceptionally(e);
+    }
+
+    /**
+     * True for errors caused by the rows themselves (bad values, constraint
+     * violations: SQLState classes 22 and 23), which fail the same way however
+     * often they are retried. Everything else, including syntax errors and
+     * missing tables that affect every row alike, counts as temporary.
+     */
+    public static boolean isPermanent(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLDataException || t instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // The rows are safe on disk, so their futures succeed; a full spill log fails them instead
+    private void spillFailed(List<Entry<T>> batch, Exception e) {
+        int spilled = 0;
+        for (Entry<T> entry : batch) {
+            if (queue.offerToSpill(entry)) {
+                spilled++;
+            } else {
+                entry.ack.completeExceptionally(e);
+            }
+        }
+
+        long delay;
+        synchronized (this) {
+            delay = backoffMs;
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+        retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+
+        if (queue.divert(true)) {
+            System.err.println("[DB ERROR] Writer " + name + " failed, diverting rows to the spill log: "
+                    + e.getMessage());
+        }
+        queue.syncSpill();
+        System.err.println("[DB ERROR] Failed to write " + batch.size() + " rows (" + name + "), "
+                + spilled + " spilled, retrying in " + delay + " ms: " + e.getMessage());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        // Spilled rows stay on disk for the next start
+        queue.stopReplay();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T row;
+        private final CompletableFuture<Void> ack = new CompletableFuture<>();
+
+        private Entry(T row) {
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.munycha.kafkaconsumer.db;
+
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small fixed-size JDBC connection pool shared by all DB writers.
+ * <p>
+ * Connections handed out by {@link #getConnection()} return themselves to the
+ * pool when closed, so callers keep the usual try-with-resources pattern.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    // Idle connections older than this are pinged before being reused
+    private static final long VALIDATE_AFTER_IDLE_MS = 30_000;
+
+    private final String url;
+    private final Properties connectionProps = new Properties();
+    private final long borrowTimeoutMs;
+
+    private final BlockingQueue<PooledEntry> idle;
+    private final Semaphore permits;
+    private volatile boolean closed = false;
+
+    public ConnectionPool(DatabaseConfig dbConfig) {
+        this.url = dbConfig.getUrl();
+        if (dbConfig.getUser() != null) {
+            this.connectionProps.setProperty("user", dbConfig.getUser());
+        }
+        if (dbConfig.getPassword() != null) {
+            this.connectionProps.setProperty("password", dbConfig.getPassword());
+        }
+
+        // Let Connector/J turn addBatch()/executeBatch() into multi-row INSERTs
+        if (url.startsWith("jdbc:mysql:")) {
+            this.connectionProps.setProperty("rewriteBatchedStatements", "true");
+        }
+
+        this.borrowTimeoutMs = dbConfig.getConnectionTimeoutMs();
+
+        int poolSize = Math.max(1, dbConfig.getPoolSize());
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            return wrap(takeIdleOrOpen());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry takeIdleOrOpen() throws SQLException {
+        PooledEntry entry;
+
+        while ((entry = idle.poll()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            closeQuietly(entry.raw);
+        }
+
+        return new PooledEntry(DriverManager.getConnection(url, connectionProps));
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - entry.lastReleased > VALIDATE_AFTER_IDLE_MS) {
+                return entry.raw.isValid(2);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection wrap(PooledEntry entry) {
+        boolean[] released = {false};
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+
+                    if (name.equals("close")) {
+                        if (!released[0]) {
+                            released[0] = true;
+                            release(entry);
+                        }
+                        return null;
+                    }
+                    if (name.equals("isClosed") && released[0]) {
+                        return true;
+                    }
+                    if (released[0]) {
+                        throw new SQLException("Connection already returned to pool");
+                    }
+
+                    try {
+                        return method.invoke(entry.raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void release(PooledEntry entry) {
+        try {
+            // Never hand out a connection with a half-finished transaction
+            if (!entry.raw.isClosed() && !entry.raw.getAutoCommit()) {
+                entry.raw.rollback();
+                entry.raw.setAutoCommit(true);
+            }
+            entry.lastReleased = System.currentTimeMillis();
+
+            if (closed || entry.raw.isClosed() || !idle.offer(entry)) {
+                closeQuietly(entry.raw);
+            }
+        } catch (SQLException e) {
+            closeQuietly(entry.raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        PooledEntry entry;
+        while ((entry = idle.poll()) != null) {
+            closeQuietly(entry.raw);
+        }
+    }
+
+    private static final class PooledEntry {
+        private final Connection raw;
+        private long lastReleased = System.currentTimeMillis();
+
+        private PooledEntry(Connection raw) {
+            this.raw = raw;
+        }
+    }
+}
@@ -1,48 +1,162 @@
 package org.munycha.kafkaconsumer.db;
 
 import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.DeltaWriteConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
 import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Writes the mount path rows of snapshots.
+ * <p>
+ * In delta mode a row is only written when the mount changed since the last
+ * row written for it: usedPercent moved by more than {@code epsilonPercent},
+ * the total size changed, or {@code heartbeatSeconds} of collection time
+ * passed. The mount's usage at any time is then its latest row at or before
+ * that time, to within epsilon. The cache starts empty, so the first
+ * snapshot after a start is written in full.
+ */
 public class MountPathStorageUsageDB {
 
-    private final String url;
-    private final String user;
-    private final String password;
     private final String table;
+    private final boolean delta;
+    private final double epsilonPercent;
+    private final long heartbeatMs;
+
+    // Last written row per systemId + NUL + serverName, then per path
+    private final Map<String, Map<String, LastWritten>> lastWritten = new HashMap<>();
+
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsSkipped = new LongAdder();
 
     public MountPathStorageUsageDB(DatabaseConfig dbConfig) {
-        this.url = dbConfig.getUrl();
-        this.user = dbConfig.getUser();
-        this.password = dbConfig.getPassword();
         this.table = dbConfig.getTables().getMountPathStorageUsageTable();
+
+        DeltaWriteConfig config = dbConfig.getDeltaWrites();
+        this.delta = config.isEnabled();
+        this.epsilonPercent = Math.max(0, config.getEpsilonPercent());
+        this.heartbeatMs = TimeUnit.SECONDS.toMillis(Math.max(0, config.getHeartbeatSeconds()));
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+    public boolean isDeltaEnabled() {
+        return delta;
     }
 
-    public void savePath(long serverStorageSnapshotId, MountPathStorageUsage mountPathStorageUsage) throws SQLException {
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.counter("mount_rows_written_total", "Mount path rows inserted", rowsWritten::sum);
+        registry.counter("mount_rows_skipped_total", "Mount path rows skipped as unchanged (delta mode)",
+                rowsSkipped::sum);
+    }
+
+    /**
+     * Inserts the mount paths of every snapshot as one JDBC batch on the
+     * caller's connection, so they commit together with their parent rows.
+     * {@code snapshotIds[i]} is the generated id of {@code snapshots.get(i)}.
+     */
+    public void insertPaths(Connection conn, long[] snapshotIds, List<ServerStorageSnapshot> snapshots) throws SQLException {
 
         String sql =
                 "INSERT INTO " + table +
                         " (server_storage_snapshot_id, path, total_bytes, used_bytes, used_percent) " +
                         "VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int rows = 0;
+
+            for (int i = 0; i < snapshots.size(); i++) {
+                ServerStorageSnapshot snapshot = snapshots.get(i);
+                List<MountPathStorageUsage> usages = snapshot.getMountPathStorageUsages();
+                if (usages == null) {
+                    continue;
+                }
+
+                Map<String, LastWritten> paths = delta ? hostCache(snapshot) : null;
+                long collected = snapshot.getCollectedMillis();
+
+                for (MountPathStorageUsage mountPathStorageUsage : usages) {
+                    if (paths != null && !changed(paths, mountPathStorageUsage, collected)) {
+                        rowsSkipped.increment();
+                        continue;
+                    }
+
+                    stmt.setLong(1, snapshotIds[i]);
+                    stmt.setString(2, mountPathStorageUsage.getPath());
+                    stmt.setLong(3, mountPathStorageUsage.getTotalBytes());
+                    stmt.setLong(4, mountPathStorageUsage.getUsedBytes());
+                    stmt.setDouble(5, mountPathStorageUsage.getUsedPercent());
+                    stmt.addBatch();
+                    rows++;
+                }
+            }
+
+            if (rows > 0) {
+                stmt.executeBatch();
+                rowsWritten.add(rows);
+            }
+        }
+    }
+
+    private synchronized Map<String, LastWritten> hostCache(ServerStorageSnapshot snapshot) {
+        return lastWritten.computeIfAbsent(
+                snapshot.getSystemId() + '\0' + snapshot.getServerName(), k -> new HashMap<>());
+    }
+
+    // Records the row as written when it counts as a change
+    private boolean changed(Map<String, LastWritten> paths, MountPathStorageUsage usage, long collected) {
+        // Batches of the same host can be written concurrently on different connections
+        synchronized (paths) {
+            LastWritten last = paths.get(usage.getPath());
+            if (last == null) {
+                paths.put(usage.getPath(), new LastWritten(usage, collected));
+                return true;
+            }
+
+            // Older than the cached row (a late record or a replay): written as is, cache kept
+            if (collected < last.collectedAt) {
+                return true;
+            }
+
+            boolean changed = Math.abs(usage.getUsedPercent() - last.usedPercent) > epsilonPercent
+                    || usage.getTotalBytes() != last.totalBytes
+                    || collected - last.collectedAt >= heartbeatMs;
+            if (changed) {
+                last.usedPercent = usage.getUsedPercent();
+                last.totalBytes = usage.getTotalBytes();
+                last.collectedAt = collected;
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Drops the cached rows of the snapshot's host, so its next snapshot is
+     * written in full; called when the batch holding the snapshot failed.
+     */
+    public synchronized void forget(ServerStorageSnapshot snapshot) {
+        if (delta) {
+            lastWritten.remove(snapshot.getSystemId() + '\0' + snapshot.getServerName());
+        }
+    }
 
-            stmt.setLong(1, serverStorageSnapshotId);
-            stmt.setString(2, mountPathStorageUsage.getPath());
-            stmt.setLong(3, mountPathStorageUsage.getTotalBytes());
-            stmt.setLong(4, mountPathStorageUsage.getUsedBytes());
-            stmt.setDouble(5, mountPathStorageUsage.getUsedPercent());
+    private static final class LastWritten {
+        private double usedPercent;
+        private long totalBytes;
+        private long collectedAt;
 
-            stmt.executeUpdate();
+        private LastWritten(MountPathStorageUsage usage, long collectedAt) {
+            this.usedPercent = usage.getUsedPercent();
+            this.totalBytes = usage.getTotalBytes();
+            this.collectedAt = collectedAt;
         }
     }
 }
@@ -1,61 +1,135 @@
 package org.munycha.kafkaconsumer.db;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.munycha.kafkaconsumer.codec.RecordDecoder;
 import org.munycha.kafkaconsumer.config.DatabaseConfig;
 import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
+
+import java.io.IOException;
 
 import java.sql.*;
-import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ServerStorageSnapshotDB implements AutoCloseable {
 
-public class ServerStorageSnapshotDB {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private final String url;
-    private final String user;
-    private final String password;
     private final String table;
+    private final MountPathStorageUsageDB mountPathStorageUsageDB;
+    private final BatchWriter<ServerStorageSnapshot> writer;
+    private final boolean rawWrites;
+    private final StorageRollupDB rollup;
+
+    public ServerStorageSnapshotDB(DatabaseConfig dbConfig,
+                                   ConnectionPool pool,
+                                   IoExecutor dbIo,
+                                   MountPathStorageUsageDB mountPathStorageUsageDB) {
+        this(dbConfig, pool, dbIo, mountPathStorageUsageDB, null);
+    }
 
-    public ServerStorageSnapshotDB(DatabaseConfig dbConfig) {
-        this.url = dbConfig.getUrl();
-        this.user = dbConfig.getUser();
-        this.password = dbConfig.getPassword();
+    // rollup may be null when downsampling is off
+    public ServerStorageSnapshotDB(DatabaseConfig dbConfig,
+                                   ConnectionPool pool,
+                                   IoExecutor dbIo,
+                                   MountPathStorageUsageDB mountPathStorageUsageDB,
+                                   StorageRollupDB rollup) {
         this.table = dbConfig.getTables().getServerStorageSnapshotTable();
+        this.mountPathStorageUsageDB = mountPathStorageUsageDB;
+        this.rawWrites = dbConfig.getRollup().isRawWrites();
+        this.rollup = rollup;
+        // The delta cache counts a snapshot's mount rows as written during the insert; undo that on rollback
+        this.writer = new BatchWriter<>("snapshots", pool, dbConfig, this::insertBatch, new SnapshotCodec(), dbIo,
+                failed -> failed.forEach(mountPathStorageUsageDB::forget));
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+    public boolean isSaturated() {
+        return writer.isSaturated() || (rollup != null && rollup.isSaturated());
     }
 
-    public long saveSnapshot(ServerStorageSnapshot serverStorageSnapshot) throws SQLException {
+    public void registerMetrics(MetricsRegistry registry) {
+        writer.registerMetrics(registry);
+        mountPathStorageUsageDB.registerMetrics(registry);
+    }
+
+    /**
+     * Queues the snapshot; it is written together with all of its mount paths
+     * (and any other queued snapshots) in a single transaction. With rollups
+     * enabled it is also added to the open rollup buckets; with raw writes
+     * off that is all that happens, and the returned future is already done.
+     */
+    public CompletableFuture<Void> saveSnapshot(ServerStorageSnapshot serverStorageSnapshot) {
+        if (rollup != null) {
+            rollup.add(serverStorageSnapshot);
+        }
+        if (!rawWrites) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return writer.submit(serverStorageSnapshot);
+    }
+
+    private void insertBatch(Connection conn, List<ServerStorageSnapshot> snapshots) throws SQLException {
 
         String sql =
                 "INSERT INTO " + table +
                         " (system_id,system_name,server_ip, server_name, collected_at) VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt =
+        long[] snapshotIds = new long[snapshots.size()];
+
+        try (PreparedStatement stmt =
                      conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setString(1, serverStorageSnapshot.getSystemId());
-            stmt.setString(2, serverStorageSnapshot.getSystemName());
-            stmt.setString(3, serverStorageSnapshot.getServerIp());
-            stmt.setString(4, serverStorageSnapshot.getServerName());
+            for (ServerStorageSnapshot serverStorageSnapshot : snapshots) {
+                stmt.setString(1, serverStorageSnapshot.getSystemId());
+                stmt.setString(2, serverStorageSnapshot.getSystemName());
+                stmt.setString(3, serverStorageSnapshot.getServerIp());
+                stmt.setString(4, serverStorageSnapshot.getServerName());
 
-            // Convert ISO timestamp string to SQL TIMESTAMP
-            stmt.setTimestamp(
-                    5,
-                    Timestamp.from(
-                            Instant.parse(serverStorageSnapshot.getTimestamp())
-                    )
-            );
+                // Parsed and checked by the decoder
+                stmt.setTimestamp(5, new Timestamp(serverStorageSnapshot.getCollectedMillis()));
+                stmt.addBatch();
+            }
 
-            stmt.executeUpdate();
+            stmt.executeBatch();
 
+            // Generated keys come back in batch order
+            int i = 0;
             try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+                while (rs.next() && i < snapshotIds.length) {
+                    snapshotIds[i++] = rs.getLong(1);
                 }
             }
+
+            if (i != snapshotIds.length) {
+                throw new SQLException("Failed to retrieve snapshot IDs ("
+                        + i + " of " + snapshotIds.length + ")");
+            }
         }
 
-        throw new SQLException("Failed to retrieve snapshot ID");
+        // Children go out in the same transaction, so a failure rolls back the parents too
+        mountPathStorageUsageDB.insertPaths(conn, snapshotIds, snapshots);
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    // Spill format: the snapshot's own JSON; read back through the decoder so the parsed timestamp is restored
+    private static final class SnapshotCodec implements BoundedQueue.Codec<ServerStorageSnapshot> {
+        private final RecordDecoder decoder = new RecordDecoder();
+
+        @Override
+        public byte[] encode(ServerStorageSnapshot snapshot) throws IOException {
+            return MAPPER.writeValueAsBytes(snapshot);
+        }
+
+        @Override
+        public ServerStorageSnapshot decode(byte[] bytes) throws IOException {
+            return decoder.decodeSnapshot(bytes);
+        }
     }
 }
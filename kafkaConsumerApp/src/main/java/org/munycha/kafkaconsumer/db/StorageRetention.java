@@ -0,0 +1,128 @@
+package org.munycha.kafkaconsumer.db;
+
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.StorageRollupConfig;
+import org.munycha.kafkaconsumer.config.TableConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes expired rows from the raw snapshot tables and the rollup tables
+ * every {@code retentionCheckMinutes}.
+ * <p>
+ * Deletes run in chunks of {@code deleteChunkRows} (MySQL DELETE ... LIMIT),
+ * one short transaction each, so purging a large backlog never holds locks
+ * the batch writers are waiting for. Raw mount rows are deleted by parent
+ * id, children first, up to the newest snapshot older than the cutoff.
+ */
+public class StorageRetention implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final TableConfig tables;
+    private final StorageRollupConfig config;
+    private final int chunk;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder rawDeleted = new LongAdder();
+    private final LongAdder minuteDeleted = new LongAdder();
+    private final LongAdder hourDeleted = new LongAdder();
+
+    public StorageRetention(DatabaseConfig dbConfig, ConnectionPool pool) {
+        this.pool = pool;
+        this.tables = dbConfig.getTables();
+        this.config = dbConfig.getRollup();
+        this.chunk = Math.max(1, config.getDeleteChunkRows());
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        boolean anyRetention = config.getRawRetentionHours() > 0
+                || (config.isEnabled() && (config.getMinuteRetentionDays() > 0 || config.getHourRetentionDays() > 0));
+        if (anyRetention) {
+            long interval = Math.max(1, config.getRetentionCheckMinutes());
+            scheduler.scheduleWithFixedDelay(this::purge, 1, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        try (Connection conn = pool.getConnection()) {
+            if (config.getRawRetentionHours() > 0) {
+                purgeRaw(conn, new Timestamp(now - TimeUnit.HOURS.toMillis(config.getRawRetentionHours())));
+            }
+            if (config.isEnabled() && config.getMinuteRetentionDays() > 0) {
+                minuteDeleted.add(deleteChunked(conn,
+                        "DELETE FROM " + tables.getMountPathUsageMinuteTable() + " WHERE bucket_start < ? LIMIT " + chunk,
+                        new Timestamp(now - TimeUnit.DAYS.toMillis(config.getMinuteRetentionDays()))));
+            }
+            if (config.isEnabled() && config.getHourRetentionDays() > 0) {
+                hourDeleted.add(deleteChunked(conn,
+                        "DELETE FROM " + tables.getMountPathUsageHourTable() + " WHERE bucket_start < ? LIMIT " + chunk,
+                        new Timestamp(now - TimeUnit.DAYS.toMillis(config.getHourRetentionDays()))));
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[DB ERROR] Retention failed: " + e.getMessage());
+        }
+    }
+
+    private void purgeRaw(Connection conn, Timestamp cutoff) throws SQLException {
+        long maxId;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT MAX(id) FROM " + tables.getServerStorageSnapshotTable() + " WHERE collected_at < ?")) {
+            stmt.setTimestamp(1, cutoff);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+                maxId = rs.getLong(1);
+                if (rs.wasNull()) {
+                    return;
+                }
+            }
+        }
+
+        rawDeleted.add(deleteChunked(conn,
+                "DELETE FROM " + tables.getMountPathStorageUsageTable()
+                        + " WHERE server_storage_snapshot_id <= ? LIMIT " + chunk, maxId));
+        rawDeleted.add(deleteChunked(conn,
+                "DELETE FROM " + tables.getServerStorageSnapshotTable() + " WHERE id <= ? LIMIT " + chunk, maxId));
+    }
+
+    // Repeats the statement until it deletes less than a full chunk; returns rows deleted
+    private long deleteChunked(Connection conn, String sql, Object bound) throws SQLException {
+        long total = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, bound);
+            int deleted;
+            do {
+                deleted = stmt.executeUpdate();
+                total += deleted;
+            } while (deleted >= chunk && !Thread.currentThread().isInterrupted());
+        }
+        return total;
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        String help = "Rows deleted by storage retention";
+        registry.counter("storage_retention_deleted_rows_total", help, rawDeleted::sum, "table", "raw");
+        registry.counter("storage_retention_deleted_rows_total", help, minuteDeleted::sum, "table", "rollup_1m");
+        registry.counter("storage_retention_deleted_rows_total", help, hourDeleted::sum, "table", "rollup_1h");
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
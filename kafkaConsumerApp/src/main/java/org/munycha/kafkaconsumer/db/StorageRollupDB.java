@@ -0,0 +1,492 @@
+package org.munycha.kafkaconsumer.db;
+
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.StorageRollupConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+import org.munycha.kafkaconsumer.utility.IoExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downsamples mount storage samples into 1-minute and 1-hour buckets
+ * (min/max/avg/last of usedPercent) and writes each bucket once it closes.
+ * <p>
+ * A bucket closes when a sample for a later bucket of the same mount arrives,
+ * or {@code latenessSeconds} after its end. Samples older than the open bucket
+ * are counted and dropped. Closed buckets go through a {@link BatchWriter} per
+ * table, so they are batched and bounded like every other write.
+ * <p>
+ * Rows are upserted and merged with any row already stored for the bucket.
+ * Open buckets are flushed on close, and the part written after a restart
+ * merges into them. A crash loses the open buckets; a replay counts its
+ * samples twice in sample_count, without changing min/max/last.
+ * <p>
+ * Each mount owns a slot in the bucket arrays. A mount that has been idle
+ * for {@code idleMountMinutes} and has no open bucket gives its slot back;
+ * freed slots are reused before the arrays grow.
+ */
+public class StorageRollupDB implements AutoCloseable {
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final long latenessMs;
+    private final long idleMs;
+    private final Buckets minutes;
+    private final Buckets hours;
+    private final ScheduledExecutorService scheduler;
+
+    // Hosts by systemId + NUL + serverName; each maps its paths to slots
+    private final Map<String, Map<String, Integer>> hosts = new HashMap<>();
+    private int mounts = 0;
+    // slotHost is null for a free slot; seenAt is the wall-clock time of the mount's last sample
+    private String[] slotHost = new String[64];
+    private long[] slotSeenAt = new long[64];
+    private String[] slotSystemId = new String[64];
+    private String[] slotServerName = new String[64];
+    private String[] slotPath = new String[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+
+    public StorageRollupDB(DatabaseConfig dbConfig, ConnectionPool pool, IoExecutor dbIo) {
+        StorageRollupConfig config = dbConfig.getRollup();
+        this.latenessMs = TimeUnit.SECONDS.toMillis(Math.max(0, config.getLatenessSeconds()));
+        this.idleMs = TimeUnit.MINUTES.toMillis(Math.max(0, config.getIdleMountMinutes()));
+        this.minutes = new Buckets("1m", MINUTE_MS,
+                dbConfig.getTables().getMountPathUsageMinuteTable(), dbConfig, pool, dbIo);
+        this.hours = new Buckets("1h", HOUR_MS,
+                dbConfig.getTables().getMountPathUsageHourTable(), dbConfig, pool, dbIo);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "storage-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushExpired, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public boolean isSaturated() {
+        return minutes.writer.isSaturated() || hours.writer.isSaturated();
+    }
+
+    public void add(ServerStorageSnapshot snapshot) {
+        List<MountPathStorageUsage> usages = snapshot.getMountPathStorageUsages();
+        if (usages == null || usages.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long collected = snapshot.getCollectedMillis();
+        String hostKey = snapshot.getSystemId() + '\0' + snapshot.getServerName();
+        List<RollupRow> minuteRows = null;
+        List<RollupRow> hourRows = null;
+
+        synchronized (this) {
+            Map<String, Integer> slots = hosts.computeIfAbsent(hostKey, k -> new HashMap<>());
+
+            for (MountPathStorageUsage usage : usages) {
+                Integer known = slots.get(usage.getPath());
+                int slot;
+                if (known == null) {
+                    slot = addMount(hostKey, snapshot, usage.getPath());
+                    slots.put(usage.getPath(), slot);
+                } else {
+                    slot = known;
+                }
+                slotSeenAt[slot] = now;
+
+                RollupRow closed = minutes.add(slot, collected, usage);
+                if (closed != null) {
+                    minuteRows = add(minuteRows, closed);
+                }
+                closed = hours.add(slot, collected, usage);
+                if (closed != null) {
+                    hourRows = add(hourRows, closed);
+                }
+            }
+        }
+
+        // Outside the lock: submit blocks under the BLOCK overflow policy
+        minutes.submit(minuteRows);
+        hours.submit(hourRows);
+    }
+
+    private static List<RollupRow> add(List<RollupRow> rows, RollupRow row) {
+        if (rows == null) {
+            rows = new ArrayList<>();
+        }
+        rows.add(row);
+        return rows;
+    }
+
+    private void flushExpired() {
+        long now = System.currentTimeMillis();
+        List<RollupRow> minuteRows;
+        List<RollupRow> hourRows;
+
+        synchronized (this) {
+            minuteRows = minutes.takeOpen(now - latenessMs);
+            hourRows = hours.takeOpen(now - latenessMs);
+            if (idleMs > 0) {
+                evictIdle(now - idleMs);
+            }
+        }
+
+        minutes.submit(minuteRows);
+        hours.submit(hourRows);
+    }
+
+    private int addMount(String hostKey, ServerStorageSnapshot snapshot, String path) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (mounts == slotPath.length) {
+                int capacity = mounts * 2;
+                slotHost = Arrays.copyOf(slotHost, capacity);
+                slotSeenAt = Arrays.copyOf(slotSeenAt, capacity);
+                slotSystemId = Arrays.copyOf(slotSystemId, capacity);
+                slotServerName = Arrays.copyOf(slotServerName, capacity);
+                slotPath = Arrays.copyOf(slotPath, capacity);
+                minutes.grow(capacity);
+                hours.grow(capacity);
+            }
+            slot = mounts++;
+        }
+        slotHost[slot] = hostKey;
+        slotSystemId[slot] = snapshot.getSystemId();
+        slotServerName[slot] = snapshot.getServerName();
+        slotPath[slot] = path;
+        return slot;
+    }
+
+    // Frees the slots of mounts last seen before the cutoff whose buckets are all written
+    private void evictIdle(long seenBefore) {
+        for (int slot = 0; slot < mounts; slot++) {
+            if (slotHost[slot] == null || slotSeenAt[slot] >= seenBefore
+                    || minutes.isOpen(slot) || hours.isOpen(slot)) {
+                continue;
+            }
+
+            Map<String, Integer> slots = hosts.get(slotHost[slot]);
+            slots.remove(slotPath[slot]);
+            if (slots.isEmpty()) {
+                hosts.remove(slotHost[slot]);
+            }
+
+            slotHost[slot] = null;
+            slotSystemId[slot] = null;
+            slotServerName[slot] = null;
+            slotPath[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    public synchronized int trackedMounts() {
+        return mounts - freeCount;
+    }
+
+    public synchronized int openBuckets() {
+        return minutes.openCount() + hours.openCount();
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        minutes.writer.registerMetrics(registry);
+        hours.writer.registerMetrics(registry);
+        registry.counter("storage_rollup_buckets_total", "Rollup buckets closed and queued for writing",
+                minutes.closed::sum, "resolution", minutes.name);
+        registry.counter("storage_rollup_buckets_total", "Rollup buckets closed and queued for writing",
+                hours.closed::sum, "resolution", hours.name);
+        registry.counter("storage_rollup_late_samples_total", "Samples older than their mount's open bucket",
+                minutes.late::sum, "resolution", minutes.name);
+        registry.counter("storage_rollup_late_samples_total", "Samples older than their mount's open bucket",
+                hours.late::sum, "resolution", hours.name);
+        registry.gauge("storage_rollup_open_buckets", "Buckets still being aggregated", this::openBuckets);
+        registry.gauge("storage_rollup_mounts", "Mounts with rollup state in memory", this::trackedMounts);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        // Partial buckets are merged with the rest of the bucket after a restart
+        List<RollupRow> minuteRows;
+        List<RollupRow> hourRows;
+        synchronized (this) {
+            minuteRows = minutes.takeOpen(Long.MAX_VALUE);
+            hourRows = hours.takeOpen(Long.MAX_VALUE);
+        }
+        minutes.submit(minuteRows);
+        hours.submit(hourRows);
+
+        minutes.writer.close();
+        hours.writer.close();
+    }
+
+    /**
+     * Open buckets of one resolution, one per mount slot, struct-of-arrays.
+     * Called with the outer lock held, except {@link #submit(List)}.
+     */
+    private final class Buckets {
+        private final String name;
+        private final long sizeMs;
+        private final String table;
+        private final BatchWriter<RollupRow> writer;
+        private final LongAdder closed = new LongAdder();
+        private final LongAdder late = new LongAdder();
+
+        // count == 0 means the slot has no open bucket
+        private long[] start = new long[64];
+        private int[] count = new int[64];
+        private double[] min = new double[64];
+        private double[] max = new double[64];
+        private double[] sum = new double[64];
+        private double[] last = new double[64];
+        private long[] lastAt = new long[64];
+        private long[] lastUsedBytes = new long[64];
+        private long[] totalBytes = new long[64];
+
+        private Buckets(String name, long sizeMs, String table,
+                        DatabaseConfig dbConfig, ConnectionPool pool, IoExecutor dbIo) {
+            this.name = name;
+            this.sizeMs = sizeMs;
+            this.table = table;
+            this.writer = new BatchWriter<>("rollup_" + name, pool, dbConfig, this::upsertBatch,
+                    new RollupRowCodec(), dbIo);
+        }
+
+        // Returns the bucket this sample closed, or null
+        private RollupRow add(int slot, long time, MountPathStorageUsage usage) {
+            long bucket = Math.floorDiv(time, sizeMs) * sizeMs;
+            RollupRow closedRow = null;
+
+            if (count[slot] > 0) {
+                if (bucket < start[slot]) {
+                    late.increment();
+                    return null;
+                }
+                if (bucket > start[slot]) {
+                    closedRow = take(slot);
+                }
+            }
+
+            double percent = usage.getUsedPercent();
+            if (count[slot] == 0) {
+                start[slot] = bucket;
+                min[slot] = percent;
+                max[slot] = percent;
+                sum[slot] = 0;
+            } else {
+                min[slot] = Math.min(min[slot], percent);
+                max[slot] = Math.max(max[slot], percent);
+            }
+            count[slot]++;
+            sum[slot] += percent;
+
+            if (time >= lastAt[slot] || count[slot] == 1) {
+                last[slot] = percent;
+                lastAt[slot] = time;
+                lastUsedBytes[slot] = usage.getUsedBytes();
+                totalBytes[slot] = usage.getTotalBytes();
+            }
+            return closedRow;
+        }
+
+        private RollupRow take(int slot) {
+            RollupRow row = new RollupRow(slotSystemId[slot], slotServerName[slot], slotPath[slot],
+                    start[slot], count[slot], min[slot], max[slot], sum[slot] / count[slot],
+                    last[slot], lastUsedBytes[slot], totalBytes[slot], lastAt[slot]);
+            count[slot] = 0;
+            closed.increment();
+            return row;
+        }
+
+        // Takes every open bucket that ended before the cutoff
+        private List<RollupRow> takeOpen(long cutoff) {
+            List<RollupRow> rows = null;
+            for (int slot = 0; slot < mounts; slot++) {
+                if (count[slot] > 0 && (cutoff == Long.MAX_VALUE || start[slot] + sizeMs <= cutoff)) {
+                    rows = StorageRollupDB.add(rows, take(slot));
+                }
+            }
+            return rows;
+        }
+
+        private boolean isOpen(int slot) {
+            return count[slot] > 0;
+        }
+
+        private int openCount() {
+            int open = 0;
+            for (int slot = 0; slot < mounts; slot++) {
+                if (count[slot] > 0) {
+                    open++;
+                }
+            }
+            return open;
+        }
+
+        private void submit(List<RollupRow> rows) {
+            if (rows == null) {
+                return;
+            }
+            // Not tied to offset commits: the samples were acknowledged when they arrived
+            for (RollupRow row : rows) {
+                writer.submit(row);
+            }
+        }
+
+        private void grow(int capacity) {
+            start = Arrays.copyOf(start, capacity);
+            count = Arrays.copyOf(count, capacity);
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+            sum = Arrays.copyOf(sum, capacity);
+            last = Arrays.copyOf(last, capacity);
+            lastAt = Arrays.copyOf(lastAt, capacity);
+            lastUsedBytes = Arrays.copyOf(lastUsedBytes, capacity);
+            totalBytes = Arrays.copyOf(totalBytes, capacity);
+        }
+
+        private void upsertBatch(Connection conn, List<RollupRow> rows) throws SQLException {
+            // MySQL applies the assignments left to right: avg needs the old sample_count,
+            // and the last_* columns the old last_collected_at
+            String sql =
+                    "INSERT INTO " + table +
+                            " (system_id, server_name, path, bucket_start, sample_count," +
+                            " min_used_percent, max_used_percent, avg_used_percent," +
+                            " last_used_percent, last_used_bytes, total_bytes, last_collected_at)" +
+                            " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)" +
+                            " ON DUPLICATE KEY UPDATE" +
+                            " avg_used_percent = (avg_used_percent * sample_count"
+                            + " + VALUES(avg_used_percent) * VALUES(sample_count))"
+                            + " / (sample_count + VALUES(sample_count))," +
+                            " sample_count = sample_count + VALUES(sample_count)," +
+                            " min_used_percent = LEAST(min_used_percent, VALUES(min_used_percent))," +
+                            " max_used_percent = GREATEST(max_used_percent, VALUES(max_used_percent))," +
+                            " last_used_percent = CASE WHEN VALUES(last_collected_at) >= last_collected_at" +
+                            " THEN VALUES(last_used_percent) ELSE last_used_percent END," +
+                            " last_used_bytes = CASE WHEN VALUES(last_collected_at) >= last_collected_at" +
+                            " THEN VALUES(last_used_bytes) ELSE last_used_bytes END," +
+                            " total_bytes = CASE WHEN VALUES(last_collected_at) >= last_collected_at" +
+                            " THEN VALUES(total_bytes) ELSE total_bytes END," +
+                            " last_collected_at = GREATEST(last_collected_at, VALUES(last_collected_at))";
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (RollupRow row : rows) {
+                    stmt.setString(1, row.systemId);
+                    stmt.setString(2, row.serverName);
+                    stmt.setString(3, row.path);
+                    stmt.setTimestamp(4, new Timestamp(row.bucketStart));
+                    stmt.setInt(5, row.sampleCount);
+                    stmt.setDouble(6, row.minPercent);
+                    stmt.setDouble(7, row.maxPercent);
+                    stmt.setDouble(8, row.avgPercent);
+                    stmt.setDouble(9, row.lastPercent);
+                    stmt.setLong(10, row.lastUsedBytes);
+                    stmt.setLong(11, row.totalBytes);
+                    stmt.setTimestamp(12, new Timestamp(row.lastCollectedAt));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private static final class RollupRow {
+        private final String systemId;
+        private final String serverName;
+        private final String path;
+        private final long bucketStart;
+        private final int sampleCount;
+        private final double minPercent;
+        private final double maxPercent;
+        private final double avgPercent;
+        private final double lastPercent;
+        private final long lastUsedBytes;
+        private final long totalBytes;
+        private final long lastCollectedAt;
+
+        private RollupRow(String systemId, String serverName, String path, long bucketStart, int sampleCount,
+                          double minPercent, double maxPercent, double avgPercent, double lastPercent,
+                          long lastUsedBytes, long totalBytes, long lastCollectedAt) {
+            this.systemId = systemId;
+            this.serverName = serverName;
+            this.path = path;
+            this.bucketStart = bucketStart;
+            this.sampleCount = sampleCount;
+            this.minPercent = minPercent;
+            this.maxPercent = maxPercent;
+            this.avgPercent = avgPercent;
+            this.lastPercent = lastPercent;
+            this.lastUsedBytes = lastUsedBytes;
+            this.totalBytes = totalBytes;
+            this.lastCollectedAt = lastCollectedAt;
+        }
+    }
+
+    private static final class RollupRowCodec implements BoundedQueue.Codec<RollupRow> {
+        @Override
+        public byte[] encode(RollupRow row) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                writeNullable(out, row.systemId);
+                writeNullable(out, row.serverName);
+                writeNullable(out, row.path);
+                out.writeLong(row.bucketStart);
+                out.writeInt(row.sampleCount);
+                out.writeDouble(row.minPercent);
+                out.writeDouble(row.maxPercent);
+                out.writeDouble(row.avgPercent);
+                out.writeDouble(row.lastPercent);
+                out.writeLong(row.lastUsedBytes);
+                out.writeLong(row.totalBytes);
+                out.writeLong(row.lastCollectedAt);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public RollupRow decode(byte[] bytes) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                return new RollupRow(readNullable(in), readNullable(in), readNullable(in),
+                        in.readLong(), in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readLong(), in.readLong(), in.readLong());
+            }
+        }
+
+        private static void writeNullable(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * A record that could not be decoded or processed, with where it came from
+ * and why it failed.
+ */
+public final class DeadLetter {
+    private final String topic;
+    private final int partition;
+    private final long offset;
+    private final long timestamp;
+    private final String key;
+    private final byte[] value;
+    private final String error;
+
+    public DeadLetter(ConsumerRecord<String, byte[]> record, Throwable error) {
+        this.topic = record.topic();
+        this.partition = record.partition();
+        this.offset = record.offset();
+        this.timestamp = record.timestamp();
+        this.key = record.key();
+        this.value = record.value();
+        this.error = describe(error);
+    }
+
+    private static String describe(Throwable error) {
+        String message = error.getMessage();
+        String text = error.getClass().getSimpleName() + (message == null ? "" : ": " + message);
+        // Jackson messages quote the offending input; keep them readable
+        return text.length() > 1000 ? text.substring(0, 1000) : text;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
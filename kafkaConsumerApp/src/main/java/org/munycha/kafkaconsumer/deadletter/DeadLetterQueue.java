@@ -0,0 +1,211 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.munycha.kafkaconsumer.config.DeadLetterConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects records the consumers could not decode or process and writes
+ * them to the configured {@link DeadLetterSink} in batches, off the
+ * consumer threads.
+ * <p>
+ * Like {@link org.munycha.kafkaconsumer.db.BatchWriter}, every submitted
+ * record gets a future that completes once its batch is written, so the
+ * consumer commits past a poison record only after it is safely parked.
+ * Dead letters shed by the queue's overflow policy are acknowledged right
+ * away; a flood of garbage must not hold up the good records around it.
+ * <p>
+ * The future never fails: a batch the sink keeps rejecting is retried with
+ * a doubling pause up to {@code maxAttempts} times, then logged, counted and
+ * acknowledged anyway. Failing it would make the consumer replay the whole
+ * poll batch, writing its good records again, and a broken DLQ would stall
+ * the topic.
+ */
+public class DeadLetterQueue implements AutoCloseable {
+
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final DeadLetterSink sink;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final BoundedQueue<Entry> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder givenUp = new LongAdder();
+
+    public DeadLetterQueue(DeadLetterConfig config, String bootstrapServers) {
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getLingerMs()));
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.retryBackoffMs = Math.max(0, config.getRetryBackoffMs());
+
+        switch (config.getTarget()) {
+            case FILE:
+                this.sink = new FileDeadLetterSink(Path.of(config.getFile()));
+                break;
+            case TOPIC:
+                this.sink = new KafkaDeadLetterSink(bootstrapServers, config.getTopicSuffix(), givenUp::add);
+                break;
+            default:
+                this.sink = null;
+                break;
+        }
+
+        this.queue = new BoundedQueue<>("dead-letter", config.getQueue(), null, entry -> entry.ack.complete(null));
+        this.worker = new Thread(this::runLoop, "dead-letter");
+        this.worker.setDaemon(true);
+        if (sink != null) {
+            this.worker.start();
+        }
+    }
+
+    public CompletableFuture<Void> submit(ConsumerRecord<String, byte[]> record, Throwable error) {
+        if (sink == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Dead letter queue is closed"));
+        }
+
+        Entry entry = new Entry(new DeadLetter(record, error));
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.ack.completeExceptionally(e);
+        }
+        return entry.ack;
+    }
+
+    public boolean isSaturated() {
+        return queue.isSaturated();
+    }
+
+    private void runLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        List<DeadLetter> letters = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            letters.add(entry.letter);
+        }
+
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sink.write(letters);
+                written.add(batch.size());
+                break;
+            } catch (Exception e) {
+                // No more pauses once closing; the consumers are gone and nobody waits for these
+                if (attempt >= maxAttempts || !running) {
+                    System.err.println("[DeadLetter] Giving up on " + batch.size() + " records after "
+                            + attempt + " attempt(s): " + e.getMessage());
+                    failed.add(batch.size());
+                    break;
+                }
+
+                System.err.println("[DeadLetter] Failed to write " + batch.size() + " records (attempt "
+                        + attempt + " of " + maxAttempts + "), retrying in " + backoff + " ms: " + e.getMessage());
+                retries.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+                backoff = Math.min(Math.max(1, backoff * 2), MAX_BACKOFF_MS);
+            }
+        }
+
+        // Written or given up on: either way the record is dealt with
+        for (Entry entry : batch) {
+            entry.ack.complete(null);
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge("dead_letter_queue_depth", "Dead letters waiting to be written", queue::size);
+        registry.counter("dead_letter_written_total", "Dead letters written to the sink", written::sum);
+        registry.counter("dead_letter_failed_total", "Dead letters given up on after every write attempt failed",
+                failed::sum);
+        registry.counter("dead_letter_retries_total", "Dead letter batch writes retried", retries::sum);
+        registry.counter("dead_letter_dropped_total", "Dead letters dropped by the queue's overflow policy",
+                queue::droppedCount);
+        registry.counter("dead_letter_given_up_total", "Dead letters the DLQ topic rejected for good",
+                givenUp::sum);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (sink == null) {
+            return;
+        }
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+        queue.close();
+    }
+
+    private static final class Entry {
+        private final DeadLetter letter;
+        private final CompletableFuture<Void> ack = new CompletableFuture<>();
+
+        private Entry(DeadLetter letter) {
+            this.letter = letter;
+        }
+    }
+}
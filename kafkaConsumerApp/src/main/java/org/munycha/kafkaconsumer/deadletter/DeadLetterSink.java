@@ -0,0 +1,18 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import java.util.List;
+
+/**
+ * Destination of dead letters. Called from the dead letter writer thread only.
+ */
+public interface DeadLetterSink extends AutoCloseable {
+
+    /**
+     * Writes one batch; returns once it is durable. Throws if the batch
+     * should be retried, i.e. its records redelivered by Kafka.
+     */
+    void write(List<DeadLetter> batch) throws Exception;
+
+    @Override
+    void close();
+}
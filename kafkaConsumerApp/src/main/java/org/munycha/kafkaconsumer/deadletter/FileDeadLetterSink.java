@@ -0,0 +1,84 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Appends dead letters as JSON lines to a local file, one write and one
+ * fsync per batch. The value is kept as base64 so it can be replayed byte
+ * for byte.
+ */
+public class FileDeadLetterSink implements DeadLetterSink {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path path;
+    private FileChannel channel;
+
+    public FileDeadLetterSink(Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    @Override
+    public void write(List<DeadLetter> batch) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() * 256);
+        for (DeadLetter letter : batch) {
+            ObjectNode line = MAPPER.createObjectNode()
+                    .put("topic", letter.getTopic())
+                    .put("partition", letter.getPartition())
+                    .put("offset", letter.getOffset())
+                    .put("timestamp", letter.getTimestamp())
+                    .put("key", letter.getKey())
+                    .put("error", letter.getError())
+                    .put("valueBase64", letter.getValue() == null
+                            ? null
+                            : Base64.getEncoder().encodeToString(letter.getValue()));
+            MAPPER.writeValue(out, line);
+            out.write('\n');
+        }
+
+        FileChannel ch = open();
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        while (buffer.hasRemaining()) {
+            ch.write(buffer);
+        }
+        ch.force(false);
+    }
+
+    private FileChannel open() throws IOException {
+        // Reopen if the file was moved away (e.g. picked up for inspection)
+        if (channel != null && !Files.exists(path)) {
+            channel.close();
+            channel = null;
+        }
+        if (channel == null) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("[DeadLetter] Cannot close " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Produces dead letters to {@code <topic><suffix>} with the original key and
+ * value; partition, offset and error travel as {@code dlq.*} headers.
+ * <p>
+ * One producer (thread-safe, with its own connection pool to the brokers)
+ * serves every topic. A batch is sent, flushed and then checked: retriable
+ * failures fail the batch so it is retried, anything else (e.g. a record
+ * too large for the DLQ topic) is logged and given up on, so one bad record
+ * cannot stall its partition forever.
+ * <p>
+ * Retriable failures are only passed on while the producer has not used up
+ * its own {@code delivery.timeout.ms}; past that it already retried the
+ * record internally, so it is given up on too. A DLQ topic whose metadata
+ * cannot be fetched (usually a topic that does not exist) gives up the rest
+ * of its records in the batch at once instead of blocking on each of them.
+ */
+public class KafkaDeadLetterSink implements DeadLetterSink {
+
+    private static final int DELIVERY_TIMEOUT_MS = 30_000;
+    private static final int MAX_BLOCK_MS = 10_000;
+
+    private final Producer<String, byte[]> producer;
+    private final String suffix;
+    private final LongConsumer onGivenUp;
+
+    public KafkaDeadLetterSink(String bootstrapServers, String suffix, LongConsumer onGivenUp) {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.CLIENT_ID_CONFIG, "file-log-consumer-dlq");
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, DELIVERY_TIMEOUT_MS);
+        props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 10_000);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, MAX_BLOCK_MS);
+        this.producer = new KafkaProducer<>(props);
+        this.suffix = suffix;
+        this.onGivenUp = onGivenUp;
+    }
+
+    @Override
+    public void write(List<DeadLetter> batch) throws Exception {
+        long start = System.nanoTime();
+        List<Future<RecordMetadata>> sends = new ArrayList<>(batch.size());
+        Map<String, Throwable> unavailable = new HashMap<>();
+        for (DeadLetter letter : batch) {
+            String target = letter.getTopic() + suffix;
+            if (unavailable.containsKey(target)) {
+                sends.add(null);
+                continue;
+            }
+
+            ProducerRecord<String, byte[]> record =
+                    new ProducerRecord<>(target, letter.getKey(), letter.getValue());
+            record.headers()
+                    .add("dlq.topic", bytes(letter.getTopic()))
+                    .add("dlq.partition", bytes(String.valueOf(letter.getPartition())))
+                    .add("dlq.offset", bytes(String.valueOf(letter.getOffset())))
+                    .add("dlq.error", bytes(letter.getError()));
+            Future<RecordMetadata> send = producer.send(record);
+            sends.add(send);
+
+            // send() waited max.block.ms for the topic's metadata and failed; don't wait again per record
+            Throwable error = failure(send);
+            if (error instanceof TimeoutException || error instanceof UnknownTopicOrPartitionException) {
+                unavailable.put(target, error);
+            }
+        }
+        producer.flush();
+
+        boolean budgetSpent = System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(DELIVERY_TIMEOUT_MS);
+        for (int i = 0; i < sends.size(); i++) {
+            DeadLetter letter = batch.get(i);
+            String target = letter.getTopic() + suffix;
+            Future<RecordMetadata> send = sends.get(i);
+
+            Throwable error;
+            if (send == null) {
+                error = unavailable.get(target);
+            } else {
+                try {
+                    send.get();
+                    continue;
+                } catch (ExecutionException e) {
+                    error = e.getCause();
+                    if (error instanceof RetriableException && !budgetSpent && !unavailable.containsKey(target)) {
+                        throw e;
+                    }
+                }
+            }
+
+            System.err.println("[DeadLetter] Giving up on " + letter.getTopic() + "-" + letter.getPartition()
+                    + "@" + letter.getOffset() + ": " + error.getMessage());
+            onGivenUp.accept(1);
+        }
+    }
+
+    // The error of a send that already failed, null while it is in flight or if it succeeded
+    private static Throwable failure(Future<RecordMetadata> send) throws InterruptedException {
+        if (!send.isDone()) {
+            return null;
+        }
+        try {
+            send.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        producer.close(Duration.ofSeconds(5));
+    }
+}
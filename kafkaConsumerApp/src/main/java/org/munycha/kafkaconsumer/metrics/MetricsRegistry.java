@@ -0,0 +1,161 @@
+package org.munycha.kafkaconsumer.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges and histograms, written out in the Prometheus
+ * text exposition format.
+ * <p>
+ * Nothing is copied into the registry: each sample reads its value from the
+ * component that owns it (a LongAdder, a queue size, a {@link Histogram}) at
+ * scrape time, so recording costs the same whether or not anyone scrapes.
+ */
+public class MetricsRegistry {
+
+    // Upper bounds of the exported latency buckets, in seconds
+    private static final double[] LATENCY_BUCKETS = {
+            0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005,
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] LATENCY_BUCKETS_NANOS = new long[LATENCY_BUCKETS.length];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            LATENCY_BUCKETS_NANOS[i] = (long) (LATENCY_BUCKETS[i] * 1_000_000_000L);
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public synchronized void counter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "counter").samples.add(new Sample(labels(labels), () -> value.getAsLong(), null));
+    }
+
+    public synchronized void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").samples.add(new Sample(labels(labels), value, null));
+    }
+
+    public synchronized void histogram(String name, String help, Histogram histogram, String... labels) {
+        family(name, help, "histogram").samples.add(new Sample(labels(labels), null, histogram));
+    }
+
+    /**
+     * Gauge whose label sets change at runtime (e.g. lag per partition). The
+     * supplier returns rendered label sets, like {@code topic="a",partition="0"}, mapped to values.
+     */
+    public synchronized void dynamicGauge(String name, String help, Supplier<Map<String, Double>> values) {
+        family(name, help, "gauge").dynamic.add(values);
+    }
+
+    private synchronized Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return family;
+    }
+
+    public static String labels(String... keyValues) {
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be key/value pairs");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(keyValues[i]).append("=\"").append(escape(keyValues[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+
+            for (Sample sample : family.samples) {
+                if (sample.histogram != null) {
+                    writeHistogram(out, family.name, sample.labels, sample.histogram);
+                } else {
+                    writeSample(out, family.name, sample.labels, sample.value.getAsDouble());
+                }
+            }
+
+            for (Supplier<Map<String, Double>> dynamic : family.dynamic) {
+                for (Map.Entry<String, Double> entry : dynamic.get().entrySet()) {
+                    writeSample(out, family.name, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] cumulative = histogram.cumulativeCounts(LATENCY_BUCKETS_NANOS);
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            writeSample(out, name + "_bucket", prefix + "le=\"" + LATENCY_BUCKETS[i] + "\"", cumulative[i]);
+        }
+        // count() may run ahead of the buckets during a scrape; +Inf must cover them all
+        long count = Math.max(histogram.count(), cumulative[cumulative.length - 1]);
+        writeSample(out, name + "_bucket", prefix + "le=\"+Inf\"", count);
+        writeSample(out, name + "_sum", labels, Histogram.toSeconds(histogram.sumNanos()));
+        writeSample(out, name + "_count", labels, count);
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final List<Sample> samples = new ArrayList<>();
+        private final List<Supplier<Map<String, Double>>> dynamic = new ArrayList<>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Sample {
+        private final String labels;
+        private final DoubleSupplier value;
+        private final Histogram histogram;
+
+        private Sample(String labels, DoubleSupplier value, Histogram histogram) {
+            this.labels = labels;
+            this.value = value;
+            this.histogram = histogram;
+        }
+    }
+}
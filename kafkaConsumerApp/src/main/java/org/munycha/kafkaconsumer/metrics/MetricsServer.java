@@ -0,0 +1,77 @@
+package org.munycha.kafkaconsumer.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.munycha.kafkaconsumer.config.MetricsConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small HTTP server (JDK built-in) serving {@code GET /metrics} in the
+ * Prometheus text format. Other read-only endpoints can be added with
+ * {@link #addHandler(String, HttpHandler)}.
+ */
+public class MetricsServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public MetricsServer(MetricsConfig config, MetricsRegistry registry) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(config.getHost(), config.getPort()), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.setExecutor(executor);
+        addHandler("/metrics", exchange ->
+                respond(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", registry.scrape()));
+        server.start();
+
+        System.out.println("Metrics on http://" + config.getHost() + ":" + port() + "/metrics");
+    }
+
+    public void addHandler(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "text/plain; charset=utf-8", "Method not allowed\n");
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (RuntimeException e) {
+                System.err.println("[MetricsServer] " + path + " failed: " + e.getMessage());
+                respond(exchange, 500, "text/plain; charset=utf-8", "Internal error\n");
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    public static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+package org.munycha.kafkaconsumer.metrics;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-topic throughput, stage latencies and consumer lag, shared by all of
+ * the topic's consumers. Records/sec and bytes/sec come from
+ * {@code rate()} over the totals.
+ */
+public class TopicMetrics {
+
+    private final String topic;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder deadLetters = new LongAdder();
+    private final Histogram parse = new Histogram();
+    private final Histogram match = new Histogram();
+    private final Histogram sink = new Histogram();
+    private final Histogram batch = new Histogram();
+
+    // Lag per partition as last reported by the owning consumer's own metrics
+    private final Map<Integer, Double> lag = new ConcurrentHashMap<>();
+
+    public TopicMetrics(String topic) {
+        this.topic = topic;
+    }
+
+    public void register(MetricsRegistry registry) {
+        registry.counter("kafka_consumer_records_total", "Records consumed",
+                records::sum, "topic", topic);
+        registry.counter("kafka_consumer_bytes_total", "Record value bytes consumed",
+                bytes::sum, "topic", topic);
+        registry.counter("kafka_consumer_dead_letters_total", "Records that could not be decoded or processed",
+                deadLetters::sum, "topic", topic);
+        registry.histogram("kafka_consumer_parse_seconds", "Time to decode one record",
+                parse, "topic", topic);
+        registry.histogram("kafka_consumer_match_seconds", "Time to match one log message against alert keywords",
+                match, "topic", topic);
+        registry.histogram("kafka_consumer_sink_seconds", "Time to append one poll batch to the output sink",
+                sink, "topic", topic);
+        registry.histogram("kafka_consumer_batch_seconds", "Time from poll to offset commit for one poll batch",
+                batch, "topic", topic);
+        registry.dynamicGauge("kafka_consumer_lag", "Records behind the log end offset, per partition", () -> {
+            Map<String, Double> samples = new LinkedHashMap<>();
+            lag.forEach((partition, value) -> samples.put(
+                    MetricsRegistry.labels("topic", topic, "partition", String.valueOf(partition)), value));
+            return samples;
+        });
+    }
+
+    public void recordConsumed(int valueBytes) {
+        records.increment();
+        bytes.add(Math.max(0, valueBytes));
+    }
+
+    public void recordDeadLetter() {
+        deadLetters.increment();
+    }
+
+    public long deadLetterCount() {
+        return deadLetters.sum();
+    }
+
+    public Histogram parse() {
+        return parse;
+    }
+
+    public Histogram match() {
+        return match;
+    }
+
+    public Histogram sink() {
+        return sink;
+    }
+
+    public Histogram batch() {
+        return batch;
+    }
+
+    /**
+     * Copies {@code records-lag} of this topic's partitions out of a consumer's
+     * metrics. Must run on the consumer's own thread (KafkaConsumer is not thread-safe).
+     */
+    public void updateLag(Map<MetricName, ? extends Metric> consumerMetrics) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : consumerMetrics.entrySet()) {
+            MetricName name = entry.getKey();
+            if (!"records-lag".equals(name.name())
+                    || !"consumer-fetch-manager-metrics".equals(name.group())
+                    || !topic.equals(name.tags().get("topic"))) {
+                continue;
+            }
+
+            Object value = entry.getValue().metricValue();
+            String partition = name.tags().get("partition");
+            if (value instanceof Number && partition != null) {
+                double lagValue = ((Number) value).doubleValue();
+                if (!Double.isNaN(lagValue)) {
+                    lag.put(Integer.parseInt(partition), lagValue);
+                }
+            }
+        }
+    }
+
+    public void removeLag(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            lag.remove(partition.partition());
+        }
+    }
+}
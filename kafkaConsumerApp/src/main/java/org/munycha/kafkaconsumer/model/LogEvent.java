@@ -1,5 +1,9 @@
 package org.munycha.kafkaconsumer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
 public class LogEvent {
 
     private String serverName;
@@ -8,6 +12,10 @@ public class LogEvent {
     private String timestamp;
     private String message;
 
+    // Parsed form of timestamp, filled in once by the decoder
+    @JsonIgnore
+    private Instant instant;
+
     public LogEvent() {
     }
 
@@ -58,4 +66,14 @@ public class LogEvent {
     public void setMessage(String message) {
         this.message = message;
     }
-}
\ No newline at end of file
+
+    @JsonIgnore
+    public Instant getInstant() {
+        return instant;
+    }
+
+    @JsonIgnore
+    public void setInstant(Instant instant) {
+        this.instant = instant;
+    }
+}
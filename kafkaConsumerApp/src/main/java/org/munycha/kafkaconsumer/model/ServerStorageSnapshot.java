@@ -1,5 +1,7 @@
 package org.munycha.kafkaconsumer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ServerStorageSnapshot {
@@ -10,6 +12,10 @@ public class ServerStorageSnapshot {
     private String timestamp;
     private List<MountPathStorageUsage> mountPathStorageUsages;
 
+    // Parsed form of timestamp in epoch millis, filled in once by the decoder
+    @JsonIgnore
+    private long collectedMillis;
+
     public ServerStorageSnapshot() {
     }
 
@@ -69,5 +75,14 @@ public class ServerStorageSnapshot {
     public void setMountPathStorageUsages(List<MountPathStorageUsage> mountPathStorageUsages) {
         this.mountPathStorageUsages = mountPathStorageUsages;
     }
-}
 
+    @JsonIgnore
+    public long getCollectedMillis() {
+        return collectedMillis;
+    }
+
+    @JsonIgnore
+    public void setCollectedMillis(long collectedMillis) {
+        this.collectedMillis = collectedMillis;
+    }
+}
@@ -0,0 +1,99 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.munycha.kafkaconsumer.alert.AlertDeduplicator;
+import org.munycha.kafkaconsumer.alert.KeywordMatcher;
+import org.munycha.kafkaconsumer.db.AlertDB;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.model.LogEvent;
+import org.munycha.kafkaconsumer.telegram.TelegramNotifier;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * LOG topics: one output line per event, keyword alerts to Telegram and the
+ * alert table.
+ */
+public class LogRecordStage implements RecordStage {
+
+    private final KeywordMatcher keywordMatcher;
+    private final AlertDeduplicator alertDeduplicator;
+    private final TelegramNotifier notifier;
+    private final AlertDB alertDB;
+    private final TopicMetrics metrics;
+    private final ConsoleEcho console;
+
+    public LogRecordStage(KeywordMatcher keywordMatcher,
+                          AlertDeduplicator alertDeduplicator,
+                          TelegramNotifier notifier,
+                          AlertDB alertDB,
+                          TopicMetrics metrics,
+                          ConsoleEcho console) {
+        this.keywordMatcher = keywordMatcher;
+        this.alertDeduplicator = alertDeduplicator;
+        this.notifier = notifier;
+        this.alertDB = alertDB;
+        this.metrics = metrics;
+        this.console = console;
+    }
+
+    @Override
+    public void handle(ConsumerRecord<String, byte[]> record, StageContext context) throws IOException {
+
+        long parseStart = System.nanoTime();
+        LogEvent event = context.decoder().decodeLogEvent(record.value());
+        metrics.parse().recordSince(parseStart);
+
+        String msg = event.getMessage();
+
+        String formattedTime = context.timeFormatter().format(event.getInstant());
+
+
+        if (console.shouldEcho()) {
+            console.echo("[" + formattedTime + "] (" + event.getTopic() + ") " + msg);
+        }
+
+        context.output().append(formattedTime).append(" [").append(event.getServerName()).append("] ")
+                .append(msg).append(System.lineSeparator());
+
+        long matchStart = System.nanoTime();
+        List<String> matchedKeywords = keywordMatcher.match(msg);
+        metrics.match().recordSince(matchStart);
+
+        if (!matchedKeywords.isEmpty()) {
+            processAlert(event, formattedTime, matchedKeywords, context);
+        }
+    }
+
+    private void processAlert(LogEvent event, String formattedTime, List<String> matchedKeywords,
+                              StageContext context) {
+
+        // Repeats of a recent alert are only counted; they show up in the periodic summary
+        if (!alertDeduplicator.shouldAlert(event)) {
+            return;
+        }
+
+        String alertMessage =
+                "ALERT\n" +
+                        " Time: " + formattedTime + "\n" +
+                        " Host: " + event.getServerName() + "\n" +
+                        " File: " + event.getPath() + "\n" +
+                        " Topic: " + event.getTopic() + "\n" +
+                        " Keywords: " + String.join(", ", matchedKeywords) + "\n" +
+                        " Message: " + event.getMessage();
+
+        notifier.submit(alertMessage);
+
+        context.pendingWrites().add(
+                alertDB.saveAlert(
+                        event.getTopic(),
+                        event.getInstant(),
+                        event.getServerName(),
+                        event.getPath(),
+                        event.getMessage()
+                )
+        );
+    }
+}
@@ -0,0 +1,100 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.munycha.kafkaconsumer.alert.StorageAlertEvaluator;
+import org.munycha.kafkaconsumer.db.AlertDB;
+import org.munycha.kafkaconsumer.db.ServerStorageSnapshotDB;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+import org.munycha.kafkaconsumer.state.StorageStateIndex;
+import org.munycha.kafkaconsumer.telegram.TelegramNotifier;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
+
+import java.io.IOException;
+
+/**
+ * METRIC topics: storage snapshots into the state index, the storage alert
+ * evaluator, the output file and the snapshot tables.
+ */
+public class MetricRecordStage implements RecordStage {
+
+    private final String topic;
+    private final StorageStateIndex storageState;
+    private final StorageAlertEvaluator storageAlerts;
+    private final TelegramNotifier notifier;
+    private final AlertDB alertDB;
+    private final ServerStorageSnapshotDB serverStorageSnapshotDB;
+    private final TopicMetrics metrics;
+    private final ConsoleEcho console;
+    private final ObjectWriter prettyWriter = new ObjectMapper().writerWithDefaultPrettyPrinter();
+
+    public MetricRecordStage(String topic,
+                             StorageStateIndex storageState,
+                             StorageAlertEvaluator storageAlerts,
+                             TelegramNotifier notifier,
+                             AlertDB alertDB,
+                             ServerStorageSnapshotDB serverStorageSnapshotDB,
+                             TopicMetrics metrics,
+                             ConsoleEcho console) {
+        this.topic = topic;
+        this.storageState = storageState;
+        this.storageAlerts = storageAlerts;
+        this.notifier = notifier;
+        this.alertDB = alertDB;
+        this.serverStorageSnapshotDB = serverStorageSnapshotDB;
+        this.metrics = metrics;
+        this.console = console;
+    }
+
+    @Override
+    public void handle(ConsumerRecord<String, byte[]> record, StageContext context) throws IOException {
+
+        long parseStart = System.nanoTime();
+        ServerStorageSnapshot serverStorageSnapshot =
+                context.decoder().decodeSnapshot(record.value());
+        metrics.parse().recordSince(parseStart);
+
+        storageState.update(serverStorageSnapshot);
+
+        // Hysteresis in the evaluator already keeps these from repeating, so no dedup here
+        for (StorageAlertEvaluator.StorageAlert alert : storageAlerts.evaluate(serverStorageSnapshot)) {
+            notifier.submit(alert.toAlertMessage());
+            context.pendingWrites().add(alertDB.saveAlert(topic, alert.getCollectedAt(),
+                    alert.getServerName(), alert.getPath(), alert.getSummary()));
+        }
+
+        if (console.shouldEcho()) {
+            console.echo(formatSnapshot(serverStorageSnapshot));
+        }
+
+
+        context.output().append(prettyWriter.writeValueAsString(serverStorageSnapshot));
+        context.output().append(System.lineSeparator());
+
+
+        // Snapshot and all its mount paths are written in one batched transaction
+        context.pendingWrites().add(serverStorageSnapshotDB.saveSnapshot(serverStorageSnapshot));
+    }
+
+    private static String formatSnapshot(ServerStorageSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(256)
+                .append("===== SERVER STORAGE SNAPSHOT RECEIVED =====\n")
+                .append("Server   : ").append(snapshot.getServerName()).append('\n')
+                .append("IP       : ").append(snapshot.getServerIp()).append('\n')
+                .append("Timestamp: ").append(snapshot.getTimestamp()).append('\n');
+
+        for (MountPathStorageUsage spsu : snapshot.getMountPathStorageUsages()) {
+            sb.append(String.format(
+                    "Path: %-12s | Used: %6.2f%% | Used: %d / %d bytes%n",
+                    spsu.getPath(),
+                    spsu.getUsedPercent(),
+                    spsu.getUsedBytes(),
+                    spsu.getTotalBytes()
+            ));
+        }
+        return sb.append("=========================================").toString();
+    }
+}
@@ -0,0 +1,18 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.io.IOException;
+
+/**
+ * Handles one record of a topic: decode, match/enrich and hand-off to the
+ * sinks. One stage per {@link org.munycha.kafkaconsumer.config.TopicType}.
+ * <p>
+ * A stage is shared by every thread handling the topic and keeps no state of
+ * its own between records; per-thread buffers live in the {@link StageContext}.
+ * Anything thrown sends the record to the dead letters.
+ */
+public interface RecordStage {
+
+    void handle(ConsumerRecord<String, byte[]> record, StageContext context) throws IOException;
+}
@@ -0,0 +1,32 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+/**
+ * A ring position written by one thread and read by others, padded to a
+ * cache line of its own on both sides. The padding lives in superclasses
+ * because the JVM may reorder fields within one class.
+ */
+final class Sequence extends SequenceValue {
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence() {
+        set(-1);
+    }
+}
+
+abstract class SequencePadding {
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequencePadding {
+    private volatile long value;
+
+    final long get() {
+        return value;
+    }
+
+    final void set(long value) {
+        this.value = value;
+    }
+}
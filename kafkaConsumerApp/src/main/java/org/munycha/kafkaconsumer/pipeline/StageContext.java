@@ -0,0 +1,71 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.munycha.kafkaconsumer.codec.RecordDecoder;
+import org.munycha.kafkaconsumer.codec.TimestampFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Per-thread state of the thread running a {@link RecordStage}: the poll
+ * thread, or one pipeline lane. Nothing here is thread-safe.
+ */
+public class StageContext {
+
+    // Streaming JSON decoder and cached time formatter
+    private final RecordDecoder decoder = new RecordDecoder();
+    private final TimestampFormatter timeFormatter = new TimestampFormatter();
+
+    // Output of the current batch; appended to the shared topic sink in one go
+    private final StringBuilder output = new StringBuilder();
+
+    // Writes submitted for the current batch; its offsets are committed once all complete
+    private final List<CompletableFuture<Void>> pendingWrites = new ArrayList<>();
+
+    // The record each pending write belongs to, index for index, so rejected rows can be dead-lettered
+    private final List<ConsumerRecord<String, byte[]>> writeRecords = new ArrayList<>();
+
+    public RecordDecoder decoder() {
+        return decoder;
+    }
+
+    public TimestampFormatter timeFormatter() {
+        return timeFormatter;
+    }
+
+    public StringBuilder output() {
+        return output;
+    }
+
+    public List<CompletableFuture<Void>> pendingWrites() {
+        return pendingWrites;
+    }
+
+    /**
+     * Marks the writes added since the last call as belonging to {@code record}.
+     */
+    public void linkWrites(ConsumerRecord<String, byte[]> record) {
+        while (writeRecords.size() < pendingWrites.size()) {
+            writeRecords.add(record);
+        }
+    }
+
+    public ConsumerRecord<String, byte[]> writeRecord(int index) {
+        return writeRecords.get(index);
+    }
+
+    public void clearWrites() {
+        pendingWrites.clear();
+        writeRecords.clear();
+    }
+
+    /**
+     * Drops whatever the current batch left behind, before it is retried.
+     */
+    public void reset() {
+        output.setLength(0);
+        clearWrites();
+    }
+}
@@ -0,0 +1,402 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.munycha.kafkaconsumer.config.PipelineConfig;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+import org.munycha.kafkaconsumer.utility.ThreadFactories;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves decoding, matching and the sink hand-off of a consumer off its poll
+ * thread onto {@code lanes} threads, through a preallocated ring of records.
+ * <p>
+ * The ring has one producer, the poll thread, which fills slots and then
+ * publishes the whole poll batch with one volatile write. Every lane reads
+ * everything published but only takes the records of its own partitions
+ * (partition modulo lanes), so each partition is handled in order by one
+ * thread. A lane takes all it finds in one go and gives it to the
+ * {@link BatchHandler} as one batch: one sink append and one wait on the DB
+ * acks per batch. Idle lanes spin briefly, then park until the next publish.
+ * <p>
+ * A slot is reused only after every lane has passed it and the poll thread
+ * has collected its offset, so {@link #takeCompletedOffsets} only ever
+ * returns offsets of fully handled records, and a full ring holds up the
+ * poll thread instead of overwriting work.
+ */
+public class StagedPipeline implements AutoCloseable {
+
+    public interface BatchHandler {
+        /**
+         * Handles a lane's batch; a CompletionException means its writes
+         * failed, and the batch is handled again after a pause.
+         */
+        void handle(List<ConsumerRecord<String, byte[]>> records, StageContext context) throws IOException;
+    }
+
+    private static final int SPINS = 200;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final String topic;
+    private final int instance;
+    private final BatchHandler handler;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final Sequence published = new Sequence();
+    private final Sequence[] laneSequences;
+    private final Thread[] lanes;
+
+    private volatile boolean running = true;
+    private volatile Exception failure;
+
+    // The poll thread while it waits for the lanes; woken after every lane batch
+    private volatile Thread waiter;
+
+    // Poll thread only: highest sequence whose offset was collected, and the offsets not yet taken
+    private long collected = -1;
+    private final Map<TopicPartition, Long> completed = new HashMap<>();
+    private final Map<Integer, TopicPartition> partitions = new HashMap<>();
+
+    /**
+     * {@code minSlots} is the most the poll thread publishes at once (max.poll.records);
+     * the ring holds at least twice that.
+     */
+    public StagedPipeline(String topic, int instance, PipelineConfig config, int minSlots, BatchHandler handler) {
+        this.topic = topic;
+        this.instance = instance;
+        this.handler = handler;
+
+        int size = Integer.highestOneBit(Math.max(2, Math.max(config.getRingSize(), 2 * minSlots)) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+
+        int laneCount = Math.max(1, config.getLanes());
+        this.laneSequences = new Sequence[laneCount];
+        this.lanes = new Thread[laneCount];
+
+        ThreadFactory threads = ThreadFactories.named("pipeline-" + topic + "-" + instance, ThreadMode.PLATFORM);
+        for (int lane = 0; lane < laneCount; lane++) {
+            laneSequences[lane] = new Sequence();
+            int id = lane;
+            lanes[lane] = threads.newThread(() -> runLane(id));
+        }
+        for (Thread lane : lanes) {
+            lane.start();
+        }
+    }
+
+    /**
+     * Publishes the records to the lanes. Waits only if the ring is full,
+     * which {@link #awaitRoom} lets the caller avoid.
+     */
+    public void publish(Iterable<ConsumerRecord<String, byte[]>> records) throws IOException {
+        long sequence = published.get();
+
+        for (ConsumerRecord<String, byte[]> record : records) {
+            long next = sequence + 1;
+            if (next - slots.length > collected) {
+                // Let the lanes work on what is written so far while we wait for them
+                publishUpTo(sequence);
+                if (!awaitLanes(next - slots.length, Long.MAX_VALUE)) {
+                    throw new IOException("Pipeline of " + topic + " [" + instance + "] is closed");
+                }
+                collect();
+            }
+
+            Slot slot = slots[(int) (next & mask)];
+            slot.record = record;
+            slot.lane = record.partition() % lanes.length;
+            sequence = next;
+        }
+
+        publishUpTo(sequence);
+    }
+
+    private void publishUpTo(long sequence) {
+        if (sequence == published.get()) {
+            return;
+        }
+        published.set(sequence);
+        for (Thread lane : lanes) {
+            LockSupport.unpark(lane);
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutNanos} for room for another {@code records};
+     * false if the lanes did not free it in time.
+     */
+    public boolean awaitRoom(int records, long timeoutNanos) throws IOException {
+        collect();
+        long needed = published.get() + records - slots.length;
+        if (needed > collected) {
+            if (!awaitLanes(needed, System.nanoTime() + timeoutNanos)) {
+                return false;
+            }
+            collect();
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the lanes have handled everything published so far.
+     * Returns false if the pipeline was closed first.
+     */
+    public boolean drain() throws IOException {
+        return drain(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #drain()}, but gives up after {@code timeoutNanos}. What the
+     * lanes finished by then can still be taken; the rest stays uncommitted.
+     */
+    public boolean drain(long timeoutNanos) throws IOException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+        boolean drained = awaitLanes(published.get(), deadline);
+        collect();
+        return drained;
+    }
+
+    /**
+     * Next offsets to commit for the records handled since the last call.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> takeCompletedOffsets() {
+        collect();
+        if (completed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        completed.forEach((partition, offset) -> offsets.put(partition, new OffsetAndMetadata(offset)));
+        completed.clear();
+        return offsets;
+    }
+
+    /**
+     * Drains for up to {@code timeoutNanos}, then forgets the handled offsets
+     * of the given partitions (they are no longer ours to commit).
+     */
+    public boolean discard(Collection<TopicPartition> lost, long timeoutNanos) throws IOException {
+        boolean drained = drain(timeoutNanos);
+        completed.keySet().removeAll(lost);
+        return drained;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Rethrows what stopped a lane; the consumer cannot go on without it.
+     */
+    public void checkFailure() throws IOException {
+        Exception e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+
+    private void collect() {
+        long done = minLaneSequence();
+        for (long sequence = collected + 1; sequence <= done; sequence++) {
+            Slot slot = slots[(int) (sequence & mask)];
+            ConsumerRecord<String, byte[]> record = slot.record;
+            // Slots are in offset order per partition, so the last one wins
+            completed.put(partition(record), record.offset() + 1);
+            slot.record = null;
+        }
+        if (done > collected) {
+            collected = done;
+        }
+    }
+
+    private TopicPartition partition(ConsumerRecord<String, byte[]> record) {
+        TopicPartition partition = partitions.get(record.partition());
+        if (partition == null) {
+            partition = new TopicPartition(record.topic(), record.partition());
+            partitions.put(record.partition(), partition);
+        }
+        return partition;
+    }
+
+    private long minLaneSequence() {
+        long min = Long.MAX_VALUE;
+        for (Sequence sequence : laneSequences) {
+            min = Math.min(min, sequence.get());
+        }
+        return min;
+    }
+
+    // False if the deadline (System.nanoTime) passed or the pipeline was closed first;
+    // Long.MAX_VALUE waits for as long as the lanes run
+    private boolean awaitLanes(long sequence, long deadline) throws IOException {
+        while (minLaneSequence() < sequence) {
+            checkFailure();
+            if (!running) {
+                return false;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptException("Interrupted while waiting for pipeline lanes");
+            }
+
+            long park = PARK_NANOS;
+            if (deadline != Long.MAX_VALUE) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                park = Math.min(park, remaining);
+            }
+
+            waiter = Thread.currentThread();
+            // Re-checked after registering, so a lane finishing in between is not missed
+            if (minLaneSequence() < sequence) {
+                LockSupport.parkNanos(this, park);
+            }
+            waiter = null;
+        }
+        return true;
+    }
+
+    private void runLane(int lane) {
+        try {
+            laneLoop(lane);
+        } finally {
+            // However a lane ends, the poll thread must not wait for it
+            if (running && failure == null) {
+                failure = new IOException("Pipeline lane " + lane + " of " + topic + " [" + instance + "] stopped");
+            }
+            wakeWaiter();
+        }
+    }
+
+    private void laneLoop(int lane) {
+        StageContext context = new StageContext();
+        List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>();
+        Sequence own = laneSequences[lane];
+        long next = own.get() + 1;
+        int idle = 0;
+
+        while (running) {
+            long available = published.get();
+            if (available < next) {
+                if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot slot = slots[(int) (sequence & mask)];
+                if (slot.lane == lane) {
+                    batch.add(slot.record);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                if (!handle(batch, context)) {
+                    return;
+                }
+                batch.clear();
+            }
+
+            own.set(available);
+            next = available + 1;
+            wakeWaiter();
+        }
+    }
+
+    private void wakeWaiter() {
+        Thread poller = waiter;
+        if (poller != null) {
+            LockSupport.unpark(poller);
+        }
+    }
+
+    // False when the lane has to stop
+    private boolean handle(List<ConsumerRecord<String, byte[]>> batch, StageContext context) {
+        while (running) {
+            try {
+                handler.handle(batch, context);
+                return true;
+            } catch (CompletionException e) {
+                System.err.printf("[%s][%d] DB write failed, replaying %d records: %s%n",
+                        topic, instance, batch.size(), e.getCause().getMessage());
+                context.reset();
+
+                // Parked rather than slept: close() unparks the lane so it stops retrying right away
+                long until = System.nanoTime() + RETRY_NANOS;
+                while (running && System.nanoTime() < until) {
+                    if (Thread.interrupted()) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, until - System.nanoTime());
+                }
+            } catch (IOException | RuntimeException e) {
+                // After close() this is just the handler giving up its wait
+                if (running) {
+                    failure = e;
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the lanes: a lane finishes or abandons its current batch and
+     * exits. Records published but not handled are not committed and come
+     * again after a restart. Waits a few seconds for the lanes at most.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread lane : lanes) {
+            LockSupport.unpark(lane);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+        for (Thread lane : lanes) {
+            try {
+                lane.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (lane.isAlive()) {
+                System.err.printf("[%s][%d] Pipeline lane %s still busy after %d ms, leaving it behind%n",
+                        topic, instance, lane.getName(), CLOSE_TIMEOUT_MS);
+            }
+        }
+    }
+
+    private static final class Slot {
+        private ConsumerRecord<String, byte[]> record;
+        private int lane;
+    }
+}
@@ -0,0 +1,250 @@
+package org.munycha.kafkaconsumer.sink;
+
+import org.munycha.kafkaconsumer.config.Durability;
+import org.munycha.kafkaconsumer.config.SinkConfig;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffered append-only file sink on a {@link FileChannel}.
+ * <p>
+ * Output is encoded into a direct buffer and written when the buffer fills
+ * up or {@code flushIntervalMs} has passed (group commit), instead of one
+ * write per record. With {@link Durability#BATCH} every poll batch is also
+ * written and fsync'ed before its offsets are committed; with
+ * {@link Durability#INTERVAL} fsync runs every {@code forceIntervalMs}.
+ * <p>
+ * Like the old FileWriter path, nothing is written while the output file
+ * does not exist; existence comes from the shared {@link FileWatcher}.
+ * Subclasses that create and rotate the file themselves pass just its path
+ * and are not told about the events their own renames cause.
+ * Output already buffered when the file disappears is dropped and counted.
+ */
+public class FileChannelSink implements OutputSink {
+
+    // Null when the sink owns the file and nobody else replaces it
+    protected final FileWatcher.WatchedFile file;
+    protected final Path path;
+    protected final SinkConfig config;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ScheduledFuture<?> flushTask;
+
+    private FileChannel channel;
+    private long openedVersion = -1;
+    private long lastWrite = System.currentTimeMillis();
+    private long lastForce = System.currentTimeMillis();
+    private boolean unforced = false;
+    private boolean warnedMissing = false;
+    private long droppedBytes = 0;
+
+    public FileChannelSink(FileWatcher.WatchedFile file,
+                           SinkConfig config,
+                           ScheduledExecutorService scheduler) {
+        this(file, file.path(), config, scheduler);
+    }
+
+    protected FileChannelSink(Path path,
+                              SinkConfig config,
+                              ScheduledExecutorService scheduler) {
+        this(null, path, config, scheduler);
+    }
+
+    private FileChannelSink(FileWatcher.WatchedFile file,
+                            Path path,
+                            SinkConfig config,
+                            ScheduledExecutorService scheduler) {
+        this.file = file;
+        this.path = path;
+        this.config = config;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(4096, config.getBufferBytes()));
+
+        // Check twice per interval so a flush is never more than 1.5 intervals late
+        long interval = Math.max(10, Math.min(config.getFlushIntervalMs(), config.getForceIntervalMs()) / 2);
+        this.flushTask = scheduler.scheduleWithFixedDelay(
+                this::flushIfDue, interval, interval, TimeUnit.MILLISECONDS);
+
+        checkExists();
+    }
+
+    // Whether output may be written right now; subclasses that create files override this
+    protected boolean checkExists() {
+        if (!file.exists()) {
+            if (!warnedMissing) {
+                System.err.println(" Output file does NOT exist: " + path);
+                System.err.println("   Please create it manually. Consumer will NOT write.");
+                warnedMissing = true;
+            }
+            return false;
+        }
+        warnedMissing = false;
+        return true;
+    }
+
+    @Override
+    public synchronized void append(CharSequence text) throws IOException {
+        if (!checkExists() || !ensureOpen()) {
+            return;
+        }
+
+        CharBuffer in = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            // Nothing was written means the file is gone; the rest of the text goes with the buffer
+            if (result.isOverflow() && writeBuffer()) {
+                continue;
+            }
+            break;
+        }
+        encoder.reset();
+    }
+
+    @Override
+    public synchronized void commitBatch() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        if (config.getDurability() == Durability.BATCH) {
+            writeBuffer();
+            force();
+        } else if (System.currentTimeMillis() - lastWrite >= config.getFlushIntervalMs()) {
+            writeBuffer();
+        }
+    }
+
+    private synchronized void flushIfDue() {
+        try {
+            long now = System.currentTimeMillis();
+            onTick(now);
+
+            if (channel == null) {
+                return;
+            }
+
+            if (buffer.position() > 0 && now - lastWrite >= config.getFlushIntervalMs()) {
+                writeBuffer();
+            }
+
+            if (config.getDurability() == Durability.INTERVAL
+                    && unforced
+                    && now - lastForce >= config.getForceIntervalMs()) {
+                force();
+            }
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    private boolean ensureOpen() throws IOException {
+        // The file was deleted/recreated since we opened it: buffered output goes to the new one
+        if (channel != null && file != null && openedVersion != file.version()) {
+            closeChannel();
+        }
+
+        if (channel == null) {
+            try {
+                openedVersion = file != null ? file.version() : 0;
+                channel = openChannel();
+                onOpened(channel);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected FileChannel openChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Hooks for subclasses; all are called while holding the sink's lock
+    protected void onOpened(FileChannel channel) throws IOException {
+    }
+
+    protected void beforeWrite(int bytes) throws IOException {
+    }
+
+    protected void onTick(long now) throws IOException {
+    }
+
+    protected void afterWrite(int bytes) {
+    }
+
+    // Writes out buffered output; subclasses call this before switching files.
+    // Returns false if the file could not be opened and the buffered output was dropped.
+    protected boolean writeBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return true;
+        }
+
+        int bytes = buffer.position();
+        beforeWrite(bytes);
+        if (!ensureOpen()) {
+            droppedBytes += bytes;
+            buffer.clear();
+            System.err.println(" Output file disappeared: " + path + ", dropped " + bytes
+                    + " bytes (" + droppedBytes + " in total)");
+            return false;
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+        lastWrite = System.currentTimeMillis();
+        unforced = true;
+        afterWrite(bytes);
+        return true;
+    }
+
+    private void force() throws IOException {
+        if (unforced && channel != null) {
+            channel.force(false);
+            unforced = false;
+        }
+        lastForce = System.currentTimeMillis();
+    }
+
+    protected void closeChannel() throws IOException {
+        if (channel != null) {
+            if (unforced && config.getDurability() != Durability.NONE) {
+                channel.force(false);
+                unforced = false;
+            }
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flushTask.cancel(false);
+
+        if (channel != null) {
+            writeBuffer();
+            if (config.getDurability() != Durability.NONE) {
+                force();
+            }
+            closeChannel();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.munycha.kafkaconsumer.sink;
+
+public class NoopSink implements OutputSink {
+
+    @Override
+    public void append(CharSequence text) {
+    }
+
+    @Override
+    public void commitBatch() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,19 @@
+package org.munycha.kafkaconsumer.sink;
+
+import java.io.IOException;
+
+/**
+ * Destination for the text a topic writes to its {@code output} path.
+ * Implementations are shared by all consumers of a topic and must be thread-safe.
+ */
+public interface OutputSink extends AutoCloseable {
+
+    // Appends the formatted output of (part of) a poll batch
+    void append(CharSequence text) throws IOException;
+
+    // Called once per poll batch, before offsets are committed
+    void commitBatch() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,59 @@
+package org.munycha.kafkaconsumer.sink;
+
+import org.munycha.kafkaconsumer.config.SinkConfig;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+public final class OutputSinks {
+
+    private OutputSinks() {
+    }
+
+    public static OutputSink create(TopicConfig topicConfig,
+                                    FileWatcher fileWatcher,
+                                    ScheduledExecutorService scheduler,
+                                    ExecutorService archiver) {
+        SinkConfig sinkConfig = topicConfig.getSink();
+
+        switch (sinkConfig.getType()) {
+            case FILE:
+                return new FileChannelSink(
+                        fileWatcher.watch(Path.of(topicConfig.getOutput())),
+                        sinkConfig,
+                        scheduler
+                );
+
+            case ROLLING_FILE:
+                createParentDirectories(Path.of(topicConfig.getOutput()));
+                return new RollingFileSink(
+                        Path.of(topicConfig.getOutput()).toAbsolutePath().normalize(),
+                        sinkConfig,
+                        scheduler,
+                        archiver
+                );
+
+            case NONE:
+                return new NoopSink();
+
+            default:
+                throw new IllegalStateException("Unsupported SinkType: " + sinkConfig.getType());
+        }
+    }
+
+    private static void createParentDirectories(Path file) {
+        Path dir = file.toAbsolutePath().getParent();
+        try {
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+        } catch (IOException e) {
+            System.err.println("File error: cannot create " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.munycha.kafkaconsumer.sink;
+
+import org.munycha.kafkaconsumer.config.Compression;
+import org.munycha.kafkaconsumer.config.SinkConfig;
+import org.munycha.kafkaconsumer.utility.FileWatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File sink that rolls the output file by size and/or time window.
+ * <p>
+ * The active file is created on demand. On roll it is renamed to
+ * {@code <name>.<yyyy-MM-dd_HH-mm-ss>} and a fresh file is opened, which is
+ * only a rename + open while holding the sink lock. Compression of the closed
+ * segment and retention clean-up run on the archiver executor, off the
+ * consumer threads.
+ * <p>
+ * The active file is not registered with the {@link FileWatcher}: every
+ * roll deletes and recreates it, and reacting to those events made the sink
+ * reopen the file it had just opened.
+ */
+public class RollingFileSink extends FileChannelSink {
+
+    private static final DateTimeFormatter SEGMENT_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private final ExecutorService archiver;
+    private final Path activeFile;
+    private final Pattern segmentPattern;
+
+    private long currentSize = 0;
+    private long nextRollAt = Long.MAX_VALUE;
+
+    public RollingFileSink(Path activeFile,
+                           SinkConfig config,
+                           ScheduledExecutorService scheduler,
+                           ExecutorService archiver) {
+        super(activeFile, config, scheduler);
+        this.archiver = archiver;
+        this.activeFile = activeFile;
+
+        String name = Pattern.quote(activeFile.getFileName().toString());
+        this.segmentPattern = Pattern.compile(name + "\\.\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2}(-\\d+)?(\\.gz)?");
+
+        // Finish anything a previous run left behind (uncompressed segments, expired archives)
+        submitArchiveTask(null);
+    }
+
+    @Override
+    protected boolean checkExists() {
+        // Files are created on demand
+        return true;
+    }
+
+    @Override
+    protected FileChannel openChannel() throws IOException {
+        Path dir = activeFile.getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        return FileChannel.open(activeFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    protected void onOpened(FileChannel channel) throws IOException {
+        currentSize = channel.size();
+        nextRollAt = computeNextRoll(System.currentTimeMillis());
+    }
+
+    @Override
+    protected void beforeWrite(int bytes) throws IOException {
+        long maxBytes = config.getRollMaxBytes();
+        if (maxBytes > 0 && currentSize > 0 && currentSize + bytes > maxBytes) {
+            roll();
+        } else if (System.currentTimeMillis() >= nextRollAt) {
+            roll();
+        }
+    }
+
+    @Override
+    protected void afterWrite(int bytes) {
+        currentSize += bytes;
+    }
+
+    @Override
+    protected void onTick(long now) throws IOException {
+        // Time-based roll even when the topic is quiet
+        if (now >= nextRollAt && currentSize > 0) {
+            writeBuffer();
+            if (now >= nextRollAt) {
+                roll();
+            }
+        }
+    }
+
+    private long computeNextRoll(long now) {
+        long intervalMs = TimeUnit.MINUTES.toMillis(config.getRollIntervalMinutes());
+        if (intervalMs <= 0) {
+            return Long.MAX_VALUE;
+        }
+
+        // Align windows to local wall-clock time (e.g. daily rolls at midnight)
+        long offset = ZoneId.systemDefault().getRules()
+                .getOffset(Instant.ofEpochMilli(now)).getTotalSeconds() * 1000L;
+        return ((now + offset) / intervalMs + 1) * intervalMs - offset;
+    }
+
+    private void roll() throws IOException {
+        closeChannel();
+        nextRollAt = computeNextRoll(System.currentTimeMillis());
+
+        if (!Files.exists(activeFile) || Files.size(activeFile) == 0) {
+            return;
+        }
+
+        Path segment = segmentName();
+        Files.move(activeFile, segment, StandardCopyOption.ATOMIC_MOVE);
+        currentSize = 0;
+
+        submitArchiveTask(segment);
+    }
+
+    private Path segmentName() {
+        String base = activeFile.getFileName() + "." + LocalDateTime.now().format(SEGMENT_SUFFIX);
+        Path candidate = activeFile.resolveSibling(base);
+
+        for (int n = 1; Files.exists(candidate) || Files.exists(gzipName(candidate)); n++) {
+            candidate = activeFile.resolveSibling(base + "-" + n);
+        }
+        return candidate;
+    }
+
+    private static Path gzipName(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + ".gz");
+    }
+
+    private void submitArchiveTask(Path segment) {
+        try {
+            archiver.submit(() -> {
+                try {
+                    if (segment != null) {
+                        compress(segment);
+                    }
+                    applyRetention();
+                } catch (IOException e) {
+                    System.err.println("[RollingFileSink] Archive error (" + activeFile + "): " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the next start picks the segment up
+        }
+    }
+
+    private static String segmentTimestamp(Path segment) {
+        String name = segment.getFileName().toString().replace(".gz", "");
+        int dot = name.lastIndexOf('.');
+        return name.substring(dot + 1, dot + 1 + "yyyy-MM-dd_HH-mm-ss".length());
+    }
+
+    private static int segmentCounter(Path segment) {
+        String name = segment.getFileName().toString().replace(".gz", "");
+        String suffix = name.substring(name.lastIndexOf('.') + 1 + "yyyy-MM-dd_HH-mm-ss".length());
+        return suffix.startsWith("-") ? Integer.parseInt(suffix.substring(1)) : 0;
+    }
+
+    private void compress(Path segment) throws IOException {
+        if (config.getCompression() != Compression.GZIP || !Files.exists(segment)) {
+            return;
+        }
+
+        Path target = gzipName(segment);
+        Path partial = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+            in.transferTo(out);
+        }
+
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(segment);
+    }
+
+    private void applyRetention() throws IOException {
+        Path dir = activeFile.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return;
+        }
+
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                if (segmentPattern.matcher(p.getFileName().toString()).matches()) {
+                    segments.add(p);
+                }
+            }
+        }
+
+        // Oldest first: by timestamp suffix, then by the -n counter for rolls within the same second
+        segments.sort(Comparator
+                .comparing((Path p) -> segmentTimestamp(p))
+                .thenComparingInt(RollingFileSink::segmentCounter));
+
+        long maxAgeMs = TimeUnit.HOURS.toMillis(config.getMaxArchiveAgeHours());
+        long now = System.currentTimeMillis();
+        int excess = config.getMaxArchivedFiles() > 0
+                ? segments.size() - config.getMaxArchivedFiles()
+                : 0;
+
+        for (Path segment : segments) {
+            boolean tooMany = excess > 0;
+            boolean tooOld = maxAgeMs > 0
+                    && now - Files.getLastModifiedTime(segment).toMillis() > maxAgeMs;
+
+            if (tooMany || tooOld) {
+                Files.deleteIfExists(segment);
+                excess--;
+            } else if (!segment.getFileName().toString().endsWith(".gz")) {
+                // Left uncompressed by an earlier run
+                compress(segment);
+            }
+        }
+    }
+}
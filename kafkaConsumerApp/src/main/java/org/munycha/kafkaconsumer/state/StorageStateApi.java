@@ -0,0 +1,134 @@
+package org.munycha.kafkaconsumer.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import org.munycha.kafkaconsumer.config.StorageStateConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsServer;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only JSON endpoints over {@link StorageStateIndex}, served on the
+ * metrics HTTP port:
+ * <ul>
+ *   <li>{@code /api/storage/fullest?limit=20&minPercent=0} - fullest mounts first</li>
+ *   <li>{@code /api/storage/systems?fullPercent=90&olderThanSeconds=300} - usage per system</li>
+ *   <li>{@code /api/storage/stale?olderThanSeconds=300} - hosts that stopped reporting</li>
+ * </ul>
+ * Omitted parameters take their defaults from {@link StorageStateConfig}.
+ * A {@code limit} above {@code maxLimit} is cut down to it; anything that is
+ * not a positive whole number, like a non-numeric or non-finite parameter,
+ * is answered with 400.
+ */
+public class StorageStateApi {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final StorageStateIndex index;
+    private final StorageStateConfig config;
+
+    public StorageStateApi(StorageStateIndex index, StorageStateConfig config) {
+        this.index = index;
+        this.config = config;
+    }
+
+    public void register(MetricsServer server) {
+        route(server, "/api/storage/fullest", params -> index.fullest(
+                limit(params), number(params, "minPercent", 0)));
+
+        route(server, "/api/storage/systems", params -> index.systems(
+                number(params, "fullPercent", config.getFullPercent()),
+                staleAfterMillis((long) number(params, "olderThanSeconds", config.getStaleAfterSeconds()))));
+
+        route(server, "/api/storage/stale", params -> index.staleHosts(
+                staleAfterMillis((long) number(params, "olderThanSeconds", config.getStaleAfterSeconds()))));
+    }
+
+    private static void route(MetricsServer server, String path, Query query) {
+        server.addHandler(path, exchange -> {
+            List<?> items;
+            try {
+                items = query.run(params(exchange));
+            } catch (IllegalArgumentException e) {
+                MetricsServer.respond(exchange, 400, "text/plain; charset=utf-8", e.getMessage() + "\n");
+                return;
+            }
+            reply(exchange, items);
+        });
+    }
+
+    private static long staleAfterMillis(long seconds) {
+        return TimeUnit.SECONDS.toMillis(Math.max(0, seconds));
+    }
+
+    private static void reply(HttpExchange exchange, List<?> items) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("generatedAt", Instant.now().toString());
+        body.put("count", items.size());
+        body.put("items", items);
+        MetricsServer.respond(exchange, 200, JSON, MAPPER.writeValueAsString(body));
+    }
+
+    private static Map<String, String> params(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private int limit(Map<String, String> params) {
+        String value = params.get("limit");
+        long limit = config.getTopLimit();
+        if (value != null && !value.isEmpty()) {
+            try {
+                limit = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limit must be a whole number");
+            }
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be at least 1");
+            }
+        }
+        return (int) Math.max(1, Math.min(limit, config.getMaxLimit()));
+    }
+
+    private static double number(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        if (!Double.isFinite(number)) {
+            throw new IllegalArgumentException(name + " must be a finite number");
+        }
+        return number;
+    }
+
+    private interface Query {
+        List<?> run(Map<String, String> params);
+    }
+}
@@ -0,0 +1,454 @@
+package org.munycha.kafkaconsumer.state;
+
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.model.MountPathStorageUsage;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Latest storage usage per (systemId, serverName, path), kept in memory so
+ * "what is full right now?" never has to scan the snapshot tables.
+ * <p>
+ * Mount values live in parallel primitive arrays indexed by a slot number;
+ * each host maps its paths to slots. A snapshot replaces the host's values
+ * only if it is not older than the one already held, so replays and late
+ * records do not roll state back. Mounts missing from a host's latest
+ * snapshot are no longer reported.
+ * <p>
+ * Updates come from the consumer threads, queries from the HTTP thread;
+ * both take one lock per call.
+ */
+public class StorageStateIndex {
+
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Hosts by systemId + NUL + serverName, and by id
+    private final Map<String, Host> hosts = new HashMap<>();
+    private final List<Host> hostsById = new ArrayList<>();
+
+    // Mount slots, struct-of-arrays
+    private int mounts = 0;
+    private int[] mountHost = new int[64];
+    private String[] mountPath = new String[64];
+    private long[] totalBytes = new long[64];
+    private long[] usedBytes = new long[64];
+    private double[] usedPercent = new double[64];
+    private long[] collectedAt = new long[64];
+
+    public StorageStateIndex(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void update(ServerStorageSnapshot snapshot) {
+        if (!enabled || snapshot == null) {
+            return;
+        }
+
+        long received = System.currentTimeMillis();
+        long collected = snapshot.getCollectedMillis();
+        String hostKey = snapshot.getSystemId() + '\0' + snapshot.getServerName();
+
+        lock.writeLock().lock();
+        try {
+            Host host = hosts.get(hostKey);
+            if (host == null) {
+                host = new Host(hostsById.size(), snapshot.getSystemId(), snapshot.getServerName());
+                hosts.put(hostKey, host);
+                hostsById.add(host);
+            }
+
+            host.lastReceivedAt = received;
+            if (collected < host.lastCollectedAt) {
+                return;
+            }
+            host.lastCollectedAt = collected;
+            host.systemName = snapshot.getSystemName();
+            host.serverIp = snapshot.getServerIp();
+
+            List<MountPathStorageUsage> usages = snapshot.getMountPathStorageUsages();
+            if (usages == null) {
+                return;
+            }
+
+            for (MountPathStorageUsage usage : usages) {
+                Integer slot = host.slots.get(usage.getPath());
+                if (slot == null) {
+                    slot = addMount(host.id, usage.getPath());
+                    host.slots.put(usage.getPath(), slot);
+                }
+                totalBytes[slot] = usage.getTotalBytes();
+                usedBytes[slot] = usage.getUsedBytes();
+                usedPercent[slot] = usage.getUsedPercent();
+                collectedAt[slot] = collected;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int addMount(int hostId, String path) {
+        if (mounts == mountHost.length) {
+            int capacity = mounts * 2;
+            mountHost = Arrays.copyOf(mountHost, capacity);
+            mountPath = Arrays.copyOf(mountPath, capacity);
+            totalBytes = Arrays.copyOf(totalBytes, capacity);
+            usedBytes = Arrays.copyOf(usedBytes, capacity);
+            usedPercent = Arrays.copyOf(usedPercent, capacity);
+            collectedAt = Arrays.copyOf(collectedAt, capacity);
+        }
+        mountHost[mounts] = hostId;
+        mountPath[mounts] = path;
+        return mounts++;
+    }
+
+    // Whether the slot was part of its host's latest snapshot; caller holds the lock
+    private boolean isCurrent(int slot) {
+        return collectedAt[slot] == hostsById.get(mountHost[slot]).lastCollectedAt;
+    }
+
+    /**
+     * The {@code limit} mounts with the highest usedPercent, at least
+     * {@code minPercent}, fullest first.
+     */
+    public List<MountState> fullest(int limit, double minPercent) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Min-heap of the best slots seen so far; never more than there are mounts
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(limit, mounts) + 1,
+                    (a, b) -> Double.compare(usedPercent[a], usedPercent[b]));
+
+            for (int slot = 0; slot < mounts; slot++) {
+                if (usedPercent[slot] < minPercent || !isCurrent(slot)) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(slot);
+                } else if (usedPercent[slot] > usedPercent[top.peek()]) {
+                    top.poll();
+                    top.add(slot);
+                }
+            }
+
+            List<MountState> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                result.add(mountState(top.poll()));
+            }
+            // Heap order is ascending
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Usage per system: capacity summed over the current mounts of all its
+     * hosts, plus how many mounts are at or above {@code fullPercent} and how
+     * many hosts have not reported for {@code staleAfterMillis}.
+     */
+    public List<SystemRollup> systems(double fullPercent, long staleAfterMillis) {
+        long now = System.currentTimeMillis();
+
+        lock.readLock().lock();
+        try {
+            Map<String, SystemRollup> rollups = new LinkedHashMap<>();
+
+            for (Host host : hostsById) {
+                SystemRollup rollup = rollups.computeIfAbsent(host.systemId,
+                        id -> new SystemRollup(id, host.systemName));
+                rollup.hosts++;
+                if (now - host.lastReceivedAt >= staleAfterMillis) {
+                    rollup.staleHosts++;
+                }
+            }
+
+            for (int slot = 0; slot < mounts; slot++) {
+                if (!isCurrent(slot)) {
+                    continue;
+                }
+                SystemRollup rollup = rollups.get(hostsById.get(mountHost[slot]).systemId);
+                rollup.mounts++;
+                rollup.totalBytes += totalBytes[slot];
+                rollup.usedBytes += usedBytes[slot];
+                rollup.maxUsedPercent = Math.max(rollup.maxUsedPercent, usedPercent[slot]);
+                if (usedPercent[slot] >= fullPercent) {
+                    rollup.fullMounts++;
+                }
+            }
+
+            return new ArrayList<>(rollups.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hosts whose last snapshot arrived at least {@code staleAfterMillis} ago,
+     * longest silent first.
+     */
+    public List<HostState> staleHosts(long staleAfterMillis) {
+        long now = System.currentTimeMillis();
+
+        lock.readLock().lock();
+        try {
+            List<HostState> result = new ArrayList<>();
+            for (Host host : hostsById) {
+                if (now - host.lastReceivedAt >= staleAfterMillis) {
+                    result.add(new HostState(host, now));
+                }
+            }
+            result.sort((a, b) -> Long.compare(b.getSecondsSinceLastSnapshot(), a.getSecondsSinceLastSnapshot()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MountState mountState(int slot) {
+        Host host = hostsById.get(mountHost[slot]);
+        return new MountState(host, mountPath[slot], totalBytes[slot], usedBytes[slot],
+                usedPercent[slot], collectedAt[slot]);
+    }
+
+    public int hostCount() {
+        lock.readLock().lock();
+        try {
+            return hostsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int mountCount() {
+        lock.readLock().lock();
+        try {
+            return mounts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.gauge("storage_state_hosts", "Hosts in the in-memory storage index", this::hostCount);
+        registry.gauge("storage_state_mounts", "Mount paths in the in-memory storage index", this::mountCount);
+    }
+
+    private static final class Host {
+        private final int id;
+        private final String systemId;
+        private final String serverName;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private String systemName;
+        private String serverIp;
+        private long lastCollectedAt = Long.MIN_VALUE;
+        private long lastReceivedAt;
+
+        private Host(int id, String systemId, String serverName) {
+            this.id = id;
+            this.systemId = systemId;
+            this.serverName = serverName;
+        }
+    }
+
+    /**
+     * Latest known usage of one mount path. Getters are serialized as JSON.
+     */
+    public static final class MountState {
+        private final String systemId;
+        private final String systemName;
+        private final String serverName;
+        private final String serverIp;
+        private final String path;
+        private final long totalBytes;
+        private final long usedBytes;
+        private final double usedPercent;
+        private final String collectedAt;
+
+        private MountState(Host host, String path, long totalBytes, long usedBytes,
+                           double usedPercent, long collectedAt) {
+            this.systemId = host.systemId;
+            this.systemName = host.systemName;
+            this.serverName = host.serverName;
+            this.serverIp = host.serverIp;
+            this.path = path;
+            this.totalBytes = totalBytes;
+            this.usedBytes = usedBytes;
+            this.usedPercent = usedPercent;
+            this.collectedAt = Instant.ofEpochMilli(collectedAt).toString();
+        }
+
+        public String getSystemId() {
+            return systemId;
+        }
+
+        public String getSystemName() {
+            return systemName;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public String getServerIp() {
+            return serverIp;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getUsedBytes() {
+            return usedBytes;
+        }
+
+        public double getUsedPercent() {
+            return usedPercent;
+        }
+
+        public String getCollectedAt() {
+            return collectedAt;
+        }
+    }
+
+    /**
+     * Current usage of one system summed over its hosts.
+     */
+    public static final class SystemRollup {
+        private final String systemId;
+        private final String systemName;
+        private int hosts;
+        private int staleHosts;
+        private int mounts;
+        private int fullMounts;
+        private long totalBytes;
+        private long usedBytes;
+        private double maxUsedPercent;
+
+        private SystemRollup(String systemId, String systemName) {
+            this.systemId = systemId;
+            this.systemName = systemName;
+        }
+
+        public String getSystemId() {
+            return systemId;
+        }
+
+        public String getSystemName() {
+            return systemName;
+        }
+
+        public int getHosts() {
+            return hosts;
+        }
+
+        public int getStaleHosts() {
+            return staleHosts;
+        }
+
+        public int getMounts() {
+            return mounts;
+        }
+
+        public int getFullMounts() {
+            return fullMounts;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getUsedBytes() {
+            return usedBytes;
+        }
+
+        public double getUsedPercent() {
+            return totalBytes == 0 ? 0 : Math.round(usedBytes * 10000.0 / totalBytes) / 100.0;
+        }
+
+        public double getMaxUsedPercent() {
+            return maxUsedPercent;
+        }
+    }
+
+    /**
+     * Reporting state of one host.
+     */
+    public static final class HostState {
+        private final String systemId;
+        private final String systemName;
+        private final String serverName;
+        private final String serverIp;
+        private final String lastCollectedAt;
+        private final String lastReceivedAt;
+        private final long secondsSinceLastSnapshot;
+        private final int mounts;
+
+        private HostState(Host host, long now) {
+            this.systemId = host.systemId;
+            this.systemName = host.systemName;
+            this.serverName = host.serverName;
+            this.serverIp = host.serverIp;
+            this.lastCollectedAt = host.lastCollectedAt == Long.MIN_VALUE
+                    ? null
+                    : Instant.ofEpochMilli(host.lastCollectedAt).toString();
+            this.lastReceivedAt = Instant.ofEpochMilli(host.lastReceivedAt).toString();
+            this.secondsSinceLastSnapshot = (now - host.lastReceivedAt) / 1000;
+            this.mounts = host.slots.size();
+        }
+
+        public String getSystemId() {
+            return systemId;
+        }
+
+        public String getSystemName() {
+            return systemName;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public String getServerIp() {
+            return serverIp;
+        }
+
+        public String getLastCollectedAt() {
+            return lastCollectedAt;
+        }
+
+        public String getLastReceivedAt() {
+            return lastReceivedAt;
+        }
+
+        public long getSecondsSinceLastSnapshot() {
+            return secondsSinceLastSnapshot;
+        }
+
+        public int getMounts() {
+            return mounts;
+        }
+    }
+}
@@ -1,111 +1,307 @@
 package org.munycha.kafkaconsumer.telegram;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.SocketTimeoutException;
-import java.net.URL;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.munycha.kafkaconsumer.config.QueueConfig;
+import org.munycha.kafkaconsumer.config.TelegramConfig;
+import org.munycha.kafkaconsumer.config.ThreadMode;
+import org.munycha.kafkaconsumer.metrics.Histogram;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.munycha.kafkaconsumer.utility.BoundedQueue;
+import org.munycha.kafkaconsumer.utility.ThreadFactories;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends alerts to a Telegram chat without blocking the caller.
+ * <p>
+ * {@link #submit(String)} only queues the alert. A sender thread takes tokens
+ * from a token bucket (1 msg/sec by default) and, for each token, joins as
+ * many queued alerts as fit into one message of up to 4096 characters. A burst
+ * of alerts therefore goes out in a few messages instead of one per second.
+ * <p>
+ * Requests go through one {@link HttpClient}, which keeps the connection (and
+ * TLS session) open between messages. Failed sends are retried with
+ * exponential backoff, or after Telegram's {@code retry_after} on HTTP 429;
+ * the retry is scheduled, so nothing sleeps while waiting.
+ */
+public class TelegramNotifier implements AutoCloseable {
 
-public class TelegramNotifier {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String SEPARATOR = "\n\n";
+    private static final long TICK_MS = 50;
+    private static final long MAX_BACKOFF_MS = 30_000;
 
-    private final String botToken;
     private final String chatId;
-    private long lastSend = 0;
+    private final URI sendUri;
+    private final TelegramConfig config;
+    private final BoundedQueue<String> queue;
+    private final TokenBucket rateLimiter;
+    private final ExecutorService httpExecutor;
+    private final HttpClient client;
+    private final ScheduledExecutorService sender;
+
+    // Only touched under the notifier's lock
+    private String inFlight;
+    private boolean requestActive = false;
+    private int attempt = 0;
+    private long retryAt = 0;
+
+    private volatile boolean accepting = true;
 
-    public TelegramNotifier(String botToken, String chatId) {
-        this.botToken = botToken;
+    private final Histogram sendLatency = new Histogram();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder alertsSent = new LongAdder();
+    private final LongAdder messagesFailed = new LongAdder();
+
+    // Alerts joined into the message in flight
+    private int inFlightAlerts;
+
+    public TelegramNotifier(String botToken,
+                            String chatId,
+                            TelegramConfig config,
+                            QueueConfig queueConfig,
+                            ThreadMode threadMode) {
         this.chatId = chatId;
+        this.config = config;
+        this.sendUri = URI.create(stripSlash(config.getApiUrl()) + "/bot" + botToken + "/sendMessage");
+        this.queue = new BoundedQueue<>("telegram", queueConfig, new StringCodec(), message -> {
+        });
+        this.rateLimiter = new TokenBucket(config.getMessagesPerSecond(), config.getBurst());
+
+        this.httpExecutor = ThreadFactories.executor("telegram-http", threadMode, 1);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(config.getRequestTimeoutMs()))
+                .executor(httpExecutor)
+                .build();
+
+        this.sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "telegram-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender.scheduleWithFixedDelay(this::pump, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
     }
 
-    public synchronized void sendMessage(String message) {
+    private static String stripSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
 
+    /**
+     * Queues an alert; what happens when the queue is full depends on
+     * {@code telegramQueue.overflowPolicy}.
+     */
+    public void submit(String message) {
+        if (!accepting) {
+            return;
+        }
         try {
-            enforceRateLimit();
+            queue.put(message);
         } catch (InterruptedException e) {
-            return;
+            Thread.currentThread().interrupt();
         }
+    }
 
-        int maxRetries = 3;
-
-        for (int i = 1; i <= maxRetries; i++) {
-            try {
-                sendRequest(message);
-                lastSend = System.currentTimeMillis();
-                return;
+    public boolean isSaturated() {
+        return queue.isSaturated();
+    }
 
-            } catch (SocketTimeoutException e) {
-                System.err.println("[TelegramNotifier] Timeout sending message (attempt "
-                        + i + "/" + maxRetries + ")");
+    private synchronized void pump() {
+        queue.syncSpill();
 
-                if (i == maxRetries) {
-                    System.err.println("[TelegramNotifier] FAILED after max retries, message dropped.");
-                    return;
-                }
+        if (requestActive || System.currentTimeMillis() < retryAt) {
+            return;
+        }
 
-                // Wait 1 second before retry
-                try { Thread.sleep(1000); } catch (InterruptedException ignored) {}
-            }
-            catch (Exception e) {
-                System.err.println("[TelegramNotifier] Error: " + e.getMessage());
+        if (inFlight == null) {
+            if (queue.peek() == null || !rateLimiter.tryAcquire()) {
                 return;
             }
+            inFlightAlerts = 0;
+            inFlight = coalesce();
+            attempt = 0;
         }
+
+        requestActive = true;
+        attempt++;
+        send(inFlight);
     }
 
+    // Joins queued alerts into one message of at most maxMessageChars
+    private String coalesce() {
+        int limit = Math.max(64, config.getMaxMessageChars());
+        String first = queue.poll();
+        inFlightAlerts = 1;
 
-    private void enforceRateLimit() throws InterruptedException {
-        long now = System.currentTimeMillis();
-        long diff = now - lastSend;
+        if (first.length() > limit) {
+            return first.substring(0, limit - 3) + "...";
+        }
 
-        if (diff < 1000) {
-            Thread.sleep(1000 - diff);  // enforce 1 message/sec
+        StringBuilder message = new StringBuilder(first);
+        String next;
+        while ((next = queue.peek()) != null
+                && message.length() + SEPARATOR.length() + next.length() <= limit) {
+            message.append(SEPARATOR).append(queue.poll());
+            inFlightAlerts++;
         }
+        return message.toString();
     }
 
-    private URL buildUrl() throws Exception {
-        return new URL("https://api.telegram.org/bot" + botToken + "/sendMessage");
+    private void send(String message) {
+        HttpRequest request;
+        try {
+            ObjectNode body = MAPPER.createObjectNode()
+                    .put("chat_id", chatId)
+                    .put("text", message);
+
+            request = HttpRequest.newBuilder(sendUri)
+                    .timeout(Duration.ofMillis(config.getRequestTimeoutMs()))
+                    .header("Content-Type", "application/json; charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("[TelegramNotifier] Error: " + e.getMessage());
+            messagesFailed.increment();
+            completed();
+            return;
+        }
+
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    sendLatency.recordSince(start);
+
+                    if (error != null) {
+                        retryOrDrop("Error: " + error.getMessage(), backoff());
+                    } else if (response.statusCode() == 200) {
+                        messagesSent.increment();
+                        alertsSent.add(inFlightAlerts());
+                        completed();
+                    } else if (response.statusCode() == 429) {
+                        retryOrDrop("Rate limited by Telegram", retryAfter(response.body()));
+                    } else if (response.statusCode() >= 500) {
+                        retryOrDrop("HTTP " + response.statusCode(), backoff());
+                    } else {
+                        // 4xx other than 429 will not get better by retrying
+                        System.err.println("[TelegramNotifier] HTTP " + response.statusCode()
+                                + ", message dropped: " + response.body());
+                        messagesFailed.increment();
+                        completed();
+                    }
+                });
     }
 
-    private void sendRequest(String message) throws Exception {
-        URL url = buildUrl();
-        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
+    private synchronized int inFlightAlerts() {
+        return inFlightAlerts;
+    }
 
-        configureConnection(conn);
-        writeRequestBody(conn, message);
-        readResponse(conn);
+    private synchronized void completed() {
+        inFlight = null;
+        requestActive = false;
+        retryAt = 0;
     }
 
-    private void configureConnection(HttpsURLConnection conn) throws Exception {
-        conn.setRequestMethod("POST");
-        conn.setConnectTimeout(7000);
-        conn.setReadTimeout(7000);
-        conn.setDoOutput(true);
-        conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+    private synchronized void retryOrDrop(String reason, long delayMs) {
+        requestActive = false;
+
+        if (attempt >= config.getMaxRetries()) {
+            System.err.println("[TelegramNotifier] " + reason + " - FAILED after "
+                    + attempt + " attempts, message dropped.");
+            messagesFailed.increment();
+            inFlight = null;
+            retryAt = 0;
+            return;
+        }
+
+        System.err.println("[TelegramNotifier] " + reason + " (attempt " + attempt + "/"
+                + config.getMaxRetries() + "), retrying in " + delayMs + " ms");
+        retryAt = System.currentTimeMillis() + delayMs;
     }
 
-    private void writeRequestBody(HttpsURLConnection conn, String message) throws Exception {
-        String body = buildJsonBody(message);
+    private synchronized long backoff() {
+        return Math.min(MAX_BACKOFF_MS, 1000L << Math.min(attempt - 1, 10));
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(body.getBytes(StandardCharsets.UTF_8));
+    private long retryAfter(String body) {
+        try {
+            JsonNode seconds = MAPPER.readTree(body).path("parameters").path("retry_after");
+            if (seconds.canConvertToLong()) {
+                return TimeUnit.SECONDS.toMillis(seconds.asLong());
+            }
+        } catch (IOException ignored) {
         }
+        return backoff();
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.histogram("telegram_send_seconds", "Time for one sendMessage request", sendLatency);
+        registry.counter("telegram_messages_sent_total", "Messages delivered", messagesSent::sum);
+        registry.counter("telegram_alerts_sent_total", "Alerts delivered (several per message when coalesced)",
+                alertsSent::sum);
+        registry.counter("telegram_messages_failed_total", "Messages dropped after a permanent error or retries",
+                messagesFailed::sum);
+        registry.counter("telegram_alerts_dropped_total", "Alerts dropped because the queue was full",
+                queue::droppedCount);
+        registry.gauge("telegram_queue_depth", "Alerts waiting to be sent", queue::size);
     }
 
-    private String buildJsonBody(String message) {
-        return "{"
-                + "\"chat_id\":\"" + chatId + "\","
-                + "\"text\":\"" + escapeJson(message) + "\""
-                + "}";
+    private synchronized boolean idle() {
+        return inFlight == null && queue.isEmpty();
     }
 
-    private void readResponse(HttpsURLConnection conn) throws Exception {
-        try (InputStream is = conn.getInputStream()) {
-            // Consume response
+    /**
+     * Stops accepting alerts and keeps sending until the queue is empty or
+     * {@code timeoutMs} has passed.
+     */
+    public void close(long timeoutMs) {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        while (!idle() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(TICK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (!idle()) {
+            System.err.println("[TelegramNotifier] Shutting down with unsent alerts");
         }
+
+        sender.shutdownNow();
+        httpExecutor.shutdownNow();
+        queue.close();
+    }
+
+    @Override
+    public void close() {
+        close(TimeUnit.SECONDS.toMillis(5));
     }
 
-    private String escapeJson(String s) {
-        return s.replace("\"", "\\\"");
+    private static final class StringCodec implements BoundedQueue.Codec<String> {
+        @Override
+        public byte[] encode(String message) {
+            return message.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
     }
 }
@@ -0,0 +1,35 @@
+package org.munycha.kafkaconsumer.telegram;
+
+/**
+ * Token bucket for the Telegram send rate. Not thread-safe; used only from
+ * the notifier's sender thread.
+ */
+class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double perSecond, int burst) {
+        this.tokensPerNano = Math.max(0.001, perSecond) / 1_000_000_000.0;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
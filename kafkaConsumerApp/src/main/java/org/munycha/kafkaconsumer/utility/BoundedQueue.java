@@ -0,0 +1,324 @@
+package org.munycha.kafkaconsumer.utility;
+
+import org.munycha.kafkaconsumer.config.OverflowPolicy;
+import org.munycha.kafkaconsumer.config.QueueConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-capacity hand-off queue between the consumer threads and a slow
+ * downstream (database, Telegram).
+ * <p>
+ * What happens when it is full depends on the {@link OverflowPolicy}:
+ * <ul>
+ *     <li>BLOCK: {@link #isSaturated()} turns true near capacity so consumers
+ *     can pause their partitions; a put on a completely full queue waits.</li>
+ *     <li>DROP_OLDEST: the oldest item is discarded.</li>
+ *     <li>SPILL: items go to a {@link SpillLog} and are fed back in order once
+ *     the queue has drained.</li>
+ * </ul>
+ * Items leaving the queue without being taken (dropped or spilled) are passed
+ * to the {@code onShed} callback. Spilled items are passed on only by
+ * {@link #syncSpill}, once they are forced to disk; the owner calls it
+ * regularly, so one fsync covers every item spilled in between. With SPILL
+ * the owner can also {@link #divert} all new items to disk while its
+ * downstream is down.
+ */
+public class BoundedQueue<T> implements AutoCloseable {
+
+    /** Converts items to bytes and back; only needed for SPILL. */
+    public interface Codec<T> {
+        byte[] encode(T item) throws IOException;
+
+        T decode(byte[] bytes) throws IOException;
+
+        /**
+         * Decodes a record read back from the spill log; {@code done} releases
+         * it there. By default that happens as soon as it is back in memory.
+         */
+        default T decode(byte[] bytes, Runnable done) throws IOException {
+            T item = decode(bytes);
+            done.run();
+            return item;
+        }
+    }
+
+    private final String name;
+    private final ArrayBlockingQueue<T> queue;
+    private final OverflowPolicy policy;
+    private final Codec<T> codec;
+    private final Consumer<T> onShed;
+    private final SpillLog spill;
+
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    // Spilled but not yet forced to disk, so not yet shed
+    private final List<T> unsynced = new ArrayList<>();
+
+    // While set, put() goes straight to the spill log
+    private volatile boolean diverted = false;
+    private volatile boolean replaying = true;
+
+    public BoundedQueue(String name, QueueConfig config, Codec<T> codec, Consumer<T> onShed) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getCapacity()));
+        this.codec = codec;
+        this.onShed = onShed;
+
+        int capacity = queue.remainingCapacity();
+        this.highWatermark = Math.max(1, capacity * 9 / 10);
+        this.lowWatermark = capacity / 2;
+
+        OverflowPolicy requested = config.getOverflowPolicy();
+        SpillLog spillLog = null;
+
+        if (requested == OverflowPolicy.SPILL) {
+            if (codec == null) {
+                System.err.println("[" + name + "] SPILL is not supported here, using BLOCK");
+                requested = OverflowPolicy.BLOCK;
+            } else {
+                try {
+                    spillLog = new SpillLog(Path.of(config.getSpillDir(), name),
+                            config.getSpillSegmentBytes(), config.getSpillMaxBytes());
+                    // Left behind by versions that spilled to a single file
+                    spillLog.importLegacy(Path.of(config.getSpillDir(), name + ".spill"));
+                } catch (IOException e) {
+                    System.err.println("[" + name + "] Cannot open spill file, using BLOCK: " + e.getMessage());
+                    requested = OverflowPolicy.BLOCK;
+                }
+            }
+        }
+
+        this.policy = requested;
+        this.spill = spillLog;
+    }
+
+    public void put(T item) throws InterruptedException {
+        // Once spilling, keep going to disk until the backlog is replayed so order is kept
+        if (spill != null && (diverted || spill.hasPending())) {
+            spill(item);
+            return;
+        }
+
+        if (queue.offer(item)) {
+            return;
+        }
+
+        switch (policy) {
+            case BLOCK:
+                queue.put(item);
+                break;
+
+            case DROP_OLDEST:
+                while (!queue.offer(item)) {
+                    T oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped.increment();
+                        onShed.accept(oldest);
+                    }
+                }
+                if (dropped.sum() % 1000 == 1) {
+                    System.err.println("[" + name + "] Queue full, dropped " + dropped.sum() + " items so far");
+                }
+                break;
+
+            case SPILL:
+                spill(item);
+                break;
+        }
+    }
+
+    private void spill(T item) throws InterruptedException {
+        if (!offerToSpill(item)) {
+            // Disk trouble or a full spill log: fall back to waiting for room
+            queue.put(item);
+        }
+    }
+
+    /**
+     * Writes the item to the spill log; it is shed by the next
+     * {@link #syncSpill}. False (nothing done) if there is no spill log or
+     * the write failed.
+     */
+    public boolean offerToSpill(T item) {
+        if (spill == null) {
+            return false;
+        }
+        try {
+            spill.append(codec.encode(item));
+        } catch (IOException e) {
+            System.err.println("[" + name + "] Spill failed: " + e.getMessage());
+            return false;
+        }
+        spilled.increment();
+        synchronized (unsynced) {
+            unsynced.add(item);
+        }
+        return true;
+    }
+
+    /**
+     * Forces the items spilled since the last call to disk, then sheds them.
+     */
+    public void syncSpill() {
+        if (spill == null) {
+            return;
+        }
+
+        List<T> synced;
+        synchronized (unsynced) {
+            if (unsynced.isEmpty()) {
+                return;
+            }
+            synced = new ArrayList<>(unsynced);
+            unsynced.clear();
+        }
+
+        try {
+            spill.sync();
+        } catch (RuntimeException e) {
+            // Still in the page cache, which outlives a crash of this process
+            System.err.println("[" + name + "] Cannot force the spill log to disk: " + e.getMessage());
+        }
+        for (T item : synced) {
+            onShed.accept(item);
+        }
+    }
+
+    public boolean canSpill() {
+        return spill != null;
+    }
+
+    /**
+     * While diverted (SPILL only), new items go to disk instead of the queue and
+     * what is queued now is moved there too, so nobody waits on a downstream
+     * that is down. Spilled items are still fed back once the queue drains.
+     * Returns whether this call changed the state.
+     */
+    public synchronized boolean divert(boolean divert) {
+        if (spill == null || diverted == divert) {
+            return false;
+        }
+        diverted = divert;
+
+        if (divert) {
+            List<T> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            for (T item : queued) {
+                if (!offerToSpill(item) && !queue.offer(item)) {
+                    onShed.accept(item);
+                    dropped.increment();
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean isDiverted() {
+        return diverted;
+    }
+
+    /**
+     * Stops feeding spilled items back, e.g. on shutdown; they stay on disk
+     * for the next start.
+     */
+    public void stopReplay() {
+        replaying = false;
+    }
+
+    public T peek() {
+        refill();
+        return queue.peek();
+    }
+
+    public T poll() {
+        refill();
+        return queue.poll();
+    }
+
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        refill();
+        return queue.poll(timeout, unit);
+    }
+
+    public int drainTo(Collection<? super T> target, int max) {
+        refill();
+        return queue.drainTo(target, max);
+    }
+
+    private void refill() {
+        if (spill == null || !replaying || queue.size() > lowWatermark || !spill.hasPending()) {
+            return;
+        }
+
+        synchronized (spill) {
+            while (queue.remainingCapacity() > 0) {
+                SpillLog.Record record = spill.next();
+                if (record == null) {
+                    break;
+                }
+                try {
+                    queue.offer(codec.decode(record.bytes(), () -> spill.acknowledge(record)));
+                } catch (IOException e) {
+                    // Passed its checksum, so the codec cannot read what it wrote: nothing to retry
+                    System.err.println("[" + name + "] Cannot decode spilled item, skipping: " + e.getMessage());
+                    spill.acknowledge(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * True when producers should stop feeding the queue for a while (BLOCK only).
+     */
+    public boolean isSaturated() {
+        return policy == OverflowPolicy.BLOCK && queue.size() >= highWatermark;
+    }
+
+    /**
+     * Nothing queued and, unless replay was stopped, nothing spilled.
+     */
+    public boolean isEmpty() {
+        return queue.isEmpty() && (spill == null || !replaying || !spill.hasPending());
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long spilledCount() {
+        return spilled.sum();
+    }
+
+    public long spillPendingCount() {
+        return spill == null ? 0 : spill.pendingRecords();
+    }
+
+    public long spillBytes() {
+        return spill == null ? 0 : spill.sizeBytes();
+    }
+
+    @Override
+    public void close() {
+        if (spill != null) {
+            syncSpill();
+            spill.close();
+        }
+    }
+}
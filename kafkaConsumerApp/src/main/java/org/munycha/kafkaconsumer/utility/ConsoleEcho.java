@@ -0,0 +1,115 @@
+package org.munycha.kafkaconsumer.utility;
+
+import org.munycha.kafkaconsumer.config.ConsoleConfig;
+import org.munycha.kafkaconsumer.config.ConsoleMode;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Console echo of consumed records, off the poll threads.
+ * <p>
+ * Callers ask {@link #shouldEcho()} first, so nothing is formatted for
+ * records that are not shown, then hand the line to {@link #echo(String)},
+ * which only enqueues it. A background thread writes queued lines through
+ * the SLF4J logger {@code console} (see simplelogger.properties). When the
+ * queue is full lines are dropped: console output never slows down consumption.
+ */
+public class ConsoleEcho implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger("console");
+
+    private final ConsoleMode mode;
+    private final int sampleEvery;
+    private final int maxLinesPerSecond;
+    private final ArrayBlockingQueue<String> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // RATE_LIMITED: lines let through in the current second (reset racily; exactness is not needed)
+    private volatile long currentSecond;
+    private final AtomicInteger linesThisSecond = new AtomicInteger();
+
+    private final LongAdder echoed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public ConsoleEcho(ConsoleConfig config) {
+        this.mode = config.getMode();
+        this.sampleEvery = Math.max(1, config.getSampleEvery());
+        this.maxLinesPerSecond = Math.max(1, config.getMaxLinesPerSecond());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+
+        this.writer = new Thread(this::runLoop, "console-echo");
+        this.writer.setDaemon(true);
+        if (mode != ConsoleMode.OFF) {
+            this.writer.start();
+        }
+    }
+
+    /**
+     * Whether the current record should be echoed under the configured mode.
+     */
+    public boolean shouldEcho() {
+        switch (mode) {
+            case FULL:
+                return true;
+
+            case SAMPLED:
+                return ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+
+            case RATE_LIMITED:
+                long second = System.nanoTime() / 1_000_000_000L;
+                if (second != currentSecond) {
+                    currentSecond = second;
+                    linesThisSecond.set(0);
+                }
+                return linesThisSecond.get() < maxLinesPerSecond
+                        && linesThisSecond.incrementAndGet() <= maxLinesPerSecond;
+
+            default:
+                return false;
+        }
+    }
+
+    public void echo(String line) {
+        if (!queue.offer(line)) {
+            dropped.increment();
+        }
+    }
+
+    private void runLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                String line = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    LOG.info(line);
+                    echoed.increment();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.counter("console_lines_echoed_total", "Record lines written to the console", echoed::sum);
+        registry.counter("console_lines_dropped_total", "Record lines dropped because the console was behind",
+                dropped::sum);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.munycha.kafkaconsumer.utility;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a set of files through one WatchService so hot paths can ask
+ * "does this file exist?" without a stat() call per record.
+ * <p>
+ * Watched directories are re-checked every few seconds as a safety net for
+ * file systems that do not deliver events reliably.
+ */
+public class FileWatcher implements AutoCloseable {
+
+    private static final long RECHECK_INTERVAL_MS = 5000;
+
+    private final WatchService watchService;
+    private final Map<Path, WatchedFile> files = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public FileWatcher() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.worker = new Thread(this::runLoop, "file-watcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public WatchedFile watch(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+
+        return files.computeIfAbsent(absolute, f -> {
+            WatchedFile watched = new WatchedFile(f);
+            Path dir = f.getParent();
+
+            try {
+                if (dir != null && !directories.containsValue(dir)) {
+                    WatchKey key = dir.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    directories.put(key, dir);
+                }
+            } catch (IOException e) {
+                System.err.println("[FileWatcher] Cannot watch " + dir + ": " + e.getMessage()
+                        + " (falling back to periodic checks)");
+            }
+            return watched;
+        });
+    }
+
+    private void runLoop() {
+        long lastRecheck = System.currentTimeMillis();
+
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(RECHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    Path dir = directories.get(key);
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                            recheckAll();
+                            continue;
+                        }
+
+                        WatchedFile watched = files.get(dir.resolve((Path) event.context()));
+                        if (watched != null) {
+                            watched.refresh(event.kind());
+                        }
+                    }
+                    key.reset();
+                }
+
+                if (System.currentTimeMillis() - lastRecheck >= RECHECK_INTERVAL_MS) {
+                    recheckAll();
+                    lastRecheck = System.currentTimeMillis();
+                }
+
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private void recheckAll() {
+        for (WatchedFile watched : files.values()) {
+            watched.refresh(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Cached state of one watched file. {@link #version()} changes whenever the
+     * file appears or disappears, so holders of an open handle know to reopen.
+     */
+    public static final class WatchedFile {
+        private final Path path;
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+        private volatile boolean exists;
+        private volatile long version;
+
+        private WatchedFile(Path path) {
+            this.path = path;
+            this.exists = Files.exists(path);
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        // Listeners run on the watcher thread when the file is created, deleted or modified
+        public void addListener(Runnable listener) {
+            listeners.add(listener);
+        }
+
+        // kind is the event that triggered the refresh, or null for a periodic re-check
+        private void refresh(WatchEvent.Kind<?> kind) {
+            // Our own appends produce MODIFY events; only listeners care about those
+            if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                notifyListeners();
+                return;
+            }
+
+            boolean nowExists = Files.exists(path);
+
+            // A delete + create pair (e.g. log rotation) is a new file even if it exists again
+            boolean changed = nowExists != exists
+                    || kind == StandardWatchEventKinds.ENTRY_CREATE
+                    || kind == StandardWatchEventKinds.ENTRY_DELETE;
+
+            if (changed) {
+                exists = nowExists;
+                version++;
+            }
+
+            if (changed) {
+                notifyListeners();
+            }
+        }
+
+        private void notifyListeners() {
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[FileWatcher] Listener failed for " + path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.munycha.kafkaconsumer.utility;
+
+import org.munycha.kafkaconsumer.config.ThreadMode;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs blocking calls to one downstream (database, Telegram) with at most
+ * {@code maxConcurrency} in flight. In VIRTUAL mode each call gets its own
+ * virtual thread and the semaphore is the only limit; in PLATFORM mode the
+ * calls share a fixed pool of that size.
+ * <p>
+ * {@link #execute(Runnable)} waits for a free slot, so a saturated
+ * downstream slows its caller down instead of piling up tasks.
+ */
+public class IoExecutor implements AutoCloseable {
+
+    private final String name;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    public IoExecutor(String name, int maxConcurrency, ThreadMode mode) {
+        int limit = Math.max(1, maxConcurrency);
+        this.name = name;
+        this.permits = new Semaphore(limit);
+        this.executor = ThreadFactories.executor("io-" + name, mode, limit);
+    }
+
+    public void execute(Runnable task) throws InterruptedException {
+        permits.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[" + name + "] Task failed: " + e.getMessage());
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for running tasks to finish, up to {@code timeoutMs}.
+     */
+    public void close(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                System.err.println("[" + name + "] Tasks still running after " + timeoutMs + " ms, interrupting");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(TimeUnit.SECONDS.toMillis(10));
+    }
+}
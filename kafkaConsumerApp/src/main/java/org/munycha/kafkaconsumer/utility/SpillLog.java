@@ -0,0 +1,360 @@
+package org.munycha.kafkaconsumer.utility;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of overflow records, in memory-mapped segment
+ * files under one directory.
+ * <p>
+ * Each record is stored as {@code [length + 1][crc32c][bytes]}. The length
+ * is written last, so a record torn by a crash reads as the end of the
+ * segment (0) or fails its checksum, and the rest of that segment is
+ * discarded. Appends are plain stores into the mapping. The page cache
+ * keeps them through a process crash; {@link #sync} forces what was
+ * appended since the last call to disk, so it also survives a power loss.
+ * Segments are forced as well when they are sealed and on close.
+ * <p>
+ * Records are read back in the order they were written. A segment is
+ * deleted only once every record in it has been read <em>and</em>
+ * {@link #acknowledge acknowledged}, so rows that were read but not yet
+ * committed downstream are read again after a restart (at-least-once).
+ * The total size of all segments is capped at {@code maxBytes}; beyond
+ * that {@link #append} fails and the caller falls back to something else.
+ */
+public class SpillLog implements AutoCloseable {
+
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final CRC32C crc = new CRC32C();
+
+    // Oldest first; the last one takes appends unless it is sealed
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private long nextId = 1;
+    private long totalBytes = 0;
+    private long unread = 0;
+
+    public SpillLog(Path dir, int segmentBytes, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(64 * 1024, segmentBytes);
+        this.maxBytes = Math.max(this.segmentBytes, maxBytes);
+        Files.createDirectories(dir);
+
+        recover();
+    }
+
+    // Segments left by a previous run are sealed and replayed from their start
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            nextId = Math.max(nextId, id + 1);
+
+            int size = (int) Math.min(Integer.MAX_VALUE, Files.size(file));
+            Segment segment = Segment.open(file, size);
+            segment.scan(crc);
+            segment.sealed = true;
+
+            if (segment.records == 0) {
+                segment.delete();
+                continue;
+            }
+            segments.addLast(segment);
+            totalBytes += segment.capacity;
+            unread += segment.records;
+        }
+
+        if (unread > 0) {
+            System.out.println("[SpillLog] Replaying " + unread + " records left in " + dir);
+        }
+    }
+
+    /**
+     * Moves the records of an old single-file spill ({@code [length][bytes]}
+     * without checksums) into the log and deletes the file.
+     */
+    public synchronized void importLegacy(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        int imported = 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            while (true) {
+                byte[] record = readLegacy(in);
+                if (record == null) {
+                    break;
+                }
+                append(record);
+                imported++;
+            }
+        }
+        Files.delete(file);
+
+        if (imported > 0) {
+            System.out.println("[SpillLog] Imported " + imported + " records from " + file);
+        }
+    }
+
+    private static byte[] readLegacy(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] record = in.readNBytes(Math.max(0, length));
+        // A torn tail from a crash ends the file
+        return length < 0 || record.length < length ? null : record;
+    }
+
+    public synchronized void append(byte[] record) throws IOException {
+        int needed = HEADER + record.length;
+        Segment tail = segments.peekLast();
+
+        // Room is kept for a zero length after the record, ending the segment for recovery
+        if (tail == null || tail.sealed || tail.capacity - tail.writeOffset < needed + 4) {
+            tail = roll(needed);
+        }
+
+        crc.reset();
+        crc.update(record, 0, record.length);
+
+        int offset = tail.writeOffset;
+        // A rewound segment still holds older records further on
+        tail.buffer.putInt(offset + needed, 0);
+        tail.buffer.putInt(offset + 4, (int) crc.getValue());
+        tail.buffer.put(offset + HEADER, record);
+        // Last: a non-zero length is what makes the record visible after a crash
+        tail.buffer.putInt(offset, record.length + 1);
+
+        tail.writeOffset += needed;
+        tail.records++;
+        unread++;
+    }
+
+    private Segment roll(int needed) throws IOException {
+        Segment tail = segments.peekLast();
+        if (tail != null && !tail.sealed) {
+            tail.seal();
+        }
+
+        int size = Math.max(segmentBytes, needed + 4);
+        if (totalBytes + size > maxBytes) {
+            throw new IOException("Spill log " + dir + " is full (" + totalBytes + " bytes)");
+        }
+
+        long id = nextId++;
+        Segment segment = Segment.open(dir.resolve(String.format("%020d%s", id, SUFFIX)), size);
+        segments.addLast(segment);
+        totalBytes += size;
+        return segment;
+    }
+
+    /**
+     * Forces every record appended so far to disk. Meant to be called once
+     * per batch of appends, before anyone is told they are safe.
+     */
+    public synchronized void sync() {
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.sealed || tail.writeOffset <= tail.syncedOffset) {
+            return;
+        }
+        // Includes the zero length that ends the segment
+        int end = Math.min(tail.capacity, tail.writeOffset + 4);
+        tail.buffer.force(tail.syncedOffset, end - tail.syncedOffset);
+        tail.syncedOffset = tail.writeOffset;
+    }
+
+    /**
+     * Returns the next unread record, or null when everything has been read.
+     */
+    public synchronized Record next() {
+        for (Segment segment : segments) {
+            if (segment.readOffset >= segment.writeOffset) {
+                continue;
+            }
+
+            int offset = segment.readOffset;
+            int length = segment.buffer.getInt(offset) - 1;
+            int checksum = segment.buffer.getInt(offset + 4);
+            byte[] bytes = new byte[length];
+            segment.buffer.get(offset + HEADER, bytes);
+
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                // Only possible if the file was damaged on disk; nothing after it can be trusted
+                System.err.println("[SpillLog] Checksum mismatch at " + offset + " in " + segment.path
+                        + ", discarding the rest of the segment");
+                unread -= segment.records - segment.read;
+                segment.records = segment.read;
+                segment.readOffset = segment.writeOffset;
+                release(segment);
+                return next();
+            }
+
+            segment.readOffset += HEADER + length;
+            segment.read++;
+            unread--;
+            return new Record(bytes, segment);
+        }
+        return null;
+    }
+
+    /**
+     * Marks a record as done with: committed downstream, or re-appended.
+     */
+    public synchronized void acknowledge(Record record) {
+        record.segment.acked++;
+        release(record.segment);
+    }
+
+    private void release(Segment segment) {
+        if (segment.acked < segment.records || segment.readOffset < segment.writeOffset) {
+            return;
+        }
+
+        if (!segment.sealed) {
+            // The segment taking appends is rewound instead of deleted
+            segment.buffer.putInt(0, 0);
+            segment.writeOffset = 0;
+            segment.syncedOffset = 0;
+            segment.readOffset = 0;
+            segment.records = 0;
+            segment.read = 0;
+            segment.acked = 0;
+            return;
+        }
+
+        segments.remove(segment);
+        totalBytes -= segment.capacity;
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            System.err.println("[SpillLog] Cannot delete " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized boolean hasPending() {
+        return unread > 0;
+    }
+
+    public synchronized long pendingRecords() {
+        return unread;
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    /** A record read from the log; pass it to {@link #acknowledge} once done with. */
+    public static final class Record {
+        private final byte[] bytes;
+        private final Segment segment;
+
+        private Record(byte[] bytes, Segment segment) {
+            this.bytes = bytes;
+            this.segment = segment;
+        }
+
+        public byte[] bytes() {
+            return bytes;
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+
+        private int writeOffset;
+        private int syncedOffset;
+        private int readOffset;
+        private int records;
+        private int read;
+        private int acked;
+        private boolean sealed;
+
+        private Segment(Path path, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        static Segment open(Path path, int size) throws IOException {
+            // The mapping stays valid after the channel is closed
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+            }
+        }
+
+        // Finds the end of the valid records of a segment written by an earlier run
+        void scan(CRC32C crc) {
+            int offset = 0;
+            while (offset + HEADER <= capacity) {
+                int length = buffer.getInt(offset) - 1;
+                if (length < 0) {
+                    break;
+                }
+                if (length > capacity - offset - HEADER) {
+                    System.err.println("[SpillLog] Torn record at " + offset + " in " + path + ", discarding the rest");
+                    break;
+                }
+
+                byte[] bytes = new byte[length];
+                buffer.get(offset + HEADER, bytes);
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                    System.err.println("[SpillLog] Checksum mismatch at " + offset + " in " + path + ", discarding the rest");
+                    break;
+                }
+
+                offset += HEADER + length;
+                records++;
+            }
+            writeOffset = offset;
+            syncedOffset = offset;
+        }
+
+        void seal() {
+            buffer.force();
+            sealed = true;
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.munycha.kafkaconsumer.utility;
+
+import org.munycha.kafkaconsumer.config.ThreadMode;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the configured {@link ThreadMode}.
+ * <p>
+ * The build targets Java 17, so virtual threads are looked up reflectively
+ * ({@code Thread.ofVirtual()}); on an older runtime VIRTUAL falls back to
+ * platform threads with a warning.
+ */
+public final class ThreadFactories {
+
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle BUILDER_NAME;
+    private static final MethodHandle BUILDER_FACTORY;
+    private static final MethodHandle THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle perTask = null;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> virtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilder));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            perTask = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            // Pre-21 runtime
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+        THREAD_PER_TASK_EXECUTOR = perTask;
+    }
+
+    private static volatile boolean warnedFallback = false;
+
+    private ThreadFactories() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns the mode that will actually be used on this runtime.
+     */
+    public static ThreadMode effective(ThreadMode requested) {
+        if (requested == ThreadMode.VIRTUAL && !virtualThreadsAvailable()) {
+            if (!warnedFallback) {
+                System.err.println("[Threads] Virtual threads need Java 21 (running "
+                        + Runtime.version().feature() + "), using platform threads");
+                warnedFallback = true;
+            }
+            return ThreadMode.PLATFORM;
+        }
+        return requested == null ? ThreadMode.PLATFORM : requested;
+    }
+
+    /**
+     * Threads named {@code <prefix>-0}, {@code <prefix>-1}, ... Platform threads are daemons.
+     */
+    public static ThreadFactory named(String prefix, ThreadMode mode) {
+        if (effective(mode) == ThreadMode.VIRTUAL) {
+            try {
+                Object builder = OF_VIRTUAL.invoke();
+                builder = BUILDER_NAME.invoke(builder, prefix + "-", 0L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (Throwable e) {
+                System.err.println("[Threads] Cannot create virtual threads, using platform threads: " + e);
+            }
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * VIRTUAL: a new virtual thread per task. PLATFORM: a fixed pool of {@code platformThreads}.
+     */
+    public static ExecutorService executor(String prefix, ThreadMode mode, int platformThreads) {
+        if (effective(mode) == ThreadMode.VIRTUAL) {
+            try {
+                return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(named(prefix, ThreadMode.VIRTUAL));
+            } catch (Throwable e) {
+                System.err.println("[Threads] Cannot create virtual thread executor, using platform threads: " + e);
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), named(prefix, ThreadMode.PLATFORM));
+    }
+}
@@ -0,0 +1,104 @@
+package org.munycha.kafkaconsumer.alert;
+
+import org.junit.jupiter.api.Test;
+import org.munycha.kafkaconsumer.config.AlertDedupConfig;
+import org.munycha.kafkaconsumer.model.LogEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertDeduplicatorTest {
+
+    private static String fingerprint(String message) {
+        return AlertDeduplicator.fingerprint("web-01", "/var/log/app.log", message);
+    }
+
+    @Test
+    void masksNumbersHexAndUuids() {
+        assertEquals(fingerprint("pid 4711 died"), fingerprint("pid 4712 died"));
+        assertEquals(fingerprint("took 15ms, retry 3/5"), fingerprint("took 2048ms, retry 4/5"));
+        assertEquals(fingerprint("segfault at 0x7f3a2c001000"), fingerprint("segfault at 0xDEADBEEF"));
+        assertEquals(fingerprint("request 123e4567-e89b-12d3-a456-426614174000 failed"),
+                fingerprint("request 9F1C2D3E-0000-4A5B-8C7D-112233445566 failed"));
+    }
+
+    @Test
+    void keepsTheWordsApart() {
+        assertNotEquals(fingerprint("disk full"), fingerprint("disk empty"));
+        assertNotEquals(fingerprint("error 1"), fingerprint("Error 1"));
+        // Any run of digits becomes one mask; it does not vanish
+        assertNotEquals(fingerprint("code 1"), fingerprint("code "));
+        assertEquals(fingerprint("code 1"), fingerprint("code 12345"));
+    }
+
+    @Test
+    void separatesServersAndPaths() {
+        String message = "connection refused";
+        assertNotEquals(AlertDeduplicator.fingerprint("web-01", "/a", message),
+                AlertDeduplicator.fingerprint("web-02", "/a", message));
+        assertNotEquals(AlertDeduplicator.fingerprint("web-01", "/a", message),
+                AlertDeduplicator.fingerprint("web-01", "/b", message));
+        // The separator keeps the fields from running into each other
+        assertNotEquals(AlertDeduplicator.fingerprint("web", "-01/a", message),
+                AlertDeduplicator.fingerprint("web-01", "/a", message));
+        // Server numbers are not masked, only the message is
+        assertNotEquals(AlertDeduplicator.fingerprint("web-1", "/a", message),
+                AlertDeduplicator.fingerprint("web-2", "/a", message));
+    }
+
+    @Test
+    void onlyLooksAtTheStartOfVeryLongMessages() {
+        String start = "x".repeat(512);
+        assertEquals(fingerprint(start + "tail one"), fingerprint(start + "another tail"));
+        assertNotEquals(fingerprint("a" + start), fingerprint("b" + start));
+    }
+
+    @Test
+    void handlesAMissingMessage() {
+        assertEquals(fingerprint(""), fingerprint(null));
+    }
+
+    @Test
+    void suppressesRepeatsWithinTheWindowAndSummarizesThemOnClose() {
+        List<AlertDeduplicator.Summary> summaries = new CopyOnWriteArrayList<>();
+        AlertDedupConfig config = new AlertDedupConfig();
+        config.setWindowSeconds(300);
+
+        AlertDeduplicator dedup = new AlertDeduplicator(config, summaries::add);
+        assertTrue(dedup.shouldAlert(event("web-01", "worker 17 crashed")));
+        assertFalse(dedup.shouldAlert(event("web-01", "worker 18 crashed")));
+        assertFalse(dedup.shouldAlert(event("web-01", "worker 19 crashed")));
+        assertTrue(dedup.shouldAlert(event("web-02", "worker 17 crashed")));
+        assertEquals(2, dedup.size());
+        dedup.close();
+
+        assertEquals(1, summaries.size());
+        AlertDeduplicator.Summary summary = summaries.get(0);
+        assertEquals("web-01", summary.getServerName());
+        assertEquals(2, summary.getCount());
+        assertEquals("worker 19 crashed", summary.getLastMessage());
+        assertEquals("[2 occurrences since " + summary.getSince() + "] worker 19 crashed",
+                summary.toStoredMessage());
+    }
+
+    @Test
+    void passesEverythingWhenDisabled() {
+        AlertDedupConfig config = new AlertDedupConfig();
+        config.setEnabled(false);
+
+        AlertDeduplicator dedup = new AlertDeduplicator(config, summary -> {
+        });
+        assertTrue(dedup.shouldAlert(event("web-01", "same")));
+        assertTrue(dedup.shouldAlert(event("web-01", "same")));
+        dedup.close();
+    }
+
+    private static LogEvent event(String server, String message) {
+        return new LogEvent(server, "/var/log/app.log", "logs", "2026-01-01T00:00:00Z", message);
+    }
+}
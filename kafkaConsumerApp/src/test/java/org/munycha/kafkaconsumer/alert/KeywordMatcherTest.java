@@ -0,0 +1,148 @@
+package org.munycha.kafkaconsumer.alert;
+
+import org.junit.jupiter.api.Test;
+import org.munycha.kafkaconsumer.config.AlertMatchMode;
+import org.munycha.kafkaconsumer.config.AlertRule;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordMatcherTest {
+
+    // What TopicConsumer did before the automaton: lower-case the message, contains() per keyword
+    private static Set<String> containsBaseline(List<String> keywords, String message) {
+        String lowerMsg = message.toLowerCase(Locale.ROOT);
+        Set<String> found = new HashSet<>();
+        for (String keyword : keywords) {
+            String lowerKeyword = keyword.toLowerCase(Locale.ROOT);
+            if (!lowerKeyword.isEmpty() && lowerMsg.contains(lowerKeyword)) {
+                found.add(lowerKeyword);
+            }
+        }
+        return found;
+    }
+
+    @Test
+    void agreesWithContainsOnRandomInput() {
+        // A tiny alphabet makes overlapping and nested keywords common
+        Random random = new Random(42);
+        String alphabet = "abcAB c-";
+
+        for (int round = 0; round < 200; round++) {
+            List<String> keywords = new ArrayList<>();
+            for (int k = 0, count = 1 + random.nextInt(12); k < count; k++) {
+                keywords.add(randomString(random, alphabet, 1 + random.nextInt(5)));
+            }
+            KeywordMatcher matcher = new KeywordMatcher(keywords, null);
+
+            for (int m = 0; m < 50; m++) {
+                String message = randomString(random, alphabet, random.nextInt(60));
+                Set<String> expected = containsBaseline(keywords, message);
+                List<String> matched = matcher.match(message);
+
+                assertEquals(expected, new HashSet<>(matched), () -> keywords + " in \"" + message + "\"");
+                assertEquals(matched.size(), new HashSet<>(matched).size(), "no duplicates");
+                assertEquals(!expected.isEmpty(), matcher.matches(message));
+            }
+        }
+    }
+
+    @Test
+    void agreesWithContainsOnTypicalLogLines() {
+        List<String> keywords = List.of("error", "panic", "service unavailable", "memory leak",
+                "disconnect", "unauthorized");
+        KeywordMatcher matcher = new KeywordMatcher(keywords, null);
+
+        for (String message : List.of(
+                "2026-01-01 ERROR connection refused",
+                "Service Unavailable: upstream timed out",
+                "client disconnected after 30s",
+                "kernel: PANIC - not syncing",
+                "all good here",
+                "",
+                "errors: 0, warnings: 3",
+                "Unauthorized access; memory leak suspected; error")) {
+            assertEquals(containsBaseline(keywords, message), new HashSet<>(matcher.match(message)), message);
+        }
+    }
+
+    @Test
+    void listsKeywordsInOrderOfFirstOccurrence() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("he", "she", "hers", "his"), null);
+
+        assertEquals(List.of("she", "he", "hers"), matcher.match("ushers"));
+        assertEquals(List.of("his", "she", "he"), matcher.match("this she"));
+    }
+
+    @Test
+    void foldsCaseOfKeywordsAndNonAsciiText() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("ERROR", "Gr\u00f6\u00dfe"), null);
+
+        assertEquals(List.of("error"), matcher.match("an Error occurred"));
+        assertEquals(List.of("gr\u00f6\u00dfe"), matcher.match("GR\u00d6SSE? no: GR\u00d6\u00dfE"));
+        assertTrue(matcher.match(null).isEmpty());
+    }
+
+    @Test
+    void wordRulesOnlyMatchWholeWords() {
+        KeywordMatcher matcher = new KeywordMatcher(null, List.of(new AlertRule("warn", AlertMatchMode.WORD)));
+
+        assertTrue(matcher.matches("a warn b"));
+        assertTrue(matcher.matches("WARN: disk"));
+        assertTrue(matcher.matches("[warn]"));
+        assertFalse(matcher.matches("warning"));
+        assertFalse(matcher.matches("forewarn"));
+        assertFalse(matcher.matches("warn_level"));
+    }
+
+    @Test
+    void substringBeatsWordWhenBothAreConfigured() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("warn"),
+                List.of(new AlertRule("warn", AlertMatchMode.WORD)));
+
+        assertEquals(List.of("warn"), matcher.match("warning"));
+        assertEquals(1, matcher.size());
+    }
+
+    @Test
+    void regexRulesAreCaseInsensitive() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("error"),
+                List.of(new AlertRule("disk (full|quota)", AlertMatchMode.REGEX)));
+
+        assertEquals(List.of("error", "disk (full|quota)"), matcher.match("ERROR: Disk Full on /var"));
+        assertEquals(List.of("disk (full|quota)"), matcher.match("disk quota exceeded"));
+        assertTrue(matcher.match("disk ok").isEmpty());
+    }
+
+    @Test
+    void updateSwapsKeywordsAndKeepsTheOldSetOnABadRegex() {
+        KeywordMatcher matcher = new KeywordMatcher(List.of("error"), null);
+
+        matcher.update(List.of("fatal"), null);
+        assertFalse(matcher.matches("error"));
+        assertTrue(matcher.matches("FATAL"));
+
+        assertThrows(PatternSyntaxException.class,
+                () -> matcher.update(List.of("error"), List.of(new AlertRule("(", AlertMatchMode.REGEX))));
+        assertTrue(matcher.matches("fatal"));
+        assertFalse(matcher.matches("error"));
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.munycha.kafkaconsumer.codec;
+
+import org.junit.jupiter.api.Test;
+import org.munycha.kafkaconsumer.model.ServerStorageSnapshot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordDecoderTest {
+
+    private static byte[] snapshot(String timestampField) {
+        String json = "{\"systemId\":\"sys\",\"systemName\":\"System\",\"serverName\":\"srv-1\","
+                + "\"serverIp\":\"10.0.0.1\"," + timestampField
+                + "\"mountPathStorageUsages\":[{\"path\":\"/\",\"totalBytes\":100,\"usedBytes\":40,"
+                + "\"usedPercent\":40.0}]}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void keepsParsedSnapshotTimestamp() throws IOException {
+        ServerStorageSnapshot decoded = new RecordDecoder()
+                .decodeSnapshot(snapshot("\"timestamp\":\"2024-05-14T10:22:31.118Z\","));
+
+        assertEquals("2024-05-14T10:22:31.118Z", decoded.getTimestamp());
+        assertEquals(Instant.parse("2024-05-14T10:22:31.118Z").toEpochMilli(), decoded.getCollectedMillis());
+    }
+
+    @Test
+    void rejectsUnparseableSnapshotTimestamp() {
+        RecordDecoder decoder = new RecordDecoder();
+
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decodeSnapshot(snapshot("\"timestamp\":\"yesterday\",")));
+    }
+
+    @Test
+    void rejectsSnapshotWithoutTimestamp() {
+        RecordDecoder decoder = new RecordDecoder();
+
+        assertThrows(IOException.class, () -> decoder.decodeSnapshot(snapshot("")));
+        assertThrows(IOException.class, () -> decoder.decodeSnapshot(snapshot("\"timestamp\":null,")));
+    }
+}
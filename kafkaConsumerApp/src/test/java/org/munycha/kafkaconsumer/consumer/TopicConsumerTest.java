@@ -0,0 +1,164 @@
+package org.munycha.kafkaconsumer.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.munycha.kafkaconsumer.alert.StorageAlertEvaluator;
+import org.munycha.kafkaconsumer.config.ConsoleConfig;
+import org.munycha.kafkaconsumer.config.ConsoleMode;
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.DeadLetterConfig;
+import org.munycha.kafkaconsumer.config.DeadLetterTarget;
+import org.munycha.kafkaconsumer.config.StorageAlertConfig;
+import org.munycha.kafkaconsumer.config.TableConfig;
+import org.munycha.kafkaconsumer.config.TopicConfig;
+import org.munycha.kafkaconsumer.config.TopicType;
+import org.munycha.kafkaconsumer.db.ConnectionPool;
+import org.munycha.kafkaconsumer.db.MountPathStorageUsageDB;
+import org.munycha.kafkaconsumer.db.ServerStorageSnapshotDB;
+import org.munycha.kafkaconsumer.deadletter.DeadLetterQueue;
+import org.munycha.kafkaconsumer.metrics.TopicMetrics;
+import org.munycha.kafkaconsumer.sink.OutputSink;
+import org.munycha.kafkaconsumer.state.StorageStateIndex;
+import org.munycha.kafkaconsumer.utility.ConsoleEcho;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicConsumerTest {
+
+    private static final String TOPIC = "metrics";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deadLettersARecordTheDatabaseRejectsAndCommitsPastIt() throws Exception {
+        String url = "jdbc:h2:mem:topicconsumer;DB_CLOSE_DELAY=-1";
+        try (Connection db = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement stmt = db.createStatement()) {
+                // server_name fits short names only: the long one is rejected with SQLState 22001
+                stmt.execute("CREATE TABLE server_storage_snapshots ("
+                        + "id BIGINT AUTO_INCREMENT PRIMARY KEY, system_id VARCHAR(255), system_name VARCHAR(255), "
+                        + "server_ip VARCHAR(64), server_name VARCHAR(8), collected_at TIMESTAMP)");
+                stmt.execute("CREATE TABLE mount_path_storage_usages ("
+                        + "id BIGINT AUTO_INCREMENT PRIMARY KEY, server_storage_snapshot_id BIGINT, path VARCHAR(1024), "
+                        + "total_bytes BIGINT, used_bytes BIGINT, used_percent DOUBLE)");
+            }
+
+            Path deadLetterFile = dir.resolve("dlq.jsonl");
+            DatabaseConfig dbConfig = dbConfig(url);
+            MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+            consumer.assign(Set.of(PARTITION));
+
+            try (ConnectionPool pool = new ConnectionPool(dbConfig);
+                 ServerStorageSnapshotDB snapshotDB = new ServerStorageSnapshotDB(dbConfig, pool, null,
+                         new MountPathStorageUsageDB(dbConfig));
+                 DeadLetterQueue deadLetters = new DeadLetterQueue(deadLetterConfig(deadLetterFile), null)) {
+
+                TopicConsumer topicConsumer = new TopicConsumer(consumer, topicConfig(), 0, new StringSink(),
+                        null, null, null, null, snapshotDB, new StorageStateIndex(false),
+                        new StorageAlertEvaluator(new StorageAlertConfig()), new TopicMetrics(TOPIC),
+                        new ConsoleEcho(consoleOff()), deadLetters);
+
+                List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+                records.add(snapshot(0, "srv-1"));
+                records.add(snapshot(1, "a-server-name-that-is-too-long"));
+                records.add(snapshot(2, "srv-2"));
+                topicConsumer.processBatch(new ConsumerRecords<>(Map.of(PARTITION, records)));
+            }
+
+            assertEquals(new OffsetAndMetadata(3), consumer.committed(Set.of(PARTITION)).get(PARTITION));
+            assertEquals(2, count(db, "server_storage_snapshots"));
+            List<String> deadLettered = Files.readAllLines(deadLetterFile);
+            assertEquals(1, deadLettered.size());
+            assertTrue(deadLettered.get(0).contains("\"offset\":1"), deadLettered.get(0));
+
+            try (Statement stmt = db.createStatement()) {
+                stmt.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    private static ConsumerRecord<String, byte[]> snapshot(long offset, String serverName) {
+        String json = "{\"systemId\":\"sys\",\"systemName\":\"System\",\"serverName\":\"" + serverName + "\","
+                + "\"serverIp\":\"10.0.0.1\",\"timestamp\":\"2024-05-14T10:22:31Z\","
+                + "\"mountPathStorageUsages\":[{\"path\":\"/\",\"totalBytes\":100,\"usedBytes\":40,"
+                + "\"usedPercent\":40.0}]}";
+        return new ConsumerRecord<>(TOPIC, 0, offset, null, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long count(Connection db, String table) throws Exception {
+        try (Statement stmt = db.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static DatabaseConfig dbConfig(String url) {
+        TableConfig tables = new TableConfig();
+        tables.setServerStorageSnapshotTable("server_storage_snapshots");
+        tables.setMountPathStorageUsageTable("mount_path_storage_usages");
+        DatabaseConfig config = new DatabaseConfig(url, "sa", "", tables);
+        config.setLingerMs(200);
+        return config;
+    }
+
+    private TopicConfig topicConfig() {
+        TopicConfig config = new TopicConfig();
+        config.setTopic(TOPIC);
+        config.setType(TopicType.METRIC);
+        config.setOutput(dir.resolve("metrics.log").toString());
+        return config;
+    }
+
+    private static DeadLetterConfig deadLetterConfig(Path file) {
+        DeadLetterConfig config = new DeadLetterConfig();
+        config.setTarget(DeadLetterTarget.FILE);
+        config.setFile(file.toString());
+        config.setLingerMs(0);
+        return config;
+    }
+
+    private static ConsoleConfig consoleOff() {
+        ConsoleConfig config = new ConsoleConfig();
+        config.setMode(ConsoleMode.OFF);
+        return config;
+    }
+
+    private static final class StringSink implements OutputSink {
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public synchronized void append(CharSequence chunk) {
+            text.append(chunk);
+        }
+
+        @Override
+        public void commitBatch() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.munycha.kafkaconsumer.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.munycha.kafkaconsumer.config.DatabaseConfig;
+import org.munycha.kafkaconsumer.config.TableConfig;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchWriterTest {
+
+    private static int databases;
+
+    private String url;
+    private Connection keepAlive;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        url = "jdbc:h2:mem:batchwriter" + (++databases) + ";DB_CLOSE_DELAY=-1";
+        keepAlive = DriverManager.getConnection(url, "sa", "");
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("CREATE TABLE names (name VARCHAR(5) NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            keepAlive.close();
+        }
+    }
+
+    @Test
+    void failsOnlyTheRowsTheDatabaseRejects() throws Exception {
+        DatabaseConfig dbConfig = new DatabaseConfig(url, "sa", "", new TableConfig());
+        dbConfig.setBatchSize(16);
+        dbConfig.setLingerMs(500);
+        MetricsRegistry registry = new MetricsRegistry();
+
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        try (ConnectionPool pool = new ConnectionPool(dbConfig);
+             BatchWriter<String> writer = new BatchWriter<>("names", pool, dbConfig, BatchWriterTest::insert)) {
+            writer.registerMetrics(registry);
+            for (int i = 0; i < 10; i++) {
+                // Too long for the column, and null for a NOT NULL one
+                acks.add(writer.submit(i == 3 ? "far too long" : i == 7 ? null : "row" + i));
+            }
+
+            for (int i = 0; i < acks.size(); i++) {
+                CompletableFuture<Void> ack = acks.get(i);
+                if (i == 3 || i == 7) {
+                    ExecutionException e = assertThrows(ExecutionException.class, () -> ack.get(10, TimeUnit.SECONDS));
+                    assertTrue(BatchWriter.isPermanent(e.getCause()), e.getCause().toString());
+                } else {
+                    ack.get(10, TimeUnit.SECONDS);
+                }
+            }
+        }
+
+        assertEquals(8, count());
+        String metrics = registry.scrape();
+        assertTrue(metrics.contains("db_rows_rejected_total{writer=\"names\"} 2"), metrics);
+        assertTrue(metrics.contains("db_rows_written_total{writer=\"names\"} 8"), metrics);
+    }
+
+    @Test
+    void classifiesRowErrorsAsPermanent() {
+        assertTrue(BatchWriter.isPermanent(new SQLException("Data too long", "22001")));
+        assertTrue(BatchWriter.isPermanent(new SQLException("Duplicate entry", "23000")));
+        assertTrue(BatchWriter.isPermanent(new BatchUpdateException("batch", "22001", 1406, new int[0])));
+        assertTrue(BatchWriter.isPermanent(new RuntimeException(new SQLException("Column cannot be null", "23000"))));
+
+        assertFalse(BatchWriter.isPermanent(new SQLTransientConnectionException("Connection reset", "08S01")));
+        assertFalse(BatchWriter.isPermanent(new SQLSyntaxErrorException("Table doesn't exist", "42S02")));
+        assertFalse(BatchWriter.isPermanent(new SQLException("Timed out waiting for a pooled connection")));
+    }
+
+    private static void insert(Connection conn, List<String> batch) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO names (name) VALUES (?)")) {
+            for (String name : batch) {
+                stmt.setString(1, name);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private long count() throws SQLException {
+        try (Statement stmt = keepAlive.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM names")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.munycha.kafkaconsumer.deadletter;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.munycha.kafkaconsumer.config.DeadLetterConfig;
+import org.munycha.kafkaconsumer.config.DeadLetterTarget;
+import org.munycha.kafkaconsumer.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadLetterQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void acknowledgesRecordsTheSinkKeepsRejecting() throws Exception {
+        // A regular file where the DLQ directory should be: every write fails
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        DeadLetterQueue queue = new DeadLetterQueue(config(blocker.resolve("dlq.jsonl"), 3), "unused:9092");
+        MetricsRegistry registry = new MetricsRegistry();
+        queue.registerMetrics(registry);
+
+        CompletableFuture<Void> ack = queue.submit(record(7), new IOException("bad json"));
+
+        // Completes normally: a broken DLQ must not fail or replay the consumer's batch
+        ack.get(10, TimeUnit.SECONDS);
+        String metrics = registry.scrape();
+        assertTrue(metrics.contains("dead_letter_failed_total 1"), metrics);
+        assertTrue(metrics.contains("dead_letter_retries_total 2"), metrics);
+        assertTrue(metrics.contains("dead_letter_written_total 0"), metrics);
+        queue.close();
+    }
+
+    @Test
+    void writesOnceTheSinkRecovers() throws Exception {
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        Path file = blocker.resolve("dlq.jsonl");
+        DeadLetterQueue queue = new DeadLetterQueue(config(file, 20), "unused:9092");
+        MetricsRegistry registry = new MetricsRegistry();
+        queue.registerMetrics(registry);
+
+        CompletableFuture<Void> ack = queue.submit(record(8), new IOException("bad json"));
+        Thread.sleep(50);
+        Files.delete(blocker);
+
+        ack.get(10, TimeUnit.SECONDS);
+        assertEquals(1, Files.readAllLines(file).size());
+        assertTrue(registry.scrape().contains("dead_letter_written_total 1"));
+        queue.close();
+    }
+
+    private static DeadLetterConfig config(Path file, int maxAttempts) {
+        DeadLetterConfig config = new DeadLetterConfig();
+        config.setTarget(DeadLetterTarget.FILE);
+        config.setFile(file.toString());
+        config.setLingerMs(0);
+        config.setMaxAttempts(maxAttempts);
+        config.setRetryBackoffMs(10);
+        return config;
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset) {
+        return new ConsumerRecord<>("logs", 0, offset, "key", "{not json".getBytes(StandardCharsets.UTF_8));
+    }
+}
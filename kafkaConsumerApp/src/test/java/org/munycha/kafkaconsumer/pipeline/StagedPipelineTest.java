@@ -0,0 +1,229 @@
+package org.munycha.kafkaconsumer.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.munycha.kafkaconsumer.config.PipelineConfig;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class StagedPipelineTest {
+
+    private static final String TOPIC = "logs";
+    private static final int PARTITIONS = 4;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Offsets seen per partition, in the order the handler got them
+    private final Map<Integer, List<Long>> handled = new ConcurrentHashMap<>();
+
+    @Test
+    void handlesEachPartitionInOrderAcrossRingWraps() throws IOException {
+        // 16 slots and 3000 records: the ring wraps many times
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(2, 16), 8, this::record)) {
+            long[] next = new long[PARTITIONS];
+            for (int batch = 0; batch < 375; batch++) {
+                pipeline.publish(batch(next, 8));
+            }
+
+            assertTrue(pipeline.drain(TIMEOUT_NANOS));
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                assertEquals(offsets(next[partition]), handled.get(partition), "partition " + partition);
+            }
+            assertEquals(expectedCommit(next), pipeline.takeCompletedOffsets());
+            // Taken once
+            assertTrue(pipeline.takeCompletedOffsets().isEmpty());
+        }
+    }
+
+    @Test
+    void publishWaitsForRoomInsteadOfOverwriting() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(1, 16), 8, (records, context) -> {
+            await(release);
+            record(records, context);
+        })) {
+            long[] next = new long[PARTITIONS];
+            pipeline.publish(batch(next, 16));
+            // The ring is full until the lane moves
+            assertFalse(pipeline.awaitRoom(8, TimeUnit.MILLISECONDS.toNanos(100)));
+
+            release.countDown();
+            pipeline.publish(batch(next, 16));
+            assertTrue(pipeline.drain(TIMEOUT_NANOS));
+            assertEquals(expectedCommit(next), pipeline.takeCompletedOffsets());
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                assertEquals(offsets(next[partition]), handled.get(partition));
+            }
+        }
+    }
+
+    @Test
+    void replaysABatchWhoseWritesFailed() throws IOException {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(2, 64), 32, (records, context) -> {
+            if (failOnce.getAndSet(false)) {
+                throw new CompletionException(new IOException("database down"));
+            }
+            record(records, context);
+        })) {
+            long[] next = new long[PARTITIONS];
+            pipeline.publish(batch(next, 32));
+
+            assertTrue(pipeline.drain(TIMEOUT_NANOS));
+            assertEquals(expectedCommit(next), pipeline.takeCompletedOffsets());
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                assertEquals(offsets(next[partition]), handled.get(partition));
+            }
+        }
+    }
+
+    @Test
+    void commitsNothingOfAPartitionWhoseLaneIsStuck() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        // Two lanes: partitions 0 and 2 on lane 0, 1 and 3 on lane 1
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(2, 64), 32, (records, context) -> {
+            if (records.get(0).partition() % 2 == 1) {
+                await(release);
+            }
+            record(records, context);
+        })) {
+            long[] next = new long[PARTITIONS];
+            pipeline.publish(batch(next, 32));
+
+            assertFalse(pipeline.drain(TimeUnit.MILLISECONDS.toNanos(200)));
+            // Collection stops at the stuck lane, so none of its partitions are committed
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(pipeline.takeCompletedOffsets());
+            assertNull(offsets.get(new TopicPartition(TOPIC, 1)));
+            assertNull(offsets.get(new TopicPartition(TOPIC, 3)));
+
+            release.countDown();
+            assertTrue(pipeline.drain(TIMEOUT_NANOS));
+            offsets.putAll(pipeline.takeCompletedOffsets());
+            assertEquals(expectedCommit(next), offsets);
+        }
+    }
+
+    @Test
+    void forgetsTheOffsetsOfLostPartitions() throws IOException {
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(2, 64), 32, this::record)) {
+            long[] next = new long[PARTITIONS];
+            pipeline.publish(batch(next, 32));
+
+            assertTrue(pipeline.discard(List.of(new TopicPartition(TOPIC, 0)), TIMEOUT_NANOS));
+            Map<TopicPartition, OffsetAndMetadata> expected = expectedCommit(next);
+            expected.remove(new TopicPartition(TOPIC, 0));
+            assertEquals(expected, pipeline.takeCompletedOffsets());
+        }
+    }
+
+    @Test
+    void reportsALaneThatStopped() throws IOException {
+        try (StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(1, 16), 8, (records, context) -> {
+            throw new IOException("disk full");
+        })) {
+            pipeline.publish(batch(new long[PARTITIONS], 4));
+
+            IOException e = assertThrows(IOException.class, () -> pipeline.drain(TIMEOUT_NANOS));
+            assertEquals("disk full", e.getMessage());
+            assertTrue(pipeline.takeCompletedOffsets().isEmpty());
+        }
+    }
+
+    @Test
+    void drainGivesUpOnceClosed() {
+        CountDownLatch release = new CountDownLatch(1);
+        StagedPipeline pipeline = new StagedPipeline(TOPIC, 0, config(1, 16), 8, (records, context) -> await(release));
+        try {
+            pipeline.publish(batch(new long[PARTITIONS], 4));
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                Thread closer = new Thread(() -> {
+                    sleep(100);
+                    pipeline.close();
+                });
+                closer.start();
+                // Without a deadline: only close() ends the wait
+                assertFalse(pipeline.drain());
+                release.countDown();
+                closer.join();
+            });
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    private void record(List<ConsumerRecord<String, byte[]>> records, StageContext context) {
+        for (ConsumerRecord<String, byte[]> record : records) {
+            handled.computeIfAbsent(record.partition(), p -> new ArrayList<>()).add(record.offset());
+        }
+    }
+
+    private static PipelineConfig config(int lanes, int ringSize) {
+        PipelineConfig config = new PipelineConfig();
+        config.setLanes(lanes);
+        config.setRingSize(ringSize);
+        return config;
+    }
+
+    // Round-robin over the partitions, continuing each partition's offsets
+    private static List<ConsumerRecord<String, byte[]>> batch(long[] next, int size) {
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int partition = i % PARTITIONS;
+            records.add(new ConsumerRecord<>(TOPIC, partition, next[partition]++, null, new byte[0]));
+        }
+        return records;
+    }
+
+    private static List<Long> offsets(long count) {
+        List<Long> offsets = new ArrayList<>();
+        for (long offset = 0; offset < count; offset++) {
+            offsets.add(offset);
+        }
+        return offsets;
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> expectedCommit(long[] next) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (int partition = 0; partition < next.length; partition++) {
+            offsets.put(new TopicPartition(TOPIC, partition), new OffsetAndMetadata(next[partition]));
+        }
+        return offsets;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
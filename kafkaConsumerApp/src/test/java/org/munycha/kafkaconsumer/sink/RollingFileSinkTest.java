@@ -0,0 +1,80 @@
+package org.munycha.kafkaconsumer.sink;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.munycha.kafkaconsumer.config.Compression;
+import org.munycha.kafkaconsumer.config.Durability;
+import org.munycha.kafkaconsumer.config.SinkConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingFileSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService archiver = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void stopExecutors() throws InterruptedException {
+        scheduler.shutdownNow();
+        archiver.shutdown();
+        archiver.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void zeroMaxBytesNeverRolls() throws IOException {
+        Path active = dir.resolve("out.log");
+        writeLines(active, config(0), 50);
+
+        assertEquals(List.of("out.log"), files());
+        assertEquals(50, Files.readAllLines(active).size());
+    }
+
+    @Test
+    void rollsOnceMaxBytesIsReached() throws IOException {
+        Path active = dir.resolve("out.log");
+        writeLines(active, config(100), 50);
+
+        List<String> files = files();
+        assertTrue(files.size() > 1, files.toString());
+        assertTrue(files.contains("out.log"), files.toString());
+    }
+
+    private void writeLines(Path active, SinkConfig config, int lines) throws IOException {
+        try (RollingFileSink sink = new RollingFileSink(active, config, scheduler, archiver)) {
+            for (int i = 0; i < lines; i++) {
+                sink.append(String.format("line %04d%n", i));
+                sink.commitBatch();
+            }
+        }
+    }
+
+    private static SinkConfig config(long rollMaxBytes) {
+        SinkConfig config = new SinkConfig();
+        config.setRollMaxBytes(rollMaxBytes);
+        config.setDurability(Durability.BATCH);
+        config.setCompression(Compression.NONE);
+        return config;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
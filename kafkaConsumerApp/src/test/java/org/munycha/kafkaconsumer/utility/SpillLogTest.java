@@ -0,0 +1,192 @@
+package org.munycha.kafkaconsumer.utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillLogTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsRecordsBackInOrder() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            append(log, 100);
+            assertEquals(100, log.pendingRecords());
+
+            assertEquals(range(0, 100), readAll(log, true));
+            assertFalse(log.hasPending());
+            assertNull(log.next());
+        }
+    }
+
+    @Test
+    void replaysUnacknowledgedRecordsAfterRestart() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            append(log, 10);
+            log.sync();
+            // Read but never acknowledged: not committed downstream yet
+            readAll(log, false);
+        }
+
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            assertEquals(10, log.pendingRecords());
+            assertEquals(range(0, 10), readAll(log, true));
+        }
+    }
+
+    @Test
+    void deletesSegmentsOnceEverythingIsAcknowledged() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 22)) {
+            // About 1 KiB per record, so this spans several segments
+            append(log, 300);
+            assertTrue(segmentFiles() > 1);
+
+            readAll(log, true);
+            // The segment taking appends is kept and rewound
+            assertEquals(1, segmentFiles());
+            assertEquals(SEGMENT_BYTES, log.sizeBytes());
+        }
+
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 22)) {
+            assertFalse(log.hasPending());
+        }
+    }
+
+    @Test
+    void discardsTheRestOfASegmentAfterAChecksumMismatch() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            append(log, 5);
+        }
+
+        // Damage one payload byte of the third record
+        int recordBytes = 8 + record(0).length;
+        overwrite(2 * recordBytes + 8, new byte[]{(byte) '#'});
+
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            assertEquals(range(0, 2), readAll(log, true));
+        }
+    }
+
+    @Test
+    void treatsATornRecordAsTheEndOfTheSegment() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            append(log, 3);
+        }
+
+        // A length pointing past the end of the file, as a crash mid-append could leave
+        int recordBytes = 8 + record(0).length;
+        overwrite(3 * recordBytes, ByteBuffer.allocate(4).putInt(SEGMENT_BYTES).array());
+
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, 1 << 20)) {
+            assertEquals(range(0, 3), readAll(log, true));
+
+            // The recovered segment is sealed; new appends go to a fresh one
+            append(log, 1);
+            assertEquals(range(0, 1), readAll(log, true));
+        }
+    }
+
+    @Test
+    void refusesAppendsBeyondMaxBytes() throws IOException {
+        try (SpillLog log = new SpillLog(dir, SEGMENT_BYTES, SEGMENT_BYTES)) {
+            assertThrows(IOException.class, () -> append(log, 300));
+        }
+    }
+
+    @Test
+    void importsTheLegacySingleFileSpill() throws IOException {
+        Path legacy = dir.resolve("old.spill");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (String value : List.of("a", "bb", "ccc")) {
+            buffer.putInt(value.length()).put(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Torn tail: a length without its bytes
+        buffer.putInt(100);
+        Files.write(legacy, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        try (SpillLog log = new SpillLog(dir.resolve("log"), SEGMENT_BYTES, 1 << 20)) {
+            log.importLegacy(legacy);
+            assertFalse(Files.exists(legacy));
+
+            List<String> read = new ArrayList<>();
+            SpillLog.Record record;
+            while ((record = log.next()) != null) {
+                read.add(new String(record.bytes(), StandardCharsets.UTF_8));
+                log.acknowledge(record);
+            }
+            assertEquals(List.of("a", "bb", "ccc"), read);
+        }
+    }
+
+    private static void append(SpillLog log, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            log.append(record(i));
+        }
+    }
+
+    // Fixed size, so tests can compute where a record starts
+    private static byte[] record(int i) {
+        return String.format("%06d:%s", i, "x".repeat(1000)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> readAll(SpillLog log, boolean acknowledge) {
+        List<Integer> read = new ArrayList<>();
+        SpillLog.Record record;
+        while ((record = log.next()) != null) {
+            String value = new String(record.bytes(), StandardCharsets.UTF_8);
+            assertArrayEquals(record(Integer.parseInt(value.substring(0, 6))), record.bytes());
+            read.add(Integer.parseInt(value.substring(0, 6)));
+            if (acknowledge) {
+                log.acknowledge(record);
+            }
+        }
+        return read;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+
+    // Writes into the only segment file
+    private void overwrite(long position, byte[] bytes) throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(file -> file.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+}